@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
 @EnableFeignClients
+@EnableScheduling
 public class AccommodationApplication {
     public static void main(String[] args) {
         SpringApplication.run(AccommodationApplication.class, args);
@@ -0,0 +1,65 @@
+package com.samilyak.accommodationservice.client;
+
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves many addresses through the {@code /batch} endpoint in chunks instead of one call per id.
+ * Every lookup records how many address-service calls it took.
+ */
+@Slf4j
+@Component
+public class AddressBatchLoader {
+
+    private final AddressClient addressClient;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+
+    public AddressBatchLoader(
+            AddressClient addressClient,
+            MeterRegistry meterRegistry,
+            @Value("${application.address.batch-size:200}") int batchSize
+    ) {
+        this.addressClient = addressClient;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+    }
+
+    public Map<Long, AddressResponseDto> loadByIds(Collection<Long> addressIds, String operation) {
+        List<Long> ids = addressIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        Map<Long, AddressResponseDto> addresses = new HashMap<>(ids.size() * 2);
+        int calls = 0;
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            addressClient.getAddressesByIds(chunk)
+                    .forEach(address -> addresses.put(address.id(), address));
+            calls++;
+        }
+
+        recordCalls(operation, calls);
+        log.debug("📦 Loaded {} addresses in {} batch call(s) for {}", addresses.size(), calls, operation);
+        return addresses;
+    }
+
+    public void recordCalls(String operation, int calls) {
+        DistributionSummary.builder("accommodation.address.calls.per.request")
+                .description("Number of address-service calls made while serving one request")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(calls);
+    }
+}
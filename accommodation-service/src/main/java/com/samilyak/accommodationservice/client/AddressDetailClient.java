@@ -0,0 +1,24 @@
+package com.samilyak.accommodationservice.client;
+
+import com.samilyak.accommodationservice.config.FeignTracingConfig;
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+/**
+ * Address lookup for the listing detail page. A separate Feign context so its read timeout can stay
+ * under the detail branch timeout without cutting short the batch calls of {@link AddressClient}.
+ */
+@FeignClient(
+        name = "address-service",
+        path = "/api/addresses",
+        contextId = "addressDetailClient",
+        configuration = FeignTracingConfig.class
+)
+public interface AddressDetailClient {
+
+    @GetMapping("/{id}")
+    AddressResponseDto getAddressById(@PathVariable("id") Long id);
+
+}
@@ -0,0 +1,73 @@
+package com.samilyak.accommodationservice.config.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.accommodationservice.dto.AccommodationDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class CacheConfig {
+
+    public static final String ACCOMMODATIONS_CACHE = "accommodations";
+
+    @Value("${application.cache.invalidation-channel:accommodation-cache-invalidation}")
+    private String invalidationChannel;
+
+    @Value("${application.cache.local.ttl:30s}")
+    private Duration localTtl;
+
+    @Value("${application.cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${application.cache.redis.ttl:10m}")
+    private Duration redisTtl;
+
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate redisTemplate) {
+        return new CacheInvalidationPublisher(redisTemplate, invalidationChannel);
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             ObjectMapper objectMapper,
+                                             CacheInvalidationPublisher invalidationPublisher,
+                                             MeterRegistry meterRegistry) {
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(redisTtl)
+                .disableCachingNullValues();
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(defaults)
+                .withCacheConfiguration(ACCOMMODATIONS_CACHE, defaults.serializeValuesWith(
+                        SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(objectMapper, AccommodationDto.class))))
+                .enableStatistics()
+                .build();
+        redisCacheManager.initializeCaches();
+
+        return new TwoLevelCacheManager(redisCacheManager, invalidationPublisher, meterRegistry,
+                List.of(ACCOMMODATIONS_CACHE), localTtl, localMaxSize);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationContainer(RedisConnectionFactory connectionFactory,
+                                                                    TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new CacheInvalidationListener(cacheManager), new ChannelTopic(invalidationChannel));
+        return container;
+    }
+}
@@ -0,0 +1,30 @@
+package com.samilyak.accommodationservice.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drops local copies when any replica (this one included) evicts an entry.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CacheInvalidationListener implements MessageListener {
+
+    private final TwoLevelCacheManager cacheManager;
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator <= 0) {
+            log.warn("⚠️ Непонятное сообщение инвалидации кеша: {}", body);
+            return;
+        }
+        log.debug("🧹 Инвалидация локального кеша: {}", body);
+        cacheManager.evictLocal(body.substring(0, separator), body.substring(separator + 1));
+    }
+}
@@ -0,0 +1,35 @@
+package com.samilyak.accommodationservice.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Message format: {@code <cache>:<key>} for a single entry, {@code <cache>:*} for the whole cache.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CacheInvalidationPublisher {
+
+    static final String CLEAR_ALL = "*";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+
+    public void publishEvict(String cacheName, String key) {
+        publish(cacheName + ":" + key);
+    }
+
+    public void publishClear(String cacheName) {
+        publish(cacheName + ":" + CLEAR_ALL);
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // Локальные копии на других репликах доживут до своего TTL
+            log.warn("⚠️ Не удалось разослать инвалидацию кеша {}: {}", message, e.getMessage());
+        }
+    }
+}
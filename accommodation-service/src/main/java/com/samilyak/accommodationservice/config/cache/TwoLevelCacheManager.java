@@ -0,0 +1,91 @@
+package com.samilyak.accommodationservice.config.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds a {@link TwoLevelCache} per cache name. Being transaction aware, puts and evictions
+ * made inside a transaction are applied after commit, so a replica can never re-cache
+ * the row it is about to be told is stale.
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final RedisCacheManager redisCacheManager;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Collection<String> initialCacheNames;
+    private final Duration localTtl;
+    private final long localMaxSize;
+    private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                CacheInvalidationPublisher invalidationPublisher,
+                                MeterRegistry meterRegistry,
+                                Collection<String> initialCacheNames,
+                                Duration localTtl,
+                                long localMaxSize) {
+        this.redisCacheManager = redisCacheManager;
+        this.invalidationPublisher = invalidationPublisher;
+        this.meterRegistry = meterRegistry;
+        this.initialCacheNames = initialCacheNames;
+        this.localTtl = localTtl;
+        this.localMaxSize = localMaxSize;
+        setTransactionAware(true);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return initialCacheNames.stream()
+                .map(this::createTwoLevelCache)
+                .toList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createTwoLevelCache(name);
+    }
+
+    void evictLocal(String cacheName, String key) {
+        TwoLevelCache cache = twoLevelCaches.get(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (CacheInvalidationPublisher.CLEAR_ALL.equals(key)) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(key);
+        }
+    }
+
+    private TwoLevelCache createTwoLevelCache(String name) {
+        return twoLevelCaches.computeIfAbsent(name, cacheName -> {
+            com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                    .expireAfterWrite(localTtl)
+                    .maximumSize(localMaxSize)
+                    .recordStats()
+                    .build();
+            RedisCache remote = (RedisCache) redisCacheManager.getCache(cacheName);
+
+            CaffeineCacheMetrics.monitor(meterRegistry, local, cacheName, Tags.of("tier", "local"));
+            new RedisCacheMetrics(remote, Tags.of("tier", "redis"))
+                    .bindTo(meterRegistry);
+
+            log.info("🗄 Двухуровневый кеш {}: local ttl={}, max={}", cacheName, localTtl, localMaxSize);
+            return new TwoLevelCache(cacheName, local, remote, invalidationPublisher);
+        });
+    }
+}
@@ -3,17 +3,46 @@ package com.samilyak.accommodationservice.config.kafka;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.samilyak.accommodationservice.dto.event.AddressChangedEvent;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.EventDeserializer;
+import com.samilyak.events.kafka.EventSerializer;
+import com.samilyak.events.kafka.JsonEventDeserializer;
+import com.samilyak.events.kafka.KeyOrderedExecutor;
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 @Configuration
 public class KafkaConfig {
@@ -24,25 +53,112 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    // Потоков-консьюмеров столько же, сколько партиций у топиков
+    @Value("${spring.kafka.listener.concurrency:1}")
+    private int concurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${application.kafka.partitions:3}")
+    private int partitions;
+
+    @Value("${application.kafka.workers.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${application.kafka.topics.booking-created}")
+    private String bookingCreatedTopic;
+
+    @Value("${application.kafka.topics.booking-cancellation-requested}")
+    private String bookingCancellationTopic;
+
+    @Value("${application.kafka.topics.address-changed}")
+    private String addressChangedTopic;
+
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        //  ГЛАВНОЕ: Читаем VALUE тоже как String. Никаких ошибок десериализации!
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+        return new DefaultKafkaConsumerFactory<>(props, StringDeserializer::new, this::eventDeserializer);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setCommonErrorHandler(errorHandler());
+        configureListenerThreads(factory);
+        return factory;
     }
 
+    /**
+     * Batch mode for listeners that fan a poll out to {@link KeyOrderedExecutor}:
+     * offsets are committed after the listener returned, i.e. after every record was handled.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(errorHandler());
+        configureListenerThreads(factory);
         return factory;
     }
 
+    /**
+     * Failed records end up in {@code <topic>.DLT}. Poison messages arrive there with their original bytes,
+     * records that failed in the listener are written back in the format of their topic.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(AddressChangedEvent.class, new JsonSerializer<>(objectMapper()).noTypeInfo());
+        serializers.put(Object.class, new EventSerializer());
+
+        Map<String, Object> props = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                props, new StringSerializer(), new DelegatingByTypeSerializer(serializers, true)));
+        return new DeadLetterPublishingRecoverer(template);
+    }
+
+    @Bean
+    public DefaultErrorHandler errorHandler() {
+        // Ошибки десериализации не ретраятся — сразу в DLT
+        return new DefaultErrorHandler(deadLetterRecoverer(), new FixedBackOff(1000L, 2));
+    }
+
+    @Bean
+    public DeadLetters deadLetters() {
+        return new DeadLetters(deadLetterRecoverer());
+    }
+
+    @Bean
+    public KeyOrderedExecutor keyOrderedExecutor() {
+        return new KeyOrderedExecutor("kafka-worker", maxInFlight);
+    }
+
+    @Bean
+    public NewTopic inventoryReservedTopic(@Value("${application.kafka.topics.inventory-reserved}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(1).build();
+    }
+
+    @Bean
+    public NewTopic inventoryFailedTopic(@Value("${application.kafka.topics.inventory-failed}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(1).build();
+    }
+
+    @Bean
+    public NewTopic datesUnlockedTopic(@Value("${application.kafka.topics.dates-unlocked}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(1).build();
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -50,4 +166,33 @@ public class KafkaConfig {
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         return mapper;
     }
+
+    // Фабрики собраны вручную — spring.threads.virtual.enabled до них сам не доходит
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<?, ?> factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+
+    /**
+     * Each consumed topic carries one event type, so the topic alone picks the typed deserializer.
+     * A record that does not parse comes out with a null value and the failure in a header.
+     */
+    private Deserializer<Object> eventDeserializer() {
+        ObjectMapper mapper = objectMapper();
+        Map<Pattern, Deserializer<?>> byTopic = new LinkedHashMap<>();
+        byTopic.put(Pattern.compile(Pattern.quote(bookingCreatedTopic)),
+                new EventDeserializer<>(BookingCreatedEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(bookingCancellationTopic)),
+                new EventDeserializer<>(BookingCancellationRequestedEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(addressChangedTopic)),
+                new JsonEventDeserializer<>(mapper, AddressChangedEvent.class));
+
+        Deserializer<Object> unknownTopic = (topic, data) -> {
+            throw new SerializationException("No event type registered for topic " + topic);
+        };
+        return new ErrorHandlingDeserializer<>(new DelegatingByTopicDeserializer(byTopic, unknownTopic));
+    }
 }
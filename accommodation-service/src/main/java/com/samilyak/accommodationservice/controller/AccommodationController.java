@@ -1,15 +1,21 @@
 package com.samilyak.accommodationservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.accommodationservice.dto.AccommodationDetailDto;
 import com.samilyak.accommodationservice.dto.AccommodationDto;
+import com.samilyak.accommodationservice.dto.AccommodationPageDto;
 import com.samilyak.accommodationservice.dto.AccommodationRequestDto;
 import com.samilyak.accommodationservice.dto.AccommodationUpdateDto;
+import com.samilyak.accommodationservice.model.Accommodation;
 import com.samilyak.accommodationservice.service.AccommodationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,8 +29,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Function;
 
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
@@ -36,7 +45,11 @@ import static org.springframework.http.HttpStatus.NO_CONTENT;
 @Tag(name = "Accommodation Controller", description = "Endpoints for managing accommodations")
 public class AccommodationController {
 
+    private static final String DEFAULT_PAGE_SIZE = "50";
+    private static final int STREAM_PAGE_SIZE = 200;
+
     private final AccommodationService accommodationService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @Operation(summary = "Create a new accommodation", description = "Create a new accommodation")
@@ -61,23 +74,72 @@ public class AccommodationController {
     }
 
     @GetMapping
-    @Operation(summary = "Get all available accommodations",
-            description = "Accessible to any authenticated user")
-    public ResponseEntity<List<AccommodationDto>> getAll() {
-        log.info("📋 Запрос на получение всех доступных вариантов жилья");
-        return ResponseEntity.ok(accommodationService.getAll());
+    @Operation(summary = "Get available accommodations page by page",
+            description = "Keyset pagination: pass nextCursor from the previous page as 'after'")
+    public ResponseEntity<AccommodationPageDto> getAll(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size
+    ) {
+        log.info("📋 Запрос страницы жилья после id={}, size={}", after, size);
+        return ResponseEntity.ok(accommodationService.getAll(after, size));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all accommodations as NDJSON",
+            description = "Pages through the catalogue, memory use does not grow with its size")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("📋 Потоковая выгрузка всех вариантов жилья");
+        return ndjson(after -> accommodationService.getAll(after, STREAM_PAGE_SIZE));
     }
 
     @GetMapping("/search/by-city")
-    public List<AccommodationDto> getAccommodationsByCity(@RequestParam("city") String city) {
+    public AccommodationPageDto getAccommodationsByCity(
+            @RequestParam("city") String city,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size
+    ) {
         log.info("📌 Запрос на поиск жилья в городе: {}", city);
-        return accommodationService.getAccommodationsByCity(city);
+        return accommodationService.getAccommodationsByCity(city, after, size);
+    }
+
+    @GetMapping(value = "/search/by-city/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAccommodationsByCity(@RequestParam("city") String city) {
+        log.info("📌 Потоковый поиск жилья в городе: {}", city);
+        return ndjson(after -> accommodationService.getAccommodationsByCity(city, after, STREAM_PAGE_SIZE));
     }
 
     @GetMapping("/search/by-country")
-    public List<AccommodationDto> getAccommodationsByCountry(@RequestParam("country") String country) {
+    public AccommodationPageDto getAccommodationsByCountry(
+            @RequestParam("country") String country,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size
+    ) {
         log.info("📌 Запрос на поиск жилья в стране: {}", country);
-        return accommodationService.getAccommodationsByCountry(country);
+        return accommodationService.getAccommodationsByCountry(country, after, size);
+    }
+
+    @GetMapping(value = "/search/by-country/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAccommodationsByCountry(
+            @RequestParam("country") String country
+    ) {
+        log.info("📌 Потоковый поиск жилья в стране: {}", country);
+        return ndjson(after -> accommodationService.getAccommodationsByCountry(country, after, STREAM_PAGE_SIZE));
+    }
+
+    @GetMapping("/search/available")
+    @Operation(summary = "Find accommodations free for the whole stay",
+            description = "Availability is evaluated server-side; type and maxRate are optional filters")
+    public AccommodationPageDto searchAvailable(
+            @RequestParam("city") String city,
+            @RequestParam("checkIn") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam("checkOut") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(value = "type", required = false) Accommodation.Type type,
+            @RequestParam(value = "maxRate", required = false) BigDecimal maxRate,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size
+    ) {
+        log.info("🔎 Запрос свободного жилья в {} с {} по {}", city, checkIn, checkOut);
+        return accommodationService.searchAvailable(city, checkIn, checkOut, type, maxRate, after, size);
     }
 
     @GetMapping("/{id}")
@@ -87,6 +149,14 @@ public class AccommodationController {
         return ResponseEntity.ok(accommodationService.getById(id));
     }
 
+    @GetMapping("/{id}/detail")
+    @Operation(summary = "Get the listing detail page",
+            description = "Accommodation, address, amenities and locked dates in one read; "
+                    + "parts that did not load in time are listed in 'degraded'")
+    public ResponseEntity<AccommodationDetailDto> getDetail(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(accommodationService.getDetail(id));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete an accommodation by ID",
             description = "Delete an accommodation by ID")
@@ -98,4 +168,25 @@ public class AccommodationController {
         }
         accommodationService.deleteById(id);
     }
+
+    /**
+     * Writes one JSON object per line, loading the next page only after the previous one is flushed.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(Function<Long, AccommodationPageDto> pageLoader) {
+        StreamingResponseBody body = out -> {
+            Long cursor = null;
+            do {
+                AccommodationPageDto page = pageLoader.apply(cursor);
+                for (AccommodationDto dto : page.content()) {
+                    out.write(objectMapper.writeValueAsBytes(dto));
+                    out.write('\n');
+                }
+                out.flush();
+                cursor = page.nextCursor();
+            } while (cursor != null);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
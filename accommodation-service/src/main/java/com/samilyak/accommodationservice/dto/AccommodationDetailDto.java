@@ -0,0 +1,17 @@
+package com.samilyak.accommodationservice.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Listing detail page. Parts that did not load in time are null and named in {@code degraded}
+ * ({@code address}, {@code amenities}, {@code calendar}).
+ */
+public record AccommodationDetailDto(
+
+        AccommodationDto accommodation,
+        List<LocalDate> lockedDates,
+        List<String> degraded
+
+) {
+}
@@ -0,0 +1,14 @@
+package com.samilyak.accommodationservice.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page. Pass {@code nextCursor} as {@code after} to get the next page; null means the last page.
+ */
+public record AccommodationPageDto(
+
+        List<AccommodationDto> content,
+        Long nextCursor
+
+) {
+}
@@ -0,0 +1,13 @@
+package com.samilyak.accommodationservice.dto.event;
+
+public record AddressChangedEvent(
+
+        Long addressId,
+        String country,
+        String city,
+        String street,
+        String addressLine,
+        Integer zipCode
+
+) {
+}
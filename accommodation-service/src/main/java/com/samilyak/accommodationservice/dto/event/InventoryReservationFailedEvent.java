@@ -1,10 +0,0 @@
-package com.samilyak.accommodationservice.dto.event;
-
-public record InventoryReservationFailedEvent(
-
-        Long bookingId,
-        Long userId,
-        String reason
-
-) {
-}
@@ -1,8 +1,9 @@
 package com.samilyak.accommodationservice.messaging.kafka;
 
-import com.samilyak.accommodationservice.dto.event.DatesUnlockedEvent;
-import com.samilyak.accommodationservice.dto.event.InventoryReservationFailedEvent;
-import com.samilyak.accommodationservice.dto.event.InventoryReservedEvent;
+import com.samilyak.events.kafka.EventHeaders;
+import com.samilyak.events.saga.DatesUnlockedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,6 +13,9 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -36,6 +40,7 @@ public class AccommodationMessageProducer {
                 .withPayload(event)
                 .setHeader(KafkaHeaders.TOPIC, inventoryReservedTopic)
                 .setHeader(KafkaHeaders.KEY, String.valueOf(event.bookingId()))
+                .setHeader(EventHeaders.EVENT_ID, newEventId())
                 .build();
 
         kafkaTemplate.send(message);
@@ -49,6 +54,7 @@ public class AccommodationMessageProducer {
                 .withPayload(event)
                 .setHeader(KafkaHeaders.TOPIC, inventoryFailedTopic)
                 .setHeader(KafkaHeaders.KEY, String.valueOf(event.bookingId()))
+                .setHeader(EventHeaders.EVENT_ID, newEventId())
                 .build();
 
         kafkaTemplate.send(message);
@@ -61,8 +67,13 @@ public class AccommodationMessageProducer {
                 .withPayload(event)
                 .setHeader(KafkaHeaders.TOPIC, topicName)
                 .setHeader(KafkaHeaders.KEY, String.valueOf(event.bookingId()))
+                .setHeader(EventHeaders.EVENT_ID, newEventId())
                 .build();
 
         kafkaTemplate.send(message);
     }
+
+    private static byte[] newEventId() {
+        return UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,35 @@
+package com.samilyak.accommodationservice.messaging.kafka;
+
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import com.samilyak.accommodationservice.dto.event.AddressChangedEvent;
+import com.samilyak.accommodationservice.service.AddressProjectionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AddressChangedConsumer {
+
+    private final AddressProjectionService addressProjectionService;
+
+    @KafkaListener(
+            topics = "${application.kafka.topics.address-changed}",
+            groupId = "${spring.kafka.consumer.group-id}"
+    )
+    public void onAddressChanged(AddressChangedEvent event) {
+        log.info("📩 Address changed: addressId={}, city={}, country={}",
+                event.addressId(), event.city(), event.country());
+
+        addressProjectionService.upsert(new AddressResponseDto(
+                event.addressId(),
+                event.country(),
+                event.city(),
+                event.street(),
+                event.addressLine(),
+                event.zipCode()
+        ));
+    }
+}
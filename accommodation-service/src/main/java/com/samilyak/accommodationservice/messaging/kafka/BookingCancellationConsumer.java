@@ -1,8 +1,8 @@
 package com.samilyak.accommodationservice.messaging.kafka;
 
-import com.samilyak.accommodationservice.dto.event.BookingCancellationRequestedEvent;
-import com.samilyak.accommodationservice.dto.event.DatesUnlockedEvent;
 import com.samilyak.accommodationservice.service.AccommodationAvailabilityService;
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.DatesUnlockedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -34,7 +34,7 @@ public class BookingCancellationConsumer {
         availabilityService.unlockDates(
                 event.accommodationId(),
                 event.checkInDate(),
-                event.checkOutDate().minusDays(1) // ночи!
+                event.checkOutDate() // ночи: checkOut не включается
         );
 
         // 📤 Сообщаем booking-service
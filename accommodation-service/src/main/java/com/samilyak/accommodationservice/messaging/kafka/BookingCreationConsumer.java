@@ -1,15 +1,19 @@
 package com.samilyak.accommodationservice.messaging.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.samilyak.accommodationservice.dto.event.BookingCreatedEvent;
-import com.samilyak.accommodationservice.dto.event.InventoryReservationFailedEvent;
-import com.samilyak.accommodationservice.dto.event.InventoryReservedEvent;
 import com.samilyak.accommodationservice.service.AccommodationService;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.KeyOrderedExecutor;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -17,33 +21,33 @@ public class BookingCreationConsumer {
 
     private final AccommodationService accommodationService;
     private final AccommodationMessageProducer messageProducer;
-    private final ObjectMapper objectMapper; // 👇 Наш инструмент
+    private final DeadLetters deadLetters;
+    private final KeyOrderedExecutor keyOrderedExecutor;
 
     @KafkaListener(
             topics = "${application.kafka.topics.booking-created}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
     )
-    public void onBookingCreated(String message) { // 👈 Принимаем String!
-        log.info("📨 RAW MESSAGE received: {}", message); // Увидим текст до ошибки!
-
-        BookingCreatedEvent event;
-        try {
-            // 👇 Сами превращаем текст в объект. Если упадет - увидим почему.
-            event = objectMapper.readValue(message, BookingCreatedEvent.class);
-        } catch (Exception e) {
-            log.error("❌ JSON Parse Error: {}", e.getMessage());
-            return; // Не можем прочитать - выходим
-        }
+    public void onBookingCreated(List<ConsumerRecord<String, BookingCreatedEvent>> records) {
+        log.info("📨 Получена пачка BookingCreated: {} записей", records.size());
+        // Разные брони обрабатываем параллельно, события одной брони — строго по порядку
+        keyOrderedExecutor.runAll(deadLetters.dropPoison(records), BookingCreationConsumer::orderingKey,
+                record -> handleBookingCreated(record.value()));
+    }
 
-        log.info("✅ Parsed Event: bookingId={}, dates={} - {}",
+    private void handleBookingCreated(BookingCreatedEvent event) {
+        log.info("📩 BookingCreated: bookingId={}, dates={} - {}",
                 event.bookingId(), event.checkInDate(), event.checkOutDate());
 
         try {
             accommodationService.attemptReservation(
+                    event.bookingId(),
                     event.accommodationId(),
                     event.checkInDate(),
                     event.checkOutDate(),
-                    event.accommodationVersion()
+                    event.accommodationVersion(),
+                    event.totalPrice()
             );
 
             log.info("✅ Accommodation locked. Sending success event.");
@@ -67,4 +71,9 @@ public class BookingCreationConsumer {
             );
         }
     }
+
+    private static Object orderingKey(ConsumerRecord<String, BookingCreatedEvent> record) {
+        // Без ключа порядок гарантирует только партиция
+        return record.key() != null ? record.key() : record.topic() + "-" + record.partition();
+    }
 }
@@ -15,6 +15,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -40,6 +41,7 @@ public class Accommodation {
     private String size;
 
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "accommodations_amenities",
             joinColumns = @JoinColumn(name = "accommodation_id", referencedColumnName = "id"))
     @Column(name = "amenity", nullable = false)
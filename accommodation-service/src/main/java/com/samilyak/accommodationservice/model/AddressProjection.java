@@ -0,0 +1,45 @@
+package com.samilyak.accommodationservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Local read-only copy of an address from address-service, kept up to date by address change events.
+ * Lets city/country search run as one local query.
+ */
+@Entity
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "address_projections")
+public class AddressProjection {
+
+    @Id
+    @Column(name = "address_id")
+    private Long addressId;
+
+    @Column(name = "country", nullable = false)
+    private String country;
+
+    @Column(name = "city", nullable = false)
+    private String city;
+
+    @Column(name = "street")
+    private String street;
+
+    @Column(name = "address_line")
+    private String addressLine;
+
+    @Column(name = "zip_code")
+    private Integer zipCode;
+
+}
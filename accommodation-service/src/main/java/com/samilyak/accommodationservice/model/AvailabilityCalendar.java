@@ -0,0 +1,90 @@
+package com.samilyak.accommodationservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Availability of one accommodation: a single row with one bit per night,
+ * starting at {@link #startDate}. Nights outside the calendar are never bookable.
+ * All date ranges are half-open: [checkIn, checkOut).
+ */
+@Entity
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "availability_calendars")
+public class AvailabilityCalendar {
+
+    @Id
+    @Column(name = "accommodation_id")
+    private Long accommodationId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Convert(converter = NightCalendarConverter.class)
+    @ColumnTransformer(write = "CAST(? AS bit varying)")
+    @Column(name = "locked_nights", nullable = false, columnDefinition = "bit varying")
+    private NightCalendar lockedNights;
+
+    public boolean isFree(LocalDate checkIn, LocalDate checkOut) {
+        return lockedNights.isFree(nightIndex(checkIn), nightIndex(checkOut));
+    }
+
+    public void lock(LocalDate checkIn, LocalDate checkOut) {
+        if (!isFree(checkIn, checkOut)) {
+            throw new IllegalStateException("Nights " + checkIn + " - " + checkOut + " are not available");
+        }
+        lockedNights = lockedNights.lock(nightIndex(checkIn), nightIndex(checkOut));
+    }
+
+    public void unlock(LocalDate checkIn, LocalDate checkOut) {
+        int from = Math.max(nightIndex(checkIn), 0);
+        int to = Math.min(nightIndex(checkOut), lockedNights.nights());
+        if (from < to) {
+            lockedNights = lockedNights.unlock(from, to);
+        }
+    }
+
+    public List<LocalDate> lockedDates() {
+        return lockedNights.lockedNights()
+                .mapToObj(startDate::plusDays)
+                .toList();
+    }
+
+    /**
+     * Moves the calendar start to {@code today} and resizes it to {@code horizon} nights.
+     * Past nights are dropped, locked future nights keep their dates.
+     */
+    public void rollTo(LocalDate today, int horizon) {
+        int offset = Math.max(nightIndex(today), 0);
+        lockedNights = lockedNights.slice(offset, horizon);
+        startDate = startDate.plusDays(offset);
+    }
+
+    public Optional<LocalDate> lastLockedDate() {
+        int last = lockedNights.lastLockedNight();
+        return last < 0 ? Optional.empty() : Optional.of(startDate.plusDays(last));
+    }
+
+    private int nightIndex(LocalDate date) {
+        long days = ChronoUnit.DAYS.between(startDate, date);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, days));
+    }
+}
@@ -0,0 +1,46 @@
+package com.samilyak.accommodationservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * The booking that holds a range of nights in an {@link AvailabilityCalendar}.
+ * Written in the same transaction as the calendar bits, so a redelivered BookingCreated
+ * recognises its own lock instead of reporting the nights as taken.
+ */
+@Entity
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "booking_reservations")
+public class BookingReservation {
+
+    @Id
+    @Column(name = "booking_id")
+    private Long bookingId;
+
+    @Column(name = "accommodation_id", nullable = false)
+    private Long accommodationId;
+
+    @Column(name = "check_in", nullable = false)
+    private LocalDate checkIn;
+
+    @Column(name = "check_out", nullable = false)
+    private LocalDate checkOut;
+
+    @Column(name = "reserved_at", nullable = false)
+    private Instant reservedAt;
+
+}
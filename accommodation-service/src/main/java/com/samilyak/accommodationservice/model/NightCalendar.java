@@ -0,0 +1,204 @@
+package com.samilyak.accommodationservice.model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Календарь ночей: один бит на ночь, 1 — ночь занята.
+ * Range operations work on whole 64-bit words, so a week-long check touches one or two longs.
+ * Instances are immutable — every mutation returns a copy, which keeps Hibernate dirty checking honest.
+ */
+public final class NightCalendar {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final char LOCKED = '1';
+    private static final char FREE = '0';
+
+    private final int nights;
+    private final long[] words;
+
+    private NightCalendar(int nights, long[] words) {
+        this.nights = nights;
+        this.words = words;
+    }
+
+    public static NightCalendar free(int nights) {
+        if (nights < 0) {
+            throw new IllegalArgumentException("Nights count cannot be negative: " + nights);
+        }
+        return new NightCalendar(nights, new long[wordCount(nights)]);
+    }
+
+    /**
+     * Parses the textual form Postgres uses for {@code bit varying}: position i is night i.
+     */
+    public static NightCalendar fromBitString(String bits) {
+        long[] words = new long[wordCount(bits.length())];
+        for (int i = 0; i < bits.length(); i++) {
+            char c = bits.charAt(i);
+            if (c == LOCKED) {
+                words[i >>> ADDRESS_BITS_PER_WORD] |= 1L << i;
+            } else if (c != FREE) {
+                throw new IllegalArgumentException("Unexpected character in night calendar: " + c);
+            }
+        }
+        return new NightCalendar(bits.length(), words);
+    }
+
+    public String toBitString() {
+        StringBuilder sb = new StringBuilder(nights);
+        for (int i = 0; i < nights; i++) {
+            sb.append(isLocked(i) ? LOCKED : FREE);
+        }
+        return sb.toString();
+    }
+
+    public int nights() {
+        return nights;
+    }
+
+    public boolean isLocked(int night) {
+        return (words[night >>> ADDRESS_BITS_PER_WORD] & (1L << night)) != 0;
+    }
+
+    /**
+     * @return true if every night in [from, to) is inside the calendar and not locked
+     */
+    public boolean isFree(int from, int to) {
+        if (from < 0 || to > nights || from >= to) {
+            return false;
+        }
+        int first = from >>> ADDRESS_BITS_PER_WORD;
+        int last = (to - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (first == last) {
+            return (words[first] & firstMask & lastMask) == 0;
+        }
+        if ((words[first] & firstMask) != 0) {
+            return false;
+        }
+        for (int i = first + 1; i < last; i++) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return (words[last] & lastMask) == 0;
+    }
+
+    public NightCalendar lock(int from, int to) {
+        return withRange(from, to, true);
+    }
+
+    public NightCalendar unlock(int from, int to) {
+        return withRange(from, to, false);
+    }
+
+    public IntStream lockedNights() {
+        return IntStream.range(0, nights).filter(this::isLocked);
+    }
+
+    /**
+     * @return index of the last locked night, or -1 if nothing is locked
+     */
+    public int lastLockedNight() {
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (words[i] != 0) {
+                return (i << ADDRESS_BITS_PER_WORD) + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[i]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a calendar of {@code length} nights whose night i is this calendar's night {@code from + i}.
+     * Nights past the end of this calendar come out free. Copies whole words, no per-night loop.
+     */
+    public NightCalendar slice(int from, int length) {
+        if (from < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid slice: from=" + from + ", length=" + length);
+        }
+        long[] out = new long[wordCount(length)];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = wordAt(from + (i << ADDRESS_BITS_PER_WORD));
+        }
+        if (out.length > 0) {
+            out[out.length - 1] &= -1L >>> -length;
+        }
+        return new NightCalendar(length, out);
+    }
+
+    /**
+     * 64 nights starting at {@code bitIndex}; bits beyond the calendar are zero.
+     */
+    private long wordAt(int bitIndex) {
+        int index = bitIndex >>> ADDRESS_BITS_PER_WORD;
+        int shift = bitIndex & (Long.SIZE - 1);
+        long low = index < words.length ? words[index] >>> shift : 0L;
+        if (shift == 0) {
+            return low;
+        }
+        long high = index + 1 < words.length ? words[index + 1] << (Long.SIZE - shift) : 0L;
+        return low | high;
+    }
+
+    private NightCalendar withRange(int from, int to, boolean locked) {
+        if (from < 0 || to > nights || from > to) {
+            throw new IndexOutOfBoundsException(
+                    "Range [" + from + ", " + to + ") is outside calendar of " + nights + " nights");
+        }
+        long[] copy = words.clone();
+        if (from == to) {
+            return new NightCalendar(nights, copy);
+        }
+        int first = from >>> ADDRESS_BITS_PER_WORD;
+        int last = (to - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (first == last) {
+            apply(copy, first, firstMask & lastMask, locked);
+        } else {
+            apply(copy, first, firstMask, locked);
+            for (int i = first + 1; i < last; i++) {
+                copy[i] = locked ? -1L : 0L;
+            }
+            apply(copy, last, lastMask, locked);
+        }
+        return new NightCalendar(nights, copy);
+    }
+
+    private static void apply(long[] words, int index, long mask, boolean locked) {
+        if (locked) {
+            words[index] |= mask;
+        } else {
+            words[index] &= ~mask;
+        }
+    }
+
+    private static int wordCount(int nights) {
+        return (nights + Long.SIZE - 1) >>> ADDRESS_BITS_PER_WORD;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NightCalendar other)) {
+            return false;
+        }
+        return nights == other.nights && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * nights + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return "NightCalendar{nights=" + nights + ", locked=" + lockedNights().count() + "}";
+    }
+}
@@ -0,0 +1,18 @@
+package com.samilyak.accommodationservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class NightCalendarConverter implements AttributeConverter<NightCalendar, String> {
+
+    @Override
+    public String convertToDatabaseColumn(NightCalendar calendar) {
+        return calendar == null ? null : calendar.toBitString();
+    }
+
+    @Override
+    public NightCalendar convertToEntityAttribute(String bits) {
+        return bits == null ? null : NightCalendar.fromBitString(bits);
+    }
+}
@@ -1,11 +1,74 @@
 package com.samilyak.accommodationservice.repository;
 
 import com.samilyak.accommodationservice.model.Accommodation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface AccommodationRepository extends JpaRepository<Accommodation, Long> {
 
-    List<Accommodation> findByAddressIdIn(List<Long> addressIds);
+    List<Accommodation> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    @Query("SELECT am FROM Accommodation a JOIN a.amenities am WHERE a.id = :id")
+    List<String> findAmenitiesById(@Param("id") Long id);
+
+    @Query("""
+            SELECT a FROM Accommodation a
+            JOIN AddressProjection p ON p.addressId = a.addressId
+            WHERE p.city = :city AND a.id > :afterId
+            ORDER BY a.id
+            """)
+    List<Accommodation> findByCityAfter(@Param("city") String city, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("""
+            SELECT a FROM Accommodation a
+            JOIN AddressProjection p ON p.addressId = a.addressId
+            WHERE p.country = :country AND a.id > :afterId
+            ORDER BY a.id
+            """)
+    List<Accommodation> findByCountryAfter(@Param("country") String country, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Free listings of a city for [checkIn, checkIn + nights), evaluated in one pass over the calendars:
+     * a listing matches when the nights fit in its horizon and the bit slice for them has no 1s.
+     * {@code type} and {@code maxRate} are optional filters.
+     */
+    @Query(value = "SELECT a.* FROM accommodations a "
+            + "JOIN address_projections p ON p.address_id = a.address_id "
+            + "JOIN availability_calendars c ON c.accommodation_id = a.id "
+            + "WHERE p.city = :city "
+            + "AND a.id > :afterId "
+            + "AND (CAST(:type AS varchar) IS NULL OR a.type = CAST(:type AS varchar)) "
+            + "AND (CAST(:maxRate AS numeric) IS NULL OR a.daily_rate <= CAST(:maxRate AS numeric)) "
+            + "AND CAST(:checkIn AS date) >= c.start_date "
+            + "AND CAST(:checkIn AS date) - c.start_date + :nights <= length(c.locked_nights) "
+            + "AND position(B'1' IN substring(c.locked_nights "
+            + "    FROM CAST(:checkIn AS date) - c.start_date + 1 FOR :nights)) = 0 "
+            + "ORDER BY a.id "
+            + "LIMIT :limit",
+            nativeQuery = true)
+    List<Accommodation> findAvailableInCity(
+            @Param("city") String city,
+            @Param("checkIn") LocalDate checkIn,
+            @Param("nights") int nights,
+            @Param("type") String type,
+            @Param("maxRate") BigDecimal maxRate,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit
+    );
+
+    @Query("SELECT a.id FROM Accommodation a WHERE a.addressId = :addressId")
+    List<Long> findIdsByAddressId(@Param("addressId") Long addressId);
+
+    @Query("""
+            SELECT DISTINCT a.addressId FROM Accommodation a
+            WHERE NOT EXISTS (SELECT 1 FROM AddressProjection p WHERE p.addressId = a.addressId)
+            """)
+    List<Long> findAddressIdsWithoutProjection();
 
 }
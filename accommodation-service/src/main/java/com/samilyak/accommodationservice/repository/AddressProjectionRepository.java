@@ -0,0 +1,7 @@
+package com.samilyak.accommodationservice.repository;
+
+import com.samilyak.accommodationservice.model.AddressProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AddressProjectionRepository extends JpaRepository<AddressProjection, Long> {
+}
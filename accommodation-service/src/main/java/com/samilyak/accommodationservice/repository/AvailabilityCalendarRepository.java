@@ -0,0 +1,63 @@
+package com.samilyak.accommodationservice.repository;
+
+import com.samilyak.accommodationservice.model.AvailabilityCalendar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+
+public interface AvailabilityCalendarRepository extends JpaRepository<AvailabilityCalendar, Long> {
+
+    @Lock(PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AvailabilityCalendar c WHERE c.accommodationId = :accommodationId")
+    Optional<AvailabilityCalendar> findByIdForUpdate(@Param("accommodationId") Long accommodationId);
+
+    /**
+     * Check-and-lock in one statement: sets the bits of [checkIn, checkIn + nights)
+     * only if the whole range is inside the calendar and none of its nights is locked.
+     *
+     * @return 1 if the nights were locked, 0 if any of them is taken or out of range
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE availability_calendars c "
+            + "SET locked_nights = overlay(c.locked_nights "
+            + "    PLACING CAST(repeat('1', :nights) AS bit varying) "
+            + "    FROM CAST(:checkIn AS date) - c.start_date + 1) "
+            + "WHERE c.accommodation_id = :accommodationId "
+            + "AND CAST(:checkIn AS date) >= c.start_date "
+            + "AND CAST(:checkIn AS date) - c.start_date + :nights <= length(c.locked_nights) "
+            + "AND position(B'1' IN substring(c.locked_nights "
+            + "    FROM CAST(:checkIn AS date) - c.start_date + 1 FOR :nights)) = 0",
+            nativeQuery = true)
+    int lockRangeIfFree(
+            @Param("accommodationId") Long accommodationId,
+            @Param("checkIn") LocalDate checkIn,
+            @Param("nights") int nights
+    );
+
+    /**
+     * Nightly roll for every listing in one statement: drops nights before {@code today},
+     * keeps the locked future nights in place and pads the tail with free nights
+     * up to the listing's availability horizon.
+     */
+    @Modifying
+    @Query(value = "UPDATE availability_calendars c "
+            + "SET locked_nights = substring(c.locked_nights "
+            + "        FROM CAST(:today AS date) - c.start_date + 1 FOR a.availability) "
+            + "    || CAST(repeat('0', a.availability - GREATEST(LEAST("
+            + "        length(c.locked_nights) - (CAST(:today AS date) - c.start_date), a.availability), 0)) "
+            + "        AS bit varying), "
+            + "    start_date = CAST(:today AS date) "
+            + "FROM accommodations a "
+            + "WHERE a.id = c.accommodation_id "
+            + "AND c.start_date < CAST(:today AS date)",
+            nativeQuery = true)
+    int rollHorizon(@Param("today") LocalDate today);
+
+}
@@ -0,0 +1,32 @@
+package com.samilyak.accommodationservice.repository;
+
+import com.samilyak.accommodationservice.model.BookingReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public interface BookingReservationRepository extends JpaRepository<BookingReservation, Long> {
+
+    /**
+     * Records the booking as the holder of its nights. A concurrent delivery of the same booking
+     * waits on the primary key until this transaction ends, then sees the row.
+     *
+     * @return 1 if the booking was recorded now, 0 if it already holds its nights
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO booking_reservations (booking_id, accommodation_id, check_in, check_out, reserved_at)
+            VALUES (:bookingId, :accommodationId, :checkIn, :checkOut, :now)
+            ON CONFLICT (booking_id) DO NOTHING
+            """, nativeQuery = true)
+    int claim(@Param("bookingId") Long bookingId,
+              @Param("accommodationId") Long accommodationId,
+              @Param("checkIn") LocalDate checkIn,
+              @Param("checkOut") LocalDate checkOut,
+              @Param("now") Instant now);
+
+}
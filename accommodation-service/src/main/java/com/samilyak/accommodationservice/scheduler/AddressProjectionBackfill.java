@@ -0,0 +1,51 @@
+package com.samilyak.accommodationservice.scheduler;
+
+import com.samilyak.accommodationservice.client.AddressBatchLoader;
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import com.samilyak.accommodationservice.service.AddressProjectionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listings created before the projection existed have no local address yet — pulls them through
+ * the batch endpoint in the background after startup. If address-service is down the pass is
+ * retried later, so an outage delays the backfill, not the startup. The remote calls run outside
+ * any transaction. Upserts are idempotent, so another replica running the same pass is harmless.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AddressProjectionBackfill {
+
+    private final AddressProjectionService projectionService;
+    private final AddressBatchLoader addressBatchLoader;
+
+    private volatile boolean completed;
+
+    @Scheduled(initialDelayString = "${application.address.backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${application.address.backfill.retry-delay-ms:60000}")
+    public void backfillMissing() {
+        if (completed) {
+            return;
+        }
+        try {
+            List<Long> missing = projectionService.findMissingAddressIds();
+            if (!missing.isEmpty()) {
+                log.info("📥 Заполняем локальные адреса: {} отсутствуют", missing.size());
+                Map<Long, AddressResponseDto> loaded =
+                        addressBatchLoader.loadByIds(missing, "backfillAddressProjection");
+                projectionService.upsertAll(loaded.values());
+                // Адреса, которых нет и в address-service, повторным запросом не появятся
+                log.info("✅ Локальные адреса заполнены: {} из {}", loaded.size(), missing.size());
+            }
+            completed = true;
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Не удалось заполнить локальные адреса, повторим позже: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.samilyak.accommodationservice.scheduler;
+
+import com.samilyak.accommodationservice.service.AccommodationAvailabilityService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AvailabilityHorizonScheduler {
+
+    private final AccommodationAvailabilityService availabilityService;
+
+    // Один UPDATE на все объекты; повторный запуск на другой реплике ничего не меняет
+    @Scheduled(cron = "${application.availability.horizon-roll-cron:0 5 0 * * *}")
+    public void rollHorizonForward() {
+        LocalDate today = LocalDate.now();
+        int rolled = availabilityService.rollHorizons(today);
+        log.info("🗓 Горизонт доступности сдвинут на {} для {} объектов", today, rolled);
+    }
+}
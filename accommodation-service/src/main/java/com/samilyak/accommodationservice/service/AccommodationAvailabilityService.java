@@ -1,7 +1,11 @@
 package com.samilyak.accommodationservice.service;
 
 import java.time.LocalDate;
+import java.util.List;
 
+/**
+ * Night availability of accommodations. All ranges are half-open: checkOut night is not included.
+ */
 public interface AccommodationAvailabilityService {
 
     void initializeAvailabilitySlots(Long accommodationId, Integer availability);
@@ -9,5 +13,8 @@ public interface AccommodationAvailabilityService {
     boolean areDatesAvailable(Long accommodationId, LocalDate checkIn, LocalDate checkOut);
     void lockDates(Long accommodationId, LocalDate checkIn, LocalDate checkOut);
     void unlockDates(Long accommodationId, LocalDate checkIn, LocalDate checkOut);
+    List<LocalDate> getLockedDates(Long accommodationId);
+    void deleteCalendar(Long accommodationId);
+    int rollHorizons(LocalDate today);
 
-}
\ No newline at end of file
+}
@@ -1,14 +1,17 @@
 package com.samilyak.accommodationservice.service;
 
-import com.samilyak.accommodationservice.model.AvailabilitySlot;
-import com.samilyak.accommodationservice.repository.AvailabilitySlotRepository;
+import com.samilyak.accommodationservice.exception.DatesNotAvailableException;
+import com.samilyak.accommodationservice.model.AvailabilityCalendar;
+import com.samilyak.accommodationservice.model.NightCalendar;
+import com.samilyak.accommodationservice.repository.AvailabilityCalendarRepository;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
@@ -16,36 +19,46 @@ import java.util.List;
 @Slf4j
 public class AccommodationAvailabilityServiceImpl implements AccommodationAvailabilityService {
 
-    private final AvailabilitySlotRepository slotRepository;
+    private final AvailabilityCalendarRepository calendarRepository;
 
     @Transactional
     @Override
     public void initializeAvailabilitySlots(Long accommodationId, Integer availability) {
-        log.info("Initializing {} availability slots for accommodation {}", availability, accommodationId);
-        slotRepository.deleteByAccommodationId(accommodationId);
-
-        slotRepository.flush();
-
-        LocalDate start = LocalDate.now();
-        List<AvailabilitySlot> slots = new ArrayList<>();
-        for (int i = 0; i < availability; i++) {
-            slots.add(AvailabilitySlot.builder()
-                    .accommodationId(accommodationId)
-                    .date(start.plusDays(i))
-                    .locked(false)
-                    .build());
-        }
-        slotRepository.saveAll(slots);
+        log.info("Initializing {} night calendar for accommodation {}", availability, accommodationId);
+        calendarRepository.save(AvailabilityCalendar.builder()
+                .accommodationId(accommodationId)
+                .startDate(LocalDate.now())
+                .lockedNights(NightCalendar.free(availability))
+                .build());
     }
 
+    /**
+     * Resizes the horizon in place: locked nights survive, only free tail nights are added or cut.
+     */
     @Transactional
     @Override
     public void updateAvailabilitySlots(Long accommodationId, Integer newAvailability) {
-        log.info("Updating availability slots for accommodation {}", accommodationId);
-        initializeAvailabilitySlots(accommodationId, newAvailability);
+        log.info("Updating night calendar horizon for accommodation {} to {} nights", accommodationId, newAvailability);
+
+        AvailabilityCalendar calendar = calendarRepository.findByIdForUpdate(accommodationId).orElse(null);
+        if (calendar == null) {
+            initializeAvailabilitySlots(accommodationId, newAvailability);
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate horizonEnd = today.plusDays(newAvailability);
+        calendar.lastLockedDate()
+                .filter(last -> !last.isBefore(horizonEnd))
+                .ifPresent(last -> {
+                    throw new DatesNotAvailableException(
+                            "Нельзя сократить доступность: ночь " + last + " уже забронирована");
+                });
+
+        calendar.rollTo(today, newAvailability);
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public boolean areDatesAvailable(Long accommodationId, LocalDate checkIn, LocalDate checkOut) {
         log.info("📅 Проверка доступности жилья {} с {} по {}", accommodationId, checkIn, checkOut);
@@ -55,16 +68,13 @@ public class AccommodationAvailabilityServiceImpl implements AccommodationAvaila
             return false;
         }
 
-        List<AvailabilitySlot> slots =
-                slotRepository.findByAccommodationIdAndDateBetween(accommodationId, checkIn, checkOut);
-
-        if (slots.isEmpty()) {
-            log.warn("⚠️ Нет слотов для жилья {} с {} по {} — пропускаем создание (слоты инициализируются отдельно)",
-                    accommodationId, checkIn, checkOut);
-            return false; // если нет — значит, даты нельзя забронировать
+        AvailabilityCalendar calendar = calendarRepository.findById(accommodationId).orElse(null);
+        if (calendar == null) {
+            log.warn("⚠️ Нет календаря для жилья {} — даты нельзя забронировать", accommodationId);
+            return false;
         }
 
-        boolean available = slots.stream().noneMatch(AvailabilitySlot::isLocked);
+        boolean available = calendar.isFree(checkIn, checkOut);
 
         if (available) {
             log.info("✅ Жильё {} свободно для {} - {}", accommodationId, checkIn, checkOut);
@@ -78,20 +88,51 @@ public class AccommodationAvailabilityServiceImpl implements AccommodationAvaila
     @Transactional
     @Override
     public void lockDates(Long accommodationId, LocalDate checkIn, LocalDate checkOut) {
-        List<AvailabilitySlot> slots =
-                slotRepository.findByAccommodationIdAndDateBetween(accommodationId, checkIn, checkOut);
-        slots.forEach(slot -> slot.setLocked(true));
-        slotRepository.saveAll(slots);
+        if (!checkIn.isBefore(checkOut)) {
+            throw new DatesNotAvailableException("Некорректный диапазон дат: " + checkIn + " - " + checkOut);
+        }
+        int nights = Math.toIntExact(ChronoUnit.DAYS.between(checkIn, checkOut));
+
+        if (calendarRepository.lockRangeIfFree(accommodationId, checkIn, nights) == 0) {
+            log.warn("❌ Жильё {} занято для {} - {}", accommodationId, checkIn, checkOut);
+            throw new DatesNotAvailableException("Даты уже заняты");
+        }
         log.info("Locked dates for accommodation {}: {} - {}", accommodationId, checkIn, checkOut);
     }
 
     @Transactional
     @Override
     public void unlockDates(Long accommodationId, LocalDate checkIn, LocalDate checkOut) {
-        List<AvailabilitySlot> slots =
-                slotRepository.findByAccommodationIdAndDateBetween(accommodationId, checkIn, checkOut);
-        slots.forEach(slot -> slot.setLocked(false));
-        slotRepository.saveAll(slots);
+        AvailabilityCalendar calendar = getCalendarForUpdate(accommodationId);
+        calendar.unlock(checkIn, checkOut);
         log.info("Unlocked dates for accommodation {}: {} - {}", accommodationId, checkIn, checkOut);
     }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<LocalDate> getLockedDates(Long accommodationId) {
+        return calendarRepository.findById(accommodationId)
+                .map(AvailabilityCalendar::lockedDates)
+                .orElse(List.of());
+    }
+
+    @Transactional
+    @Override
+    public void deleteCalendar(Long accommodationId) {
+        if (calendarRepository.existsById(accommodationId)) {
+            calendarRepository.deleteById(accommodationId);
+        }
+    }
+
+    @Transactional
+    @Override
+    public int rollHorizons(LocalDate today) {
+        return calendarRepository.rollHorizon(today);
+    }
+
+    private AvailabilityCalendar getCalendarForUpdate(Long accommodationId) {
+        return calendarRepository.findByIdForUpdate(accommodationId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Availability calendar not found for accommodation: " + accommodationId));
+    }
 }
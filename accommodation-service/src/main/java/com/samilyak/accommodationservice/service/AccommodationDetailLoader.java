@@ -0,0 +1,169 @@
+package com.samilyak.accommodationservice.service;
+
+import com.samilyak.accommodationservice.client.AddressDetailClient;
+import com.samilyak.accommodationservice.dto.AccommodationDetailDto;
+import com.samilyak.accommodationservice.dto.AccommodationDto;
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import com.samilyak.accommodationservice.model.Accommodation;
+import com.samilyak.accommodationservice.repository.AccommodationRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Loads the listing detail page: after the accommodation row, the address, the amenities
+ * and the availability calendar are fetched in parallel, so the read takes as long as the slowest of them.
+ * Only the row is mandatory — a branch that fails or runs past its timeout is left empty
+ * and reported in {@link AccommodationDetailDto#degraded()}.
+ * <p>
+ * Every branch has its own bulkhead: when {@code max-concurrency} loads of that branch are already
+ * running, the next one is degraded at once instead of queueing. A timed-out branch is interrupted,
+ * and the address call additionally has a Feign read timeout below the branch timeout, so abandoned
+ * calls do not keep holding their permit and connection.
+ */
+@Slf4j
+@Component
+public class AccommodationDetailLoader {
+
+    private final AccommodationRepository accommodationRepository;
+    private final AddressProjectionService addressProjectionService;
+    private final AddressDetailClient addressClient;
+    private final AccommodationAvailabilityService availabilityService;
+    private final Duration addressTimeout;
+    private final Duration amenitiesTimeout;
+    private final Duration calendarTimeout;
+    private final SimpleAsyncTaskExecutor executor;
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+    private final int maxConcurrency;
+
+    public AccommodationDetailLoader(
+            AccommodationRepository accommodationRepository,
+            AddressProjectionService addressProjectionService,
+            AddressDetailClient addressClient,
+            AccommodationAvailabilityService availabilityService,
+            @Value("${application.detail.timeouts.address:300ms}") Duration addressTimeout,
+            @Value("${application.detail.timeouts.amenities:500ms}") Duration amenitiesTimeout,
+            @Value("${application.detail.timeouts.calendar:500ms}") Duration calendarTimeout,
+            @Value("${application.detail.max-concurrency:64}") int maxConcurrency
+    ) {
+        this.accommodationRepository = accommodationRepository;
+        this.addressProjectionService = addressProjectionService;
+        this.addressClient = addressClient;
+        this.availabilityService = availabilityService;
+        this.addressTimeout = addressTimeout;
+        this.amenitiesTimeout = amenitiesTimeout;
+        this.calendarTimeout = calendarTimeout;
+        // Каждая ветка держит соединение из пула — ограничиваем, сколько их идёт одновременно
+        this.maxConcurrency = maxConcurrency;
+
+        this.executor = new SimpleAsyncTaskExecutor("accommodation-detail-");
+        this.executor.setVirtualThreads(true);
+        this.executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+    }
+
+    public AccommodationDetailDto load(Long id) {
+        // Строка по первичному ключу нужна всем: без неё нет ни карточки, ни addressId
+        Accommodation row = accommodationRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Accommodation not found with id: " + id));
+
+        Set<String> degraded = ConcurrentHashMap.newKeySet();
+        Long addressId = row.getAddressId();
+        // Без адреса ветке нечего загружать — это не деградация
+        CompletableFuture<AddressResponseDto> address = addressId == null
+                ? CompletableFuture.completedFuture(null)
+                : branch("address", addressTimeout, degraded, () -> loadAddress(addressId));
+        CompletableFuture<List<String>> amenities = branch("amenities", amenitiesTimeout, degraded,
+                () -> accommodationRepository.findAmenitiesById(id));
+        CompletableFuture<List<LocalDate>> lockedDates = branch("calendar", calendarTimeout, degraded,
+                () -> availabilityService.getLockedDates(id));
+        CompletableFuture.allOf(address, amenities, lockedDates).join();
+
+        AccommodationDto dto = new AccommodationDto(
+                row.getId(),
+                row.getType().name(),
+                row.getSize(),
+                address.join(),
+                amenities.join(),
+                row.getDailyRate(),
+                row.getAvailability(),
+                row.getVersion()
+        );
+        return new AccommodationDetailDto(dto, lockedDates.join(), degraded.stream().sorted().toList());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.close();
+    }
+
+    /**
+     * The local projection answers almost always; address-service is asked only for addresses it has not seen yet.
+     */
+    private AddressResponseDto loadAddress(Long addressId) {
+        AddressResponseDto local = addressProjectionService.getAddresses(List.of(addressId)).get(addressId);
+        return local != null ? local : addressClient.getAddressById(addressId);
+    }
+
+    /**
+     * Never completes exceptionally: a rejection, a failure or a timeout turns into null and marks
+     * the branch as degraded. The permit is held until the loader actually returns.
+     */
+    private <T> CompletableFuture<T> branch(String branch, Duration timeout, Set<String> degraded,
+                                            Supplier<T> loader) {
+        Semaphore bulkhead = bulkheads.computeIfAbsent(branch, b -> new Semaphore(maxConcurrency));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!bulkhead.tryAcquire()) {
+            result.completeExceptionally(new RejectedExecutionException("bulkhead full"));
+        } else {
+            // Поток на задачу: прерывание уже завершённой ветки никого не задевает
+            AtomicReference<Thread> worker = new AtomicReference<>();
+            executor.execute(() -> {
+                worker.set(Thread.currentThread());
+                try {
+                    result.complete(loader.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+            result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((value, e) -> {
+                        Thread thread = worker.get();
+                        if (e instanceof TimeoutException && thread != null) {
+                            thread.interrupt();
+                        }
+                    });
+        }
+        return result
+                .exceptionally(e -> {
+                    degraded.add(branch);
+                    log.warn("⚠️ Детальная карточка: ветка {} не загрузилась: {}", branch, rootCause(e));
+                    return null;
+                });
+    }
+
+    private static String rootCause(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause.toString();
+    }
+}
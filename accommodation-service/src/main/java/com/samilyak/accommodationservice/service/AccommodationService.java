@@ -1,9 +1,13 @@
 package com.samilyak.accommodationservice.service;
 
+import com.samilyak.accommodationservice.dto.AccommodationDetailDto;
 import com.samilyak.accommodationservice.dto.AccommodationDto;
+import com.samilyak.accommodationservice.dto.AccommodationPageDto;
 import com.samilyak.accommodationservice.dto.AccommodationRequestDto;
 import com.samilyak.accommodationservice.dto.AccommodationUpdateDto;
+import com.samilyak.accommodationservice.model.Accommodation;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -13,17 +17,23 @@ public interface AccommodationService {
 
     AccommodationDto update(Long id, AccommodationUpdateDto updateDto);
 
-    List<AccommodationDto> getAll();
+    AccommodationPageDto getAll(Long after, int size);
 
-    List<AccommodationDto> getAccommodationsByCity(String city);
+    AccommodationPageDto getAccommodationsByCity(String city, Long after, int size);
 
-    List<AccommodationDto> getAccommodationsByCountry(String country);
+    AccommodationPageDto getAccommodationsByCountry(String country, Long after, int size);
+
+    AccommodationPageDto searchAvailable(String city, LocalDate checkIn, LocalDate checkOut,
+                                         Accommodation.Type type, BigDecimal maxRate, Long after, int size);
 
     AccommodationDto getById(Long id);
 
+    AccommodationDetailDto getDetail(Long id);
+
     void deleteById(Long id);
 
-    void attemptReservation(Long accommodationId, LocalDate checkIn, LocalDate checkOut, Long expectedVersion);
+    void attemptReservation(Long bookingId, Long accommodationId, LocalDate checkIn, LocalDate checkOut,
+                            Long expectedVersion, BigDecimal quotedTotalPrice);
 
     List<LocalDate> getLockedDates(Long accommodationId);
 
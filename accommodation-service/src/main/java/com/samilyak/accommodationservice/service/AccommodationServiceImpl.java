@@ -1,25 +1,36 @@
 package com.samilyak.accommodationservice.service;
 
+import com.samilyak.accommodationservice.client.AddressBatchLoader;
 import com.samilyak.accommodationservice.client.AddressClient;
+import com.samilyak.accommodationservice.dto.AccommodationDetailDto;
 import com.samilyak.accommodationservice.dto.AccommodationDto;
+import com.samilyak.accommodationservice.dto.AccommodationPageDto;
 import com.samilyak.accommodationservice.dto.AccommodationRequestDto;
 import com.samilyak.accommodationservice.dto.AccommodationUpdateDto;
 import com.samilyak.accommodationservice.dto.AddressResponseDto;
-import com.samilyak.accommodationservice.exception.DatesNotAvailableException;
 import com.samilyak.accommodationservice.exception.OptimisticLockingFailureException;
 import com.samilyak.accommodationservice.mapper.AccommodationMapper;
 import com.samilyak.accommodationservice.model.Accommodation;
-import com.samilyak.accommodationservice.model.AvailabilitySlot;
 import com.samilyak.accommodationservice.repository.AccommodationRepository;
-import com.samilyak.accommodationservice.repository.AvailabilitySlotRepository;
+import com.samilyak.accommodationservice.repository.BookingReservationRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.samilyak.accommodationservice.config.cache.CacheConfig.ACCOMMODATIONS_CACHE;
 
 @Slf4j
 @Service
@@ -27,10 +38,15 @@ import java.util.List;
 public class AccommodationServiceImpl implements AccommodationService {
 
     private final AccommodationRepository accommodationRepository;
+    private final BookingReservationRepository bookingReservationRepository;
     private final AccommodationMapper accommodationMapper;
     private final AddressClient addressClient;
+    private final AddressBatchLoader addressBatchLoader;
     private final AccommodationAvailabilityService availabilityService;
-    private final AvailabilitySlotRepository slotRepository;
+    private final AddressProjectionService addressProjectionService;
+    private final AccommodationDetailLoader detailLoader;
+
+    private static final int MAX_PAGE_SIZE = 500;
 
     @Transactional
     @Override
@@ -41,6 +57,7 @@ public class AccommodationServiceImpl implements AccommodationService {
         Accommodation accommodation = accommodationMapper.toModel(requestDto);
         accommodation.setAddressId(savedAddress.id());
         accommodation.setVersion(0L);
+        addressProjectionService.upsert(savedAddress);
 
         Accommodation savedAccommodation = accommodationRepository.save(accommodation);
 
@@ -53,6 +70,7 @@ public class AccommodationServiceImpl implements AccommodationService {
 
     @Transactional
     @Override
+    @CacheEvict(value = ACCOMMODATIONS_CACHE, key = "#id")
     public AccommodationDto update(Long id, AccommodationUpdateDto updateDto) {
         log.info("✏️ Обновление жилья ID={} данными {}", id, updateDto);
         Accommodation accommodation = getAccommodationOrThrow(id);
@@ -76,55 +94,69 @@ public class AccommodationServiceImpl implements AccommodationService {
 
     @Transactional(readOnly = true)
     @Override
-//    @Cacheable(value = "accommodations_list", key = "#pageable")
-    public List<AccommodationDto> getAll() {
-        log.info("📋 Получение всех доступных вариантов жилья");
-        return accommodationRepository.findAll()
-                .stream()
-                .map(this::mapToDto)
-                .toList();
+    public AccommodationPageDto getAll(Long after, int size) {
+        log.info("📋 Получение страницы жилья после id={}, size={}", after, size);
+        int limit = normalizePageSize(size);
+        List<Accommodation> accommodations = accommodationRepository.findByIdGreaterThanOrderByIdAsc(
+                cursor(after), Limit.of(limit + 1));
+
+        List<Accommodation> content = accommodations.subList(0, Math.min(limit, accommodations.size()));
+        Map<Long, AddressResponseDto> addresses = addressBatchLoader.loadByIds(
+                content.stream().map(Accommodation::getAddressId).toList(), "getAll");
+
+        return toPage(accommodations, limit, addresses);
     }
 
     @Transactional(readOnly = true)
     @Override
-//    @Cacheable(value = "accommodations", key = "#city")
-    public List<AccommodationDto> getAccommodationsByCity(String city) {
-        log.info("📌 Получаем адреса для города: {}", city);
-        List<AddressResponseDto> addresses = addressClient.getAddressesByCity(city);
-
-        List<Long> addressIds = addresses.stream()
-                .map(AddressResponseDto::id)
-                .toList();
-
-        log.info("📌 Найденные ID адресов по городу: {}", addressIds);
+    public AccommodationPageDto getAccommodationsByCity(String city, Long after, int size) {
+        log.info("📌 Поиск жилья в городе {} после id={}", city, after);
+        int limit = normalizePageSize(size);
+        List<Accommodation> accommodations = accommodationRepository.findByCityAfter(
+                city, cursor(after), Limit.of(limit + 1));
+        addressBatchLoader.recordCalls("getAccommodationsByCity", 0);
+
+        // Поиск целиком по локальной проекции адресов — в address-service не ходим
+        return toPage(accommodations, limit, localAddresses(accommodations));
+    }
 
-        return accommodationRepository.findByAddressIdIn(addressIds)
-                .stream()
-                .map(this::mapToDto)
-                .toList();
+    @Transactional(readOnly = true)
+    @Override
+    public AccommodationPageDto getAccommodationsByCountry(String country, Long after, int size) {
+        log.info("📌 Поиск жилья в стране {} после id={}", country, after);
+        int limit = normalizePageSize(size);
+        List<Accommodation> accommodations = accommodationRepository.findByCountryAfter(
+                country, cursor(after), Limit.of(limit + 1));
+        addressBatchLoader.recordCalls("getAccommodationsByCountry", 0);
+
+        return toPage(accommodations, limit, localAddresses(accommodations));
     }
 
+    /**
+     * Availability is checked inside the query, so only free listings leave the database
+     * and the client no longer asks for locked dates listing by listing.
+     */
     @Transactional(readOnly = true)
     @Override
-//    @Cacheable(value = "accommodations", key = "#country")
-    public List<AccommodationDto> getAccommodationsByCountry(String country) {
-        log.info("📌 Получаем адреса для страны: {}", country);
-        List<AddressResponseDto> addresses = addressClient.getAddressesByCountry(country);
+    public AccommodationPageDto searchAvailable(String city, LocalDate checkIn, LocalDate checkOut,
+                                                Accommodation.Type type, BigDecimal maxRate, Long after, int size) {
+        log.info("🔎 Поиск свободного жилья в {} с {} по {}, type={}, maxRate={}",
+                city, checkIn, checkOut, type, maxRate);
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Дата выезда должна быть позже даты заезда");
+        }
 
-        List<Long> addressIds = addresses.stream()
-                .map(AddressResponseDto::id)
-                .toList();
+        int limit = normalizePageSize(size);
+        int nights = (int) ChronoUnit.DAYS.between(checkIn, checkOut);
+        List<Accommodation> accommodations = accommodationRepository.findAvailableInCity(
+                city, checkIn, nights, type != null ? type.name() : null, maxRate, cursor(after), limit + 1);
 
-        log.info("📌 Найдено {} адресов в стране {}", addressIds.size(), country);
-        return accommodationRepository.findByAddressIdIn(addressIds)
-                .stream()
-                .map(this::mapToDto)
-                .toList();
+        return toPage(accommodations, limit, localAddresses(accommodations));
     }
 
     @Transactional(readOnly = true)
     @Override
-//    @Cacheable(value = "accommodations", key = "#id")
+    @Cacheable(value = ACCOMMODATIONS_CACHE, key = "#id")
     public AccommodationDto getById(Long id) {
         log.info("🔍 Получение жилья по ID={}", id);
         Accommodation accommodation = getAccommodationOrThrow(id);
@@ -132,7 +164,19 @@ public class AccommodationServiceImpl implements AccommodationService {
         return mapToDto(accommodation);
     }
 
+    /**
+     * Not cached and not transactional: the branches run on their own threads, each in its own short read,
+     * and the locked dates have to be fresh.
+     */
+    @Override
+    public AccommodationDetailDto getDetail(Long id) {
+        log.info("🔍 Детальная карточка жилья ID={}", id);
+        return detailLoader.load(id);
+    }
+
+    @Transactional
     @Override
+    @CacheEvict(value = ACCOMMODATIONS_CACHE, key = "#id")
     public void deleteById(Long id) {
         log.info("🗑 Удаление жилья ID={}", id);
 
@@ -140,47 +184,92 @@ public class AccommodationServiceImpl implements AccommodationService {
             throw new EntityNotFoundException("Accommodation not found with id: " + id);
         }
         accommodationRepository.deleteById(id);
+        availabilityService.deleteCalendar(id);
         log.info("✅ Жильё ID={} успешно удалено", id);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<LocalDate> getLockedDates(Long accommodationId) {
-        return slotRepository.findByAccommodationIdAndLockedTrue(accommodationId)
-                .stream()
-                .map(AvailabilitySlot::getDate)
-                .toList();
+        return availabilityService.getLockedDates(accommodationId);
     }
 
+    /**
+     * Conflicts are detected per night range: two bookings of the same listing only clash
+     * if their nights overlap. The listing version is merely a hint — when it is stale
+     * we re-check the quoted price instead of rejecting the booking outright.
+     * A booking that already holds its nights (a redelivered event) succeeds without touching the calendar.
+     */
     @Transactional
     @Override
-    public void attemptReservation(Long accommodationId, LocalDate checkIn, LocalDate checkOut, Long expectedVersion) {
+    public void attemptReservation(Long bookingId, Long accommodationId, LocalDate checkIn, LocalDate checkOut,
+                                   Long expectedVersion, BigDecimal quotedTotalPrice) {
         log.info("🔒 SAGA: Попытка бронирования жилья {} с {} по {}", accommodationId, checkIn, checkOut);
 
+        // 0. Повторная доставка: ночи уже держит эта же бронь. Если дальше что-то упадёт, запись откатится
+        if (bookingReservationRepository.claim(bookingId, accommodationId, checkIn, checkOut, Instant.now()) == 0) {
+            log.info("ℹ️ Бронь {} уже держит жильё {} — повторная доставка", bookingId, accommodationId);
+            return;
+        }
+
         Accommodation accommodation = getAccommodationOrThrow(accommodationId);
 
-        // 1. Проверка версионности (чтобы никто не перехватил перед носом)
+        // 1. Жильё редактировали после расчёта цены — проверяем, что цена всё ещё та же
         if (!accommodation.getVersion().equals(expectedVersion)) {
-            throw new OptimisticLockingFailureException("Версия жилья устарела. Ожидалась: " + expectedVersion);
-        }
-
-        // 2. Проверка доступности
-        if (!availabilityService.areDatesAvailable(accommodationId, checkIn, checkOut)) {
-            throw new DatesNotAvailableException("Даты уже заняты");
+            long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+            BigDecimal currentPrice = accommodation.getDailyRate().multiply(BigDecimal.valueOf(nights));
+            if (quotedTotalPrice == null || currentPrice.compareTo(quotedTotalPrice) != 0) {
+                throw new OptimisticLockingFailureException(
+                        "Цена жилья изменилась. Ожидалась: " + quotedTotalPrice + ", текущая: " + currentPrice);
+            }
+            log.info("ℹ️ Версия жилья {} изменилась ({} -> {}), но цена прежняя — продолжаем",
+                    accommodationId, expectedVersion, accommodation.getVersion());
         }
 
-        // 3. Блокировка
+        // 2. Проверка и блокировка одним UPDATE: занятые ночи просто не дадут обновить строку
         availabilityService.lockDates(accommodationId, checkIn, checkOut);
 
-        // 4. Обновление версии
-        accommodation.setVersion(accommodation.getVersion() + 1);
-        accommodationRepository.save(accommodation);
-
         log.info("✅ Успешная блокировка SAGA для жилья {}", accommodationId);
     }
 
+    private Map<Long, AddressResponseDto> localAddresses(List<Accommodation> accommodations) {
+        return addressProjectionService.getAddresses(accommodations.stream()
+                .map(Accommodation::getAddressId)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Rows are fetched with limit + 1: the extra row only tells us whether there is a next page.
+     */
+    private AccommodationPageDto toPage(List<Accommodation> accommodations, int limit,
+                                        Map<Long, AddressResponseDto> addresses) {
+        boolean hasNext = accommodations.size() > limit;
+        List<Accommodation> content = hasNext ? accommodations.subList(0, limit) : accommodations;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).getId() : null;
+        return new AccommodationPageDto(mapToDtos(content, addresses), nextCursor);
+    }
+
+    private static long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    private static int normalizePageSize(int size) {
+        return Math.clamp(size, 1, MAX_PAGE_SIZE);
+    }
+
     private AccommodationDto mapToDto(Accommodation accommodation) {
         AddressResponseDto address = addressClient.getAddressById(accommodation.getAddressId());
+        return mapToDto(accommodation, address);
+    }
+
+    private List<AccommodationDto> mapToDtos(List<Accommodation> accommodations,
+                                             Map<Long, AddressResponseDto> addresses) {
+        return accommodations.stream()
+                .map(accommodation -> mapToDto(accommodation, addresses.get(accommodation.getAddressId())))
+                .toList();
+    }
+
+    private AccommodationDto mapToDto(Accommodation accommodation, AddressResponseDto address) {
         return new AccommodationDto(
                 accommodation.getId(),
                 accommodation.getType().name(),
@@ -0,0 +1,22 @@
+package com.samilyak.accommodationservice.service;
+
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface AddressProjectionService {
+
+    void upsert(AddressResponseDto address);
+
+    Map<Long, AddressResponseDto> getAddresses(Collection<Long> addressIds);
+
+    void upsertAll(Collection<AddressResponseDto> addresses);
+
+    /**
+     * Address ids of listings that have no local address yet.
+     */
+    List<Long> findMissingAddressIds();
+
+}
@@ -0,0 +1,83 @@
+package com.samilyak.accommodationservice.service;
+
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import com.samilyak.accommodationservice.model.AddressProjection;
+import com.samilyak.accommodationservice.repository.AccommodationRepository;
+import com.samilyak.accommodationservice.repository.AddressProjectionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.samilyak.accommodationservice.config.cache.CacheConfig.ACCOMMODATIONS_CACHE;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AddressProjectionServiceImpl implements AddressProjectionService {
+
+    private final AddressProjectionRepository projectionRepository;
+    private final AccommodationRepository accommodationRepository;
+    private final CacheManager cacheManager;
+
+    @Transactional
+    @Override
+    public void upsert(AddressResponseDto address) {
+        Optional<AddressProjection> existing = projectionRepository.findById(address.id());
+        AddressProjection projection = existing
+                .orElseGet(() -> AddressProjection.builder().addressId(address.id()).build());
+        projection.setCountry(address.country());
+        projection.setCity(address.city());
+        projection.setStreet(address.street());
+        projection.setAddressLine(address.addressLine());
+        projection.setZipCode(address.zipCode());
+        projectionRepository.save(projection);
+
+        // Адрес вшит в закешированные AccommodationDto — сбрасываем их
+        if (existing.isPresent()) {
+            Cache cache = cacheManager.getCache(ACCOMMODATIONS_CACHE);
+            accommodationRepository.findIdsByAddressId(address.id()).forEach(cache::evict);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Map<Long, AddressResponseDto> getAddresses(Collection<Long> addressIds) {
+        return projectionRepository.findAllById(addressIds)
+                .stream()
+                .map(AddressProjectionServiceImpl::toDto)
+                .collect(Collectors.toMap(AddressResponseDto::id, Function.identity()));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Long> findMissingAddressIds() {
+        return accommodationRepository.findAddressIdsWithoutProjection();
+    }
+
+    @Transactional
+    @Override
+    public void upsertAll(Collection<AddressResponseDto> addresses) {
+        addresses.forEach(this::upsert);
+    }
+
+    private static AddressResponseDto toDto(AddressProjection projection) {
+        return new AddressResponseDto(
+                projection.getAddressId(),
+                projection.getCountry(),
+                projection.getCity(),
+                projection.getStreet(),
+                projection.getAddressLine(),
+                projection.getZipCode()
+        );
+    }
+}
@@ -0,0 +1,140 @@
+package com.samilyak.accommodationservice.messaging.kafka;
+
+import com.samilyak.accommodationservice.client.AddressBatchLoader;
+import com.samilyak.accommodationservice.client.AddressClient;
+import com.samilyak.accommodationservice.exception.DatesNotAvailableException;
+import com.samilyak.accommodationservice.mapper.AccommodationMapper;
+import com.samilyak.accommodationservice.model.Accommodation;
+import com.samilyak.accommodationservice.repository.AccommodationRepository;
+import com.samilyak.accommodationservice.repository.BookingReservationRepository;
+import com.samilyak.accommodationservice.service.AccommodationAvailabilityService;
+import com.samilyak.accommodationservice.service.AccommodationDetailLoader;
+import com.samilyak.accommodationservice.service.AccommodationServiceImpl;
+import com.samilyak.accommodationservice.service.AddressProjectionService;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.KeyOrderedExecutor;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The batch listener is redelivered whole when any send fails, so the same BookingCreated
+ * reaches the service again after its nights were locked.
+ */
+@ExtendWith(MockitoExtension.class)
+class BookingCreationConsumerTest {
+
+    private static final Long BOOKING_ID = 42L;
+    private static final Long ACCOMMODATION_ID = 7L;
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(10);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(3);
+
+    @Mock
+    private AccommodationRepository accommodationRepository;
+
+    @Mock
+    private BookingReservationRepository bookingReservationRepository;
+
+    @Mock
+    private AccommodationAvailabilityService availabilityService;
+
+    @Mock
+    private AccommodationMessageProducer messageProducer;
+
+    private final KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor("test-booking-created", 4);
+
+    private BookingCreationConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        AccommodationServiceImpl accommodationService = new AccommodationServiceImpl(
+                accommodationRepository, bookingReservationRepository, mock(AccommodationMapper.class),
+                mock(AddressClient.class), mock(AddressBatchLoader.class), availabilityService,
+                mock(AddressProjectionService.class), mock(AccommodationDetailLoader.class));
+        consumer = new BookingCreationConsumer(accommodationService, messageProducer,
+                new DeadLetters(mock(DeadLetterPublishingRecoverer.class)), keyOrderedExecutor);
+
+        Accommodation accommodation = new Accommodation();
+        accommodation.setId(ACCOMMODATION_ID);
+        accommodation.setVersion(3L);
+        accommodation.setDailyRate(BigDecimal.TEN);
+        when(accommodationRepository.findById(ACCOMMODATION_ID)).thenReturn(Optional.of(accommodation));
+
+        givenDatabase();
+    }
+
+    @AfterEach
+    void tearDown() {
+        keyOrderedExecutor.close();
+    }
+
+    @Test
+    void redeliveredBatchReportsReservedNotFailed() {
+        ConsumerRecord<String, BookingCreatedEvent> record = record(0);
+
+        consumer.onBookingCreated(List.of(record));
+        consumer.onBookingCreated(List.of(record));
+
+        verify(availabilityService, times(1)).lockDates(ACCOMMODATION_ID, CHECK_IN, CHECK_OUT);
+        verify(messageProducer, times(2)).sendInventoryReserved(any(InventoryReservedEvent.class));
+        verify(messageProducer, never()).sendInventoryFailed(any(InventoryReservationFailedEvent.class));
+    }
+
+    @Test
+    void duplicateInsideOneBatchIsReservedOnce() {
+        consumer.onBookingCreated(List.of(record(0), record(1)));
+
+        verify(availabilityService, times(1)).lockDates(ACCOMMODATION_ID, CHECK_IN, CHECK_OUT);
+        verify(messageProducer, times(2)).sendInventoryReserved(any(InventoryReservedEvent.class));
+        verify(messageProducer, never()).sendInventoryFailed(any(InventoryReservationFailedEvent.class));
+    }
+
+    /**
+     * Calendar and reservation rows as Postgres would keep them: a second lock of the same nights
+     * is refused, a second claim by the same booking finds its row.
+     */
+    private void givenDatabase() {
+        Set<Long> claimed = new HashSet<>();
+        when(bookingReservationRepository.claim(anyLong(), anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> claimed.add(invocation.getArgument(0)) ? 1 : 0);
+
+        boolean[] locked = {false};
+        doAnswer(invocation -> {
+            if (locked[0]) {
+                throw new DatesNotAvailableException("Даты уже заняты");
+            }
+            locked[0] = true;
+            return null;
+        }).when(availabilityService).lockDates(ACCOMMODATION_ID, CHECK_IN, CHECK_OUT);
+    }
+
+    private static ConsumerRecord<String, BookingCreatedEvent> record(long offset) {
+        BookingCreatedEvent event = new BookingCreatedEvent(BOOKING_ID, 1L, ACCOMMODATION_ID,
+                CHECK_IN, CHECK_OUT, new BigDecimal("30"), "+375290000000", 3L);
+        return new ConsumerRecord<>("booking-created", 0, offset, String.valueOf(BOOKING_ID), event);
+    }
+}
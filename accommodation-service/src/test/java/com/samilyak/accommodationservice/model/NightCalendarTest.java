@@ -0,0 +1,109 @@
+package com.samilyak.accommodationservice.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NightCalendarTest {
+
+    private static final int HORIZON = 365;
+
+    @ParameterizedTest(name = "[{0}, {1})")
+    @CsvSource({
+            // Одна ночь: в начале, на краях слова и в конце горизонта
+            "0, 1", "63, 64", "64, 65", "127, 128", "364, 365",
+            // Ровно слово и диапазоны через границу слов
+            "0, 64", "64, 128", "63, 65", "60, 70", "62, 130", "0, 365", "300, 365"
+    })
+    void lockSetsExactlyTheRange(int from, int to) {
+        NightCalendar calendar = NightCalendar.free(HORIZON).lock(from, to);
+
+        assertThat(calendar.lockedNights().toArray())
+                .containsExactly(IntStream.range(from, to).toArray());
+        assertThat(calendar.isFree(from, to)).isFalse();
+        assertThat(calendar.unlock(from, to)).isEqualTo(NightCalendar.free(HORIZON));
+    }
+
+    @ParameterizedTest(name = "night {0} blocks [{1}, {2})")
+    @CsvSource({
+            "63, 60, 70", "64, 60, 70", "64, 64, 65", "127, 0, 128", "128, 100, 200", "364, 300, 365"
+    })
+    void lockedNightInsideRangeMakesItBusy(int night, int from, int to) {
+        NightCalendar calendar = NightCalendar.free(HORIZON).lock(night, night + 1);
+
+        assertThat(calendar.isFree(from, to)).isFalse();
+    }
+
+    @ParameterizedTest(name = "night {0} leaves [{1}, {2}) free")
+    @CsvSource({
+            "63, 64, 70", "64, 60, 64", "0, 1, 365", "128, 129, 200", "364, 0, 364", "127, 64, 127"
+    })
+    void lockedNightOutsideRangeLeavesItFree(int night, int from, int to) {
+        NightCalendar calendar = NightCalendar.free(HORIZON).lock(night, night + 1);
+
+        assertThat(calendar.isFree(from, to)).isTrue();
+    }
+
+    @Test
+    void rangesOutsideHorizonOrEmptyAreNeverFree() {
+        NightCalendar calendar = NightCalendar.free(HORIZON);
+
+        assertThat(calendar.isFree(364, 365)).isTrue();
+        assertThat(calendar.isFree(364, 366)).isFalse();
+        assertThat(calendar.isFree(-1, 1)).isFalse();
+        assertThat(calendar.isFree(5, 5)).isFalse();
+    }
+
+    @Test
+    void lockPastHorizonIsRejected() {
+        NightCalendar calendar = NightCalendar.free(HORIZON);
+
+        assertThatThrownBy(() -> calendar.lock(360, 366)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void lockDoesNotChangeOriginal() {
+        NightCalendar calendar = NightCalendar.free(HORIZON);
+
+        calendar.lock(0, 10);
+
+        assertThat(calendar.lockedNights()).isEmpty();
+    }
+
+    @Test
+    void lastLockedNightFindsHighestBitAcrossWords() {
+        assertThat(NightCalendar.free(HORIZON).lastLockedNight()).isEqualTo(-1);
+        assertThat(NightCalendar.free(HORIZON).lock(63, 64).lastLockedNight()).isEqualTo(63);
+        assertThat(NightCalendar.free(HORIZON).lock(10, 20).lock(64, 65).lastLockedNight()).isEqualTo(64);
+        assertThat(NightCalendar.free(HORIZON).lock(364, 365).lastLockedNight()).isEqualTo(364);
+    }
+
+    @Test
+    void sliceShiftsAcrossWordBoundaryAndPadsWithFreeNights() {
+        NightCalendar calendar = NightCalendar.free(HORIZON).lock(62, 66).lock(364, 365);
+
+        NightCalendar slice = calendar.slice(60, 10);
+        assertThat(slice.nights()).isEqualTo(10);
+        assertThat(slice.lockedNights().toArray()).containsExactly(2, 3, 4, 5);
+
+        NightCalendar tail = calendar.slice(300, 128);
+        assertThat(tail.lockedNights().toArray()).containsExactly(64);
+    }
+
+    @Test
+    void bitStringRoundTripKeepsNightsAcrossWords() {
+        NightCalendar calendar = NightCalendar.free(130).lock(0, 1).lock(63, 65).lock(129, 130);
+
+        String bits = calendar.toBitString();
+
+        assertThat(bits).hasSize(130);
+        assertThat(bits.charAt(63)).isEqualTo('1');
+        assertThat(bits.charAt(65)).isEqualTo('0');
+        assertThat(NightCalendar.fromBitString(bits)).isEqualTo(calendar);
+    }
+}
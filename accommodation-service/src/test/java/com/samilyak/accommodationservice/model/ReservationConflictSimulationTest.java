@@ -0,0 +1,144 @@
+package com.samilyak.accommodationservice.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * False-conflict rate of a burst of concurrent bookings on one listing, before and after
+ * reservation conflicts were scoped to the night range.
+ * <p>
+ * Every booking of a burst runs on its own thread and reads the listing before any of them commits.
+ * Before, a commit also had to find the version it read, so the first commit failed all the others.
+ * After, a booking fails only if one of its nights was locked by an earlier commit — the same check
+ * the conditional calendar UPDATE makes, here run against {@link NightCalendar}. The commit is
+ * synchronised on the listing, as row locks serialise the UPDATEs.
+ * <p>
+ * Reproduce the table: {@code mvn -pl accommodation-service test -Dtest=ReservationConflictSimulationTest}
+ */
+@Slf4j
+class ReservationConflictSimulationTest {
+
+    private static final int HORIZON = 365;
+    private static final int MAX_STAY = 7;
+    private static final int TRIALS = 500;
+    private static final int[] BURST_SIZES = {2, 5, 10, 20, 50};
+
+    @Test
+    void rangeScopedConflictsRejectOnlyRealOverlaps() throws InterruptedException {
+        Random random = new Random(42);
+        log.info("  N   rejected before  rejected after  false conflicts removed");
+
+        for (int n : BURST_SIZES) {
+            long rejectedBefore = 0;
+            long rejectedAfter = 0;
+            for (int trial = 0; trial < TRIALS; trial++) {
+                List<int[]> burst = burst(random, n);
+
+                rejectedBefore += runBurst(burst, true).rejected().size();
+
+                Outcome after = runBurst(burst, false);
+                assertThat(after.accepted()).as("accepted stays never share a night").allSatisfy(stay ->
+                        assertThat(after.accepted()).noneMatch(other -> other != stay && overlaps(stay, other)));
+                assertThat(after.rejected()).as("every rejection is a real overlap").allSatisfy(stay ->
+                        assertThat(after.accepted()).anyMatch(other -> overlaps(stay, other)));
+                rejectedAfter += after.rejected().size();
+            }
+            double before = 100.0 * rejectedBefore / ((long) n * TRIALS);
+            double after = 100.0 * rejectedAfter / ((long) n * TRIALS);
+            log.info(String.format("%3d%17.1f%%%15.1f%%%24.1f%%", n, before, after, before - after));
+
+            // Версия отклоняет всех, кроме первого коммита, даже без общих ночей
+            assertThat(rejectedBefore).isEqualTo((long) (n - 1) * TRIALS);
+            assertThat(rejectedAfter).isLessThan(rejectedBefore);
+        }
+    }
+
+    /**
+     * Starts every booking of the burst at once; each reads the listing, then commits.
+     */
+    private static Outcome runBurst(List<int[]> burst, boolean versionChecked) throws InterruptedException {
+        Listing listing = new Listing();
+        CountDownLatch allRead = new CountDownLatch(burst.size());
+        Outcome outcome = new Outcome(Collections.synchronizedList(new ArrayList<>()),
+                Collections.synchronizedList(new ArrayList<>()));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int[] stay : burst) {
+                executor.submit(() -> {
+                    long readVersion = listing.version();
+                    allRead.countDown();
+                    allRead.await();
+                    boolean committed = versionChecked
+                            ? listing.reserveIfUnchanged(stay, readVersion)
+                            : listing.reserveIfFree(stay);
+                    (committed ? outcome.accepted() : outcome.rejected()).add(stay);
+                    return null;
+                });
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * n random stays of 1..MAX_STAY nights inside the horizon.
+     */
+    private static List<int[]> burst(Random random, int n) {
+        List<int[]> stays = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int nights = 1 + random.nextInt(MAX_STAY);
+            int from = random.nextInt(HORIZON - nights + 1);
+            stays.add(new int[]{from, from + nights});
+        }
+        return stays;
+    }
+
+    private static boolean overlaps(int[] a, int[] b) {
+        return a[0] < b[1] && b[0] < a[1];
+    }
+
+    private record Outcome(List<int[]> accepted, List<int[]> rejected) {
+    }
+
+    /**
+     * One listing row: its version and night calendar, updated under the row lock.
+     */
+    private static final class Listing {
+
+        private long version;
+        private NightCalendar calendar = NightCalendar.free(HORIZON);
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized boolean reserveIfUnchanged(int[] stay, long readVersion) {
+            if (version != readVersion || !calendar.isFree(stay[0], stay[1])) {
+                return false;
+            }
+            return lock(stay);
+        }
+
+        synchronized boolean reserveIfFree(int[] stay) {
+            if (!calendar.isFree(stay[0], stay[1])) {
+                return false;
+            }
+            return lock(stay);
+        }
+
+        private boolean lock(int[] stay) {
+            calendar = calendar.lock(stay[0], stay[1]);
+            version++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.samilyak.accommodationservice.service;
+
+import com.samilyak.accommodationservice.client.AddressDetailClient;
+import com.samilyak.accommodationservice.dto.AccommodationDetailDto;
+import com.samilyak.accommodationservice.dto.AddressResponseDto;
+import com.samilyak.accommodationservice.model.Accommodation;
+import com.samilyak.accommodationservice.repository.AccommodationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccommodationDetailLoaderTest {
+
+    private static final Long ID = 7L;
+    private static final Long ADDRESS_ID = 11L;
+    private static final Duration BRANCH_TIMEOUT = Duration.ofMillis(200);
+    private static final Duration LONG_TIMEOUT = Duration.ofSeconds(10);
+    private static final long AWAIT_MS = 2000;
+
+    @Mock
+    private AccommodationRepository accommodationRepository;
+
+    @Mock
+    private AddressProjectionService addressProjectionService;
+
+    @Mock
+    private AddressDetailClient addressClient;
+
+    @Mock
+    private AccommodationAvailabilityService availabilityService;
+
+    private AccommodationDetailLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        Accommodation row = new Accommodation();
+        row.setId(ID);
+        row.setType(Accommodation.Type.HOUSE);
+        row.setSize("2 rooms");
+        row.setDailyRate(BigDecimal.TEN);
+        row.setAvailability(365);
+        row.setAddressId(ADDRESS_ID);
+        row.setVersion(1L);
+        when(accommodationRepository.findById(ID)).thenReturn(Optional.of(row));
+        when(addressProjectionService.getAddresses(List.of(ADDRESS_ID))).thenReturn(Map.of(ADDRESS_ID,
+                new AddressResponseDto(ADDRESS_ID, "Belarus", "Minsk", "Nezavisimosti", "4", 220030)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    void allBranchesLoadedIsNotDegraded() {
+        loader = loader(BRANCH_TIMEOUT);
+        when(accommodationRepository.findAmenitiesById(ID)).thenReturn(List.of("wifi"));
+        when(availabilityService.getLockedDates(ID)).thenReturn(List.of(LocalDate.of(2030, 5, 1)));
+
+        AccommodationDetailDto detail = loader.load(ID);
+
+        assertThat(detail.degraded()).isEmpty();
+        assertThat(detail.accommodation().location().city()).isEqualTo("Minsk");
+        assertThat(detail.accommodation().amenities()).containsExactly("wifi");
+        assertThat(detail.lockedDates()).containsExactly(LocalDate.of(2030, 5, 1));
+    }
+
+    @Test
+    void branchPastItsTimeoutIsDegradedInterruptedAndReleasesPermit() throws InterruptedException {
+        loader = loader(BRANCH_TIMEOUT);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(accommodationRepository.findAmenitiesById(ID)).thenReturn(List.of("wifi"));
+        when(availabilityService.getLockedDates(ID)).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(LONG_TIMEOUT);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return List.of();
+        });
+
+        long started = System.nanoTime();
+        AccommodationDetailDto detail = loader.load(ID);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(detail.degraded()).containsExactly("calendar");
+        assertThat(detail.lockedDates()).isNull();
+        assertThat(detail.accommodation().amenities()).containsExactly("wifi");
+        assertThat(detail.accommodation().location()).isNotNull();
+        assertThat(elapsedMs).isLessThan(LONG_TIMEOUT.toMillis());
+        assertThat(interrupted.await(AWAIT_MS, TimeUnit.MILLISECONDS)).as("timed-out branch is interrupted").isTrue();
+        awaitPermitReturned("calendar");
+    }
+
+    @Test
+    void fullBulkheadDegradesBranchAtOnce() throws Exception {
+        loader = loader(LONG_TIMEOUT);
+        CountDownLatch calendarEntered = new CountDownLatch(1);
+        CountDownLatch calendarRelease = new CountDownLatch(1);
+        when(accommodationRepository.findAmenitiesById(ID)).thenReturn(List.of("wifi"));
+        when(availabilityService.getLockedDates(ID)).thenAnswer(invocation -> {
+            calendarEntered.countDown();
+            calendarRelease.await();
+            return List.of(LocalDate.of(2030, 5, 1));
+        });
+
+        CompletableFuture<AccommodationDetailDto> holder = CompletableFuture.supplyAsync(() -> loader.load(ID));
+        assertThat(calendarEntered.await(AWAIT_MS, TimeUnit.MILLISECONDS)).isTrue();
+
+        // Единственный permit ветки занят — вторая загрузка не ждёт его
+        AccommodationDetailDto rejected = loader.load(ID);
+        assertThat(rejected.degraded()).containsExactly("calendar");
+        assertThat(rejected.lockedDates()).isNull();
+        assertThat(rejected.accommodation().amenities()).containsExactly("wifi");
+        verify(availabilityService, times(1)).getLockedDates(ID);
+
+        calendarRelease.countDown();
+        AccommodationDetailDto held = holder.get(AWAIT_MS, TimeUnit.MILLISECONDS);
+        assertThat(held.degraded()).isEmpty();
+        assertThat(held.lockedDates()).containsExactly(LocalDate.of(2030, 5, 1));
+        awaitPermitReturned("calendar");
+    }
+
+    @Test
+    void failingBranchIsDegradedNotAnError() throws InterruptedException {
+        loader = loader(BRANCH_TIMEOUT);
+        when(accommodationRepository.findAmenitiesById(ID)).thenThrow(new IllegalStateException("pool exhausted"));
+        when(availabilityService.getLockedDates(ID)).thenReturn(List.of());
+
+        AccommodationDetailDto detail = loader.load(ID);
+
+        assertThat(detail.degraded()).containsExactly("amenities");
+        assertThat(detail.accommodation().amenities()).isNull();
+        assertThat(detail.lockedDates()).isEmpty();
+        awaitPermitReturned("amenities");
+    }
+
+    /**
+     * One permit per branch, so a single held load fills the bulkhead.
+     */
+    private AccommodationDetailLoader loader(Duration timeout) {
+        return new AccommodationDetailLoader(accommodationRepository, addressProjectionService, addressClient,
+                availabilityService, timeout, timeout, timeout, 1);
+    }
+
+    /**
+     * The worker releases its permit in {@code finally}, after the response may already be assembled.
+     */
+    @SuppressWarnings("unchecked")
+    private void awaitPermitReturned(String branch) throws InterruptedException {
+        Semaphore bulkhead = ((Map<String, Semaphore>) ReflectionTestUtils.getField(loader, "bulkheads")).get(branch);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_MS);
+        while (bulkhead.availablePermits() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkhead.availablePermits()).as("permit of %s returned", branch).isEqualTo(1);
+    }
+}
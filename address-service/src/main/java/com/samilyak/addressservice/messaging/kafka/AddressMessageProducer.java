@@ -0,0 +1,38 @@
+package com.samilyak.addressservice.messaging.kafka;
+
+import com.samilyak.addressservice.dto.event.AddressChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AddressMessageProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${application.kafka.topics.address-changed}")
+    private String addressChangedTopic;
+
+    // Только после коммита: откаченное изменение не должно попасть в проекции
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void sendAddressChanged(AddressChangedEvent event) {
+        log.info("📤 Sending AddressChangedEvent for addressId={}", event.addressId());
+
+        Message<AddressChangedEvent> message = MessageBuilder
+                .withPayload(event)
+                .setHeader(KafkaHeaders.TOPIC, addressChangedTopic)
+                .setHeader(KafkaHeaders.KEY, String.valueOf(event.addressId()))
+                .build();
+
+        kafkaTemplate.send(message);
+    }
+}
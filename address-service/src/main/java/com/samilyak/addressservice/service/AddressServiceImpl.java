@@ -2,12 +2,14 @@ package com.samilyak.addressservice.service;
 
 import com.samilyak.addressservice.dto.AddressRequestDto;
 import com.samilyak.addressservice.dto.AddressResponseDto;
+import com.samilyak.addressservice.dto.event.AddressChangedEvent;
 import com.samilyak.addressservice.mapper.AddressMapper;
 import com.samilyak.addressservice.model.Address;
 import com.samilyak.addressservice.repository.AddressRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -18,8 +20,10 @@ import java.util.Optional;
 public class AddressServiceImpl implements AddressService {
     private final AddressRepository addressRepository;
     private final AddressMapper addressMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
+    @Transactional
     public AddressResponseDto createAddress(AddressRequestDto requestDto) {
         Optional<Address> existingAddress = addressRepository.findByStreetAndAddressLineAndCityAndCountry(
                 requestDto.street(),
@@ -28,15 +32,14 @@ public class AddressServiceImpl implements AddressService {
                 requestDto.country()
         );
 
-        Address address;
         if (existingAddress.isPresent()) {
-            address = existingAddress.get();
-        } else {
-            address = addressMapper.toEntity(requestDto);
-            address = addressRepository.save(address);
+            return addressMapper.toDto(existingAddress.get());
         }
 
-        return addressMapper.toDto(address);
+        Address address = addressRepository.save(addressMapper.toEntity(requestDto));
+        AddressResponseDto created = addressMapper.toDto(address);
+        publishAddressChanged(created);
+        return created;
     }
 
     @Override
@@ -66,7 +69,9 @@ public class AddressServiceImpl implements AddressService {
         address.setAddressLine(requestDto.addressLine());
         address.setZipCode(requestDto.zipCode());
 
-        return addressMapper.toDto(address);
+        AddressResponseDto updated = addressMapper.toDto(address);
+        publishAddressChanged(updated);
+        return updated;
     }
 
     @Override
@@ -92,4 +97,19 @@ public class AddressServiceImpl implements AddressService {
                 .map(addressMapper::toDto)
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Sent to Kafka only after commit ({@link com.samilyak.addressservice.messaging.kafka.AddressMessageProducer}),
+     * so a rolled back change never reaches the projections.
+     */
+    private void publishAddressChanged(AddressResponseDto address) {
+        eventPublisher.publishEvent(new AddressChangedEvent(
+                address.id(),
+                address.country(),
+                address.city(),
+                address.street(),
+                address.addressLine(),
+                address.zipCode()
+        ));
+    }
+}
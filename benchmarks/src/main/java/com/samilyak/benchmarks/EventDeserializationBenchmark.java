@@ -0,0 +1,105 @@
+package com.samilyak.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.samilyak.events.kafka.EventDeserializer;
+import com.samilyak.events.kafka.EventSerializer;
+import com.samilyak.events.kafka.JsonEventDeserializer;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one consumed record per saga event type:
+ * <ul>
+ *     <li>{@code stringThenTree} — the old path: StringDeserializer, then ObjectMapper into a tree and into the record;</li>
+ *     <li>{@code typedJson} — {@link JsonEventDeserializer} straight from the bytes;</li>
+ *     <li>{@code avro} — {@link EventDeserializer} on the Avro single-object encoding the saga topics now carry.</li>
+ * </ul>
+ * Allocation per operation: run with {@code -prof gc} and read {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventDeserializationBenchmark {
+
+    private static final String TOPIC = "benchmark.v1";
+
+    @Param({"BookingCreatedEvent", "InventoryReservedEvent", "PaymentSuccessEvent"})
+    public String eventType;
+
+    private ObjectMapper objectMapper;
+    private StringDeserializer stringDeserializer;
+    private Class<?> type;
+    private byte[] json;
+    private byte[] avro;
+    private JsonEventDeserializer<?> typedJsonDeserializer;
+    private EventDeserializer<?> avroDeserializer;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        stringDeserializer = new StringDeserializer();
+
+        Object event = sample(eventType);
+        type = event.getClass();
+        json = objectMapper.writeValueAsBytes(event);
+        avro = new EventSerializer().serialize(TOPIC, event);
+        typedJsonDeserializer = new JsonEventDeserializer<>(objectMapper, type);
+        avroDeserializer = new EventDeserializer<>(type.asSubclass(Record.class));
+    }
+
+    @Benchmark
+    public Object stringThenTree() throws Exception {
+        String message = stringDeserializer.deserialize(TOPIC, json);
+        JsonNode tree = objectMapper.readTree(message);
+        return objectMapper.treeToValue(tree, type);
+    }
+
+    @Benchmark
+    public Object typedJson() {
+        return typedJsonDeserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public Object avro() {
+        return avroDeserializer.deserialize(TOPIC, avro);
+    }
+
+    private static Object sample(String eventType) {
+        return switch (eventType) {
+            case "BookingCreatedEvent" -> new BookingCreatedEvent(
+                    1_000_042L, 7_001L, 3_120L,
+                    LocalDate.of(2026, 7, 14), LocalDate.of(2026, 7, 21),
+                    new BigDecimal("1260.00"), "+79991234567", 12L);
+            case "InventoryReservedEvent" -> new InventoryReservedEvent(
+                    1_000_042L, 7_001L, new BigDecimal("1260.00"), "+79991234567");
+            case "PaymentSuccessEvent" -> new PaymentSuccessEvent(
+                    1_000_042L, 7_001L, "cs_test_a1b2c3d4e5f6g7h8i9j0", "user@example.com");
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package com.samilyak.bookingservice.config.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Booking reads served from Redis.
+ * A single booking is written through after every committed change ({@link BookingCacheListener}),
+ * and a reader that missed fills the slot the same way. Both writes compare the entity
+ * {@code @Version} in Redis and never replace a newer entry, so neither after-commit callbacks
+ * running out of order nor a reader holding a stale row can put an older status back.
+ * A user's list caches just the booking ids — saga transitions never change it — and every id
+ * is resolved through the booking cache, so list entries carry the same fresh status.
+ */
+@Slf4j
+@Component
+public class BookingCache {
+
+    /**
+     * SET only if the cached entry is missing, has no version or has an older one; the value is the
+     * same JSON the cache serializer writes, so reads through {@link Cache} see no difference
+     */
+    private static final RedisScript<Long> PUT_IF_NEWER = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+              local version = cjson.decode(current).version
+              if type(version) == 'number' and version >= tonumber(ARGV[2]) then
+                return 0
+              end
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final Cache bookings;
+    private final Cache userBookings;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String bookingKeyPrefix = CacheKeyPrefix.simple().compute(CacheConfig.BOOKING_CACHE);
+    private final Duration bookingTtl;
+
+    public BookingCache(CacheManager cacheManager, StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                        @Value("${application.cache.ttl.booking:30m}") Duration bookingTtl) {
+        this.bookings = Objects.requireNonNull(cacheManager.getCache(CacheConfig.BOOKING_CACHE));
+        this.userBookings = Objects.requireNonNull(cacheManager.getCache(CacheConfig.USER_BOOKINGS_CACHE));
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.bookingTtl = bookingTtl;
+    }
+
+    public BookingResponseDto getBooking(Long id, Supplier<BookingResponseDto> loader) {
+        BookingResponseDto cached = read(id);
+        if (cached != null) {
+            return cached;
+        }
+        BookingResponseDto loaded = loader.get();
+        fill(loaded);
+        return loaded;
+    }
+
+    /**
+     * @param loadAll   all bookings of the user, used when the id list is not cached
+     * @param loadByIds bookings whose entries are missing from the booking cache
+     */
+    @SuppressWarnings("unchecked")
+    public List<BookingResponseDto> getUserBookings(Long userId,
+                                                    Supplier<List<BookingResponseDto>> loadAll,
+                                                    Function<List<Long>, List<BookingResponseDto>> loadByIds) {
+        List<Long> ids = safely(() -> userBookings.get(userId, List.class));
+        if (ids == null) {
+            List<BookingResponseDto> loaded = loadAll.get();
+            loaded.forEach(this::fill);
+            safely(() -> userBookings.putIfAbsent(userId, loaded.stream().map(BookingResponseDto::id).toList()));
+            return loaded;
+        }
+
+        Map<Long, BookingResponseDto> byId = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            BookingResponseDto cached = read(id);
+            byId.put(id, cached);
+            if (cached == null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            loadByIds.apply(missing).forEach(dto -> {
+                fill(dto);
+                byId.put(dto.id(), dto);
+            });
+        }
+        // Удалённые брони просто выпадают из списка
+        return byId.values().stream().filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Called after commit with the state that was committed.
+     */
+    void writeThrough(BookingResponseDto booking) {
+        putIfNewer(booking);
+    }
+
+    void evict(Long bookingId, Long userId) {
+        safely(() -> {
+            if (bookingId != null) {
+                bookings.evict(bookingId);
+            }
+            if (userId != null) {
+                userBookings.evict(userId);
+            }
+            return null;
+        });
+    }
+
+    void evictUserBookings(Long userId) {
+        evict(null, userId);
+    }
+
+    private BookingResponseDto read(Long id) {
+        return safely(() -> bookings.get(id, BookingResponseDto.class));
+    }
+
+    private void fill(BookingResponseDto booking) {
+        putIfNewer(booking);
+    }
+
+    private void putIfNewer(BookingResponseDto booking) {
+        if (booking.version() == null) {
+            // Без версии сравнивать не с чем — занимаем только пустой слот
+            safely(() -> bookings.putIfAbsent(booking.id(), booking));
+            return;
+        }
+        safely(() -> {
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(booking);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize booking " + booking.id(), e);
+            }
+            return redisTemplate.execute(PUT_IF_NEWER, List.of(bookingKeyPrefix + booking.id()),
+                    json, booking.version().toString(), String.valueOf(bookingTtl.toMillis()));
+        });
+    }
+
+    /**
+     * Redis is an accelerator here: when it is down, reads go to the database.
+     */
+    private <T> T safely(Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Кеш броней недоступен: {}", e.getMessage());
+            return null;
+        }
+    }
+}
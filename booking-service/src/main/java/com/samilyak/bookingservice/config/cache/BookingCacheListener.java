@@ -0,0 +1,61 @@
+package com.samilyak.bookingservice.config.cache;
+
+import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
+import com.samilyak.bookingservice.mapper.BookingMapper;
+import com.samilyak.bookingservice.model.Booking;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA listener on {@link Booking}: whoever changes a booking — the API, a saga reply, the reaper —
+ * the cache follows once the change is committed. The state is captured at flush time together
+ * with its {@code @Version}; {@link BookingCache} keeps the highest version whatever order
+ * the after-commit writes arrive in.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingCacheListener {
+
+    private final BookingCache bookingCache;
+    private final BookingMapper bookingMapper;
+
+    @PostPersist
+    void onCreated(Booking booking) {
+        BookingResponseDto committed = bookingMapper.toDto(booking);
+        afterCommit(() -> {
+            bookingCache.writeThrough(committed);
+            bookingCache.evictUserBookings(committed.userId());
+        });
+    }
+
+    @PostUpdate
+    void onUpdated(Booking booking) {
+        BookingResponseDto committed = bookingMapper.toDto(booking);
+        afterCommit(() -> bookingCache.writeThrough(committed));
+    }
+
+    @PostRemove
+    void onRemoved(Booking booking) {
+        Long bookingId = booking.getId();
+        Long userId = booking.getUserId();
+        afterCommit(() -> bookingCache.evict(bookingId, userId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
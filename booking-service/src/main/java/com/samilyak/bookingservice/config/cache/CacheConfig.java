@@ -0,0 +1,55 @@
+package com.samilyak.bookingservice.config.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Values are stored as plain JSON of the exact type, not JDK serialization.
+ * Statistics are on, so Boot binds {@code cache.gets{result=hit|miss}} for every cache.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String BOOKING_CACHE = "booking";
+    public static final String USER_BOOKINGS_CACHE = "userBookings";
+
+    @Value("${application.cache.ttl.booking:30m}")
+    private Duration bookingTtl;
+
+    @Value("${application.cache.ttl.user-bookings:10m}")
+    private Duration userBookingsTtl;
+
+    @Bean
+    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory, ObjectMapper objectMapper) {
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .disableCachingNullValues();
+
+        JavaType bookingIds = objectMapper.getTypeFactory().constructCollectionType(List.class, Long.class);
+
+        return RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(defaults)
+                .withCacheConfiguration(BOOKING_CACHE, defaults
+                        .entryTtl(bookingTtl)
+                        .serializeValuesWith(SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(objectMapper, BookingResponseDto.class))))
+                .withCacheConfiguration(USER_BOOKINGS_CACHE, defaults
+                        .entryTtl(userBookingsTtl)
+                        .serializeValuesWith(SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(objectMapper, bookingIds))))
+                .disableCreateOnMissingCache()
+                .enableStatistics()
+                .build();
+    }
+}
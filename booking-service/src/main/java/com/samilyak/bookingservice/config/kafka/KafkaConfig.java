@@ -3,17 +3,45 @@ package com.samilyak.bookingservice.config.kafka;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.EventDeserializer;
+import com.samilyak.events.kafka.EventSerializer;
+import com.samilyak.events.saga.DatesUnlockedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 @Configuration
 public class KafkaConfig {
@@ -24,25 +52,106 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${application.kafka.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    // Потоков-консьюмеров столько же, сколько партиций у топиков
+    @Value("${spring.kafka.listener.concurrency:1}")
+    private int concurrency;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${application.kafka.partitions:3}")
+    private int partitions;
+
+    @Value("${application.kafka.topics.payment-success}")
+    private String paymentSuccessTopic;
+
+    @Value("${application.kafka.topics.inventory-failed}")
+    private String inventoryFailedTopic;
+
+    @Value("${application.kafka.topics.payment-failed}")
+    private String paymentFailedTopic;
+
+    @Value("${application.kafka.topics.payment-canceled}")
+    private String paymentCanceledTopic;
+
+    @Value("${application.kafka.topics.dates-unlocked}")
+    private String datesUnlockedTopic;
+
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+    public ConsumerFactory<String, Object> consumerFactory() {
+        return buildConsumerFactory(Map.of());
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setCommonErrorHandler(errorHandler());
+        configureListenerThreads(factory);
+        return factory;
+    }
+
+    /**
+     * Batch mode for the saga replies: the listener gets the whole poll,
+     * offsets are committed once the listener (and its DB transaction) returned.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(buildConsumerFactory(
+                Map.of(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords)));
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(errorHandler());
+        configureListenerThreads(factory);
         return factory;
     }
 
-    // Инструмент для ручного разбора JSON
+    /**
+     * Failed records end up in {@code <topic>.DLT}. Poison messages arrive there with their original bytes,
+     * records that failed in the listener are written back in the saga binary format.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new EventSerializer());
+
+        Map<String, Object> props = Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                props, new StringSerializer(), new DelegatingByTypeSerializer(serializers, true)));
+        return new DeadLetterPublishingRecoverer(template);
+    }
+
+    @Bean
+    public DefaultErrorHandler errorHandler() {
+        // Ошибки десериализации не ретраятся — сразу в DLT
+        return new DefaultErrorHandler(deadLetterRecoverer(), new FixedBackOff(1000L, 2));
+    }
+
+    @Bean
+    public DeadLetters deadLetters() {
+        return new DeadLetters(deadLetterRecoverer());
+    }
+
+    @Bean
+    public NewTopic bookingCreatedTopic(@Value("${application.kafka.topics.booking-created}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(1).build();
+    }
+
+    @Bean
+    public NewTopic bookingCancellationRequestedTopic(
+            @Value("${application.kafka.topics.booking-cancellation-requested}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(1).build();
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -51,4 +160,46 @@ public class KafkaConfig {
         return mapper;
     }
 
+    /**
+     * Boot moves only its own listener factory to virtual threads; these are built by hand,
+     * so the consumer threads are chosen here.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<?, ?> factory) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+
+    private ConsumerFactory<String, Object> buildConsumerFactory(Map<String, Object> overrides) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.putAll(overrides);
+        return new DefaultKafkaConsumerFactory<>(props, StringDeserializer::new, this::eventDeserializer);
+    }
+
+    /**
+     * Each reply topic carries one event type, so the topic alone picks the typed deserializer.
+     * A record that does not parse comes out with a null value and the failure in a header.
+     */
+    private Deserializer<Object> eventDeserializer() {
+        Map<Pattern, Deserializer<?>> byTopic = new LinkedHashMap<>();
+        byTopic.put(Pattern.compile(Pattern.quote(paymentSuccessTopic)),
+                new EventDeserializer<>(PaymentSuccessEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(inventoryFailedTopic)),
+                new EventDeserializer<>(InventoryReservationFailedEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(paymentFailedTopic)),
+                new EventDeserializer<>(PaymentFailedEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(paymentCanceledTopic)),
+                new EventDeserializer<>(PaymentCanceledEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(datesUnlockedTopic)),
+                new EventDeserializer<>(DatesUnlockedEvent.class));
+
+        Deserializer<Object> unknownTopic = (topic, data) -> {
+            throw new SerializationException("No event type registered for topic " + topic);
+        };
+        return new ErrorHandlingDeserializer<>(new DelegatingByTopicDeserializer(byTopic, unknownTopic));
+    }
 }
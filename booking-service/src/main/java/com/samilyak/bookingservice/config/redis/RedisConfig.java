@@ -0,0 +1,25 @@
+package com.samilyak.bookingservice.config.redis;
+
+import com.samilyak.bookingservice.service.BookingStatusStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+
+    @Value("${application.booking.status-stream.channel:booking-status}")
+    private String statusChannel;
+
+    @Bean
+    public RedisMessageListenerContainer bookingStatusContainer(RedisConnectionFactory connectionFactory,
+                                                                BookingStatusStream bookingStatusStream) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(bookingStatusStream, new ChannelTopic(statusChannel));
+        return container;
+    }
+}
@@ -2,12 +2,15 @@ package com.samilyak.bookingservice.controller;
 
 import com.samilyak.bookingservice.dto.booking.BookingRequestDto;
 import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
 import com.samilyak.bookingservice.service.BookingService;
+import com.samilyak.bookingservice.service.BookingStatusStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,9 +19,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
 import java.util.List;
 
 import static org.springframework.http.HttpStatus.CREATED;
@@ -32,6 +38,7 @@ import static org.springframework.http.HttpStatus.NO_CONTENT;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingStatusStream bookingStatusStream;
 
     @Operation(summary = "Create a booking",
             description = "Only registered users can create bookings")
@@ -45,6 +52,31 @@ public class BookingController {
         return ResponseEntity.status(CREATED)
                 .body(bookingService.createBooking(requestDto, userId, role));    }
 
+    @Operation(summary = "Create a booking asynchronously",
+            description = "Stores a PENDING booking and returns 202 at once; follow the Location for saga progress")
+    @PostMapping("/async")
+    public ResponseEntity<BookingStatusDto> createAsync(
+            @RequestBody @Valid BookingRequestDto requestDto,
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader("X-User-Role") String role
+    ) {
+        log.info("📦 Асинхронное создание брони пользователем userId={}, role={}", userId, role);
+        BookingStatusDto accepted = bookingService.requestBooking(requestDto, userId, role);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/bookings/" + accepted.bookingId() + "/status"))
+                .body(accepted);
+    }
+
+    @Operation(summary = "Stream booking status",
+            description = "Server-Sent Events: the current status, then every saga transition until a final one")
+    @GetMapping(value = "/{id}/status", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatus(
+            @PathVariable("id") Long id,
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader("X-User-Role") String role) {
+        return bookingStatusStream.subscribe(id, () -> bookingService.getBookingStatus(id, userId, role));
+    }
+
     @Operation(summary = "Get user bookings",
             description = "Retrieve list of bookings for the authenticated user")
     @GetMapping("/my")
@@ -61,6 +93,12 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getBookingById(id, userId, role));
     }
 
+    @Operation(summary = "Get booking statuses", description = "Statuses of several bookings, for other services")
+    @GetMapping("/statuses")
+    public List<BookingStatusDto> getBookingStatuses(@RequestParam("ids") List<Long> ids) {
+        return bookingService.getBookingStatuses(ids);
+    }
+
     @Operation(summary = "Get userID by bookingID", description = "Get UserID by BookingID")
     @GetMapping("/{bookingId}/user-id")
     public ResponseEntity<Long> getUserIdByBookingId(@PathVariable("bookingId") Long bookingId) {
@@ -15,7 +15,8 @@ public record BookingResponseDto(
         BigDecimal totalPrice,
         String phoneNumber,
         String paymentId,
-        Booking.Status status
+        Booking.Status status,
+        Long version
 
 ) {
 }
@@ -0,0 +1,11 @@
+package com.samilyak.bookingservice.dto.booking;
+
+import com.samilyak.bookingservice.model.Booking;
+
+public record BookingStatusDto(
+
+        Long bookingId,
+        Booking.Status status
+
+) {
+}
@@ -1,29 +0,0 @@
-package com.samilyak.bookingservice.dto.event;
-
-import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
-
-import java.math.BigDecimal;
-import java.time.LocalDate;
-
-public record BookingCreatedEvent(
-
-        Long bookingId,
-        Long userId,
-        Long accommodationId,
-
-        @JsonDeserialize(using = LocalDateDeserializer.class)
-        @JsonSerialize(using = LocalDateSerializer.class)
-        LocalDate checkInDate,
-
-        @JsonDeserialize(using = LocalDateDeserializer.class)
-        @JsonSerialize(using = LocalDateSerializer.class)
-        LocalDate checkOutDate,
-        BigDecimal totalPrice,
-        String phoneNumber,
-        Long accommodationVersion
-
-) {
-}
@@ -1,8 +0,0 @@
-package com.samilyak.bookingservice.dto.event;
-
-public record DatesUnlockedEvent(
-
-        Long bookingId
-
-) {
-}
@@ -13,7 +13,17 @@ public interface BookingMapper {
     BookingResponseDto toDto(Booking booking);
 
     @Mapping(target = "id", ignore = true)
-    @Mapping(target = "userId", expression = "java(userId)")  
+    @Mapping(target = "userId", expression = "java(userId)")
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "totalPrice", ignore = true)
+    @Mapping(target = "paymentId", ignore = true)
+    @Mapping(target = "datesUnlocked", ignore = true)
+    @Mapping(target = "paymentCanceled", ignore = true)
+    @Mapping(target = "refundNeeded", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "statusChangedAt", ignore = true)
+    @Mapping(target = "compensationAttempts", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Booking toModel(BookingRequestDto requestDto, @Context Long userId);
 
 }
@@ -2,9 +2,9 @@ package com.samilyak.bookingservice.messaging;
 
 import com.samilyak.bookingservice.config.rabbitmq.RabbitMQConfig;
 import com.samilyak.bookingservice.dto.notification.NotificationDto;
+import com.samilyak.bookingservice.messaging.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -14,7 +14,7 @@ import java.util.List;
 @Component
 public class NotificationProducer {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxWriter outboxWriter;
 
     public void sendNotification(NotificationDto dto, List<String> channels) {
         channels.forEach(channel -> {
@@ -33,7 +33,7 @@ public class NotificationProducer {
 
     public void sendSms(NotificationDto dto) {
         log.info("📲 Отправка SMS уведомления: {}", dto);
-        rabbitTemplate.convertAndSend(
+        outboxWriter.enqueueRabbit(
                 RabbitMQConfig.EXCHANGE,
                 RabbitMQConfig.SMS_ROUTING_KEY,
                 dto
@@ -42,7 +42,7 @@ public class NotificationProducer {
 
     public void sendEmail(NotificationDto dto) {
         log.info("📧 Отправка Email уведомления: {}", dto);
-        rabbitTemplate.convertAndSend(
+        outboxWriter.enqueueRabbit(
                 RabbitMQConfig.EXCHANGE,
                 RabbitMQConfig.EMAIL_ROUTING_KEY,
                 dto
@@ -51,7 +51,7 @@ public class NotificationProducer {
 
     public void sendTelegram(NotificationDto dto) {
         log.info("🤖 Отправка Telegram уведомления: {}", dto);
-        rabbitTemplate.convertAndSend(
+        outboxWriter.enqueueRabbit(
                 RabbitMQConfig.EXCHANGE,
                 RabbitMQConfig.TELEGRAM_ROUTING_KEY,
                 dto
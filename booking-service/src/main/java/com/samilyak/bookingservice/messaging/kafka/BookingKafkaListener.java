@@ -1,113 +1,78 @@
 package com.samilyak.bookingservice.messaging.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.samilyak.bookingservice.dto.event.DatesUnlockedEvent;
-import com.samilyak.bookingservice.dto.event.InventoryReservationFailedEvent;
-import com.samilyak.bookingservice.dto.event.PaymentCanceledEvent;
-import com.samilyak.bookingservice.dto.event.PaymentFailedEvent;
-import com.samilyak.bookingservice.dto.event.PaymentSuccessEvent;
 import com.samilyak.bookingservice.saga.BookingSagaService;
+import com.samilyak.bookingservice.saga.SagaReply;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.EventHeaders;
+import com.samilyak.events.saga.DatesUnlockedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * All saga reply topics in one batch listener: a poll's worth of replies is applied
+ * in a single transaction, and the offsets are committed only after it commits.
+ * Values arrive already typed by topic; poison messages are diverted to the DLT.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class BookingKafkaListener {
 
     private final BookingSagaService bookingSagaService;
-    private final ObjectMapper objectMapper;
+    private final DeadLetters deadLetters;
 
-    // =========================================================================
-    // 1. УСПЕШНАЯ ОПЛАТА (Payment Success)
-    // =========================================================================
     @KafkaListener(
-            topics = "${application.kafka.topics.payment-success}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            topics = {
+                    "${application.kafka.topics.payment-success}",
+                    "${application.kafka.topics.inventory-failed}",
+                    "${application.kafka.topics.payment-failed}",
+                    "${application.kafka.topics.payment-canceled}",
+                    "${application.kafka.topics.dates-unlocked}"
+            },
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
     )
-    public void onPaymentSuccess(String message) { // 👈 Принимаем String
-        try {
-            log.info("📨 RAW Payment Success: {}", message);
-            PaymentSuccessEvent event = objectMapper.readValue(message, PaymentSuccessEvent.class);
+    public void onSagaReplies(List<ConsumerRecord<String, Object>> records) {
+        log.info("📨 Получена пачка ответов SAGA: {} записей", records.size());
 
-            bookingSagaService.finalizeBookingCreation(event.bookingId(), event.paymentSessionId());
-        } catch (Exception e) {
-            log.error("❌ Error parsing PaymentSuccessEvent: {}", e.getMessage());
-        }
-    }
-
-    // =========================================================================
-    // 2. ОШИБКА ИНВЕНТАРИЗАЦИИ (Inventory Failed)
-    // =========================================================================
-    @KafkaListener(
-            topics = "${application.kafka.topics.inventory-failed}",
-            groupId = "${spring.kafka.consumer.group-id}"
-    )
-    public void onInventoryFailure(String message) {
-        try {
-            log.info("📨 RAW Inventory Failed: {}", message);
-            InventoryReservationFailedEvent event = objectMapper.readValue(message, InventoryReservationFailedEvent.class);
+        List<SagaReply> replies = deadLetters.dropPoison(records)
+                .stream()
+                .map(record -> toReply(record.value(), eventId(record)))
+                .toList();
 
-            bookingSagaService.failBookingCreation(event.bookingId(), event.reason());
-        } catch (Exception e) {
-            log.error("❌ Error parsing InventoryReservationFailedEvent: {}", e.getMessage());
+        if (!replies.isEmpty()) {
+            bookingSagaService.applyReplies(replies);
         }
     }
 
-    // =========================================================================
-    // 3. ОШИБКА ОПЛАТЫ (Payment Failed)
-    // =========================================================================
-    @KafkaListener(
-            topics = "${application.kafka.topics.payment-failed}",
-            groupId = "${spring.kafka.consumer.group-id}"
-    )
-    public void onPaymentFailure(String message) {
-        try {
-            log.info("📨 RAW Payment Failed: {}", message);
-            // Тут используем класс события ошибки оплаты
-            PaymentFailedEvent event = objectMapper.readValue(message, PaymentFailedEvent.class);
-
-            bookingSagaService.failBookingCreation(event.bookingId(), event.reason());
-        } catch (Exception e) {
-            log.error("❌ Error parsing PaymentFailedEvent: {}", e.getMessage());
-        }
+    private static SagaReply toReply(Object event, String eventId) {
+        return switch (event) {
+            case PaymentSuccessEvent e -> SagaReply.paymentSucceeded(e.bookingId(), eventId, e.paymentSessionId());
+            case InventoryReservationFailedEvent e -> SagaReply.inventoryFailed(e.bookingId(), eventId, e.reason());
+            case PaymentFailedEvent e -> SagaReply.paymentFailed(e.bookingId(), eventId, e.reason());
+            case PaymentCanceledEvent e -> SagaReply.paymentCanceled(e.bookingId(), eventId);
+            case DatesUnlockedEvent e -> SagaReply.datesUnlocked(e.bookingId(), eventId);
+            default -> throw new IllegalArgumentException("Unexpected saga reply " + event.getClass().getName());
+        };
     }
 
-    // =========================================================================
-    // 4. ОТМЕНА ОПЛАТЫ (Payment Canceled)
-    // =========================================================================
-    @KafkaListener(
-            topics = "${application.kafka.topics.payment-canceled}",
-            groupId = "${spring.kafka.consumer.group-id}"
-    )
-    public void onPaymentCanceled(String message) {
-        try {
-            log.info("📨 RAW Payment Canceled: {}", message);
-            PaymentCanceledEvent event = objectMapper.readValue(message, PaymentCanceledEvent.class);
-
-            bookingSagaService.handlePaymentCanceled(event.bookingId());
-        } catch (Exception e) {
-            log.error("❌ Error parsing PaymentCanceledEvent: {}", e.getMessage());
-        }
-    }
-
-    // =========================================================================
-    // 5. ДАТЫ РАЗБЛОКИРОВАНЫ (Dates Unlocked)
-    // =========================================================================
-    @KafkaListener(
-            topics = "${application.kafka.topics.dates-unlocked}",
-            groupId = "${spring.kafka.consumer.group-id}"
-    )
-    public void onDatesUnlocked(String message) {
-        try {
-            log.info("📨 RAW Dates Unlocked: {}", message);
-            DatesUnlockedEvent event = objectMapper.readValue(message, DatesUnlockedEvent.class);
-
-            bookingSagaService.handleDatesUnlocked(event.bookingId());
-        } catch (Exception e) {
-            log.error("❌ Error parsing DatesUnlockedEvent: {}", e.getMessage());
+    private static String eventId(ConsumerRecord<String, Object> record) {
+        Header header = record.headers().lastHeader(EventHeaders.EVENT_ID);
+        if (header != null) {
+            return new String(header.value(), StandardCharsets.UTF_8);
         }
+        // Без заголовка повторную доставку той же записи узнаём по её координатам
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
     }
 }
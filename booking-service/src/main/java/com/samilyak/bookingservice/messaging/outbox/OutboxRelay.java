@@ -0,0 +1,165 @@
+package com.samilyak.bookingservice.messaging.outbox;
+
+import com.samilyak.bookingservice.model.OutboxEvent;
+import com.samilyak.bookingservice.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the outbox to Kafka and RabbitMQ in batches, off the request path.
+ * A row is deleted only after the broker acknowledged it, so delivery is at-least-once:
+ * consumers already ignore events for bookings that moved past the expected status.
+ * A row the broker refuses {@code max-attempts} times in a row is parked, so a poison message
+ * does not stay at the head of the table and hold back everything behind it.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int maxAttempts;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${application.outbox.batch-size:100}") int batchSize,
+                       @Value("${application.outbox.send-timeout-ms:10000}") long sendTimeoutMs,
+                       @Value("${application.outbox.max-attempts:20}") int maxAttempts) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * linger-ms is the pause between polls once the outbox is empty;
+     * while full batches keep coming the relay drains without waiting.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.linger-ms:200}")
+    public void relay() {
+        Integer published;
+        do {
+            published = transactionTemplate.execute(status -> publishBatch());
+        } while (published != null && published == batchSize);
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> publishedIds = new ArrayList<>(batch.size());
+        boolean complete = publishToKafka(batch, publishedIds) & publishToRabbit(batch, publishedIds);
+
+        outboxEventRepository.deleteAllByIdInBatch(publishedIds);
+        log.info("📤 Outbox: опубликовано {} из {}", publishedIds.size(), batch.size());
+
+        if (!complete) {
+            recordFailures(batch, publishedIds);
+        }
+
+        // Неудачные строки останутся в таблице до следующего прохода
+        return complete ? publishedIds.size() : 0;
+    }
+
+    private void recordFailures(List<OutboxEvent> batch, List<Long> publishedIds) {
+        Set<Long> published = new HashSet<>(publishedIds);
+        List<OutboxEvent> failed = batch.stream()
+                .filter(event -> !published.contains(event.getId()))
+                .toList();
+        if (failed.isEmpty()) {
+            return;
+        }
+        outboxEventRepository.recordFailures(failed.stream().map(OutboxEvent::getId).toList(), maxAttempts, Instant.now());
+        failed.stream()
+                .filter(event -> event.getAttempts() + 1 >= maxAttempts)
+                .forEach(event -> log.error("🅿️ Outbox: сообщение {} -> {} отложено после {} попыток",
+                        event.getId(), event.getDestination(), maxAttempts));
+    }
+
+    private boolean publishToKafka(List<OutboxEvent> batch, List<Long> publishedIds) {
+        Map<Long, CompletableFuture<SendResult<String, byte[]>>> sends = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            if (event.getChannel() == OutboxEvent.Channel.KAFKA) {
+                sends.put(event.getId(),
+                        kafkaTemplate.send(event.getDestination(), event.getMessageKey(), event.getPayload()));
+            }
+        }
+
+        boolean complete = true;
+        for (Map.Entry<Long, CompletableFuture<SendResult<String, byte[]>>> send : sends.entrySet()) {
+            try {
+                send.getValue().get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                publishedIds.add(send.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                log.error("❌ Outbox: Kafka не приняла сообщение {}: {}", send.getKey(), e.getMessage());
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    private boolean publishToRabbit(List<OutboxEvent> batch, List<Long> publishedIds) {
+        List<OutboxEvent> messages = batch.stream()
+                .filter(event -> event.getChannel() == OutboxEvent.Channel.RABBIT)
+                .toList();
+        if (messages.isEmpty()) {
+            return true;
+        }
+
+        try {
+            rabbitTemplate.invoke(operations -> {
+                messages.forEach(event -> operations.send(
+                        event.getDestination(), event.getMessageKey(), toAmqpMessage(event)));
+                operations.waitForConfirmsOrDie(sendTimeoutMs);
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("❌ Outbox: RabbitMQ не подтвердил пачку из {} сообщений: {}", messages.size(), e.getMessage());
+            return false;
+        }
+
+        messages.forEach(event -> publishedIds.add(event.getId()));
+        return true;
+    }
+
+    private static Message toAmqpMessage(OutboxEvent event) {
+        return MessageBuilder.withBody(event.getPayload())
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.samilyak.bookingservice.messaging.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.samilyak.bookingservice.model.OutboxEvent;
+import com.samilyak.bookingservice.repository.OutboxEventRepository;
+import com.samilyak.events.kafka.EventSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Stores outgoing messages in the caller's transaction instead of talking to the broker.
+ * If the transaction rolls back, the message is never published.
+ */
+@Slf4j
+@Component
+public class OutboxWriter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectWriter jsonWriter;
+    private final EventSerializer eventSerializer = new EventSerializer();
+
+    public OutboxWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        // Даты строками ISO — как их раньше писал JsonSerializer из spring-kafka (уведомления в RabbitMQ)
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public void enqueueKafka(String topic, String key, Object payload) {
+        enqueue(OutboxEvent.Channel.KAFKA, topic, key, eventSerializer.serialize(topic, payload));
+    }
+
+    public void enqueueRabbit(String exchange, String routingKey, Object payload) {
+        byte[] json;
+        try {
+            json = jsonWriter.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox payload for " + exchange, e);
+        }
+        enqueue(OutboxEvent.Channel.RABBIT, exchange, routingKey, json);
+    }
+
+    private void enqueue(OutboxEvent.Channel channel, String destination, String key, byte[] payload) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Outbox messages must be written inside a transaction");
+        }
+
+        OutboxEvent event = OutboxEvent.builder()
+                .channel(channel)
+                .destination(destination)
+                .messageKey(key)
+                .payload(payload)
+                .createdAt(Instant.now())
+                .build();
+        outboxEventRepository.save(event);
+
+        log.debug("📝 Outbox: {} -> {} [{}]", channel, destination, key);
+    }
+}
@@ -1,13 +1,17 @@
 package com.samilyak.bookingservice.model;
 
+import com.samilyak.bookingservice.config.cache.BookingCacheListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -15,6 +19,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 
 @AllArgsConstructor
@@ -23,6 +28,7 @@ import java.time.LocalDate;
 @Getter
 @Setter
 @Entity
+@EntityListeners(BookingCacheListener.class)
 @Table(name = "bookings")
 public class Booking {
     @Id
@@ -41,11 +47,15 @@ public class Booking {
     @Column(name = "check_out_date", nullable = false)
     private LocalDate checkOutDate;
 
+    @Builder.Default
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Status status = Status.PENDING;
 
-    @Column(nullable = false)
+    /**
+     * Null while an asynchronously created booking is still waiting for its price
+     */
+    @Column(name = "total_price")
     private BigDecimal totalPrice;
 
     @Column(name = "phone_number")
@@ -55,10 +65,10 @@ public class Booking {
     private String paymentId;
 
     @Column(name = "dates_unlocked", nullable = false)
-    private boolean datesUnlocked = false;
+    private boolean datesUnlocked;
 
     @Column(name = "payment_canceled", nullable = false)
-    private boolean paymentCanceled = false;
+    private boolean paymentCanceled;
 
     /**
      * Do we expect payment refund during cancellation?
@@ -66,24 +76,79 @@ public class Booking {
      * false -> failed booking, no money involved
      */
     @Column(name = "refund_needed", nullable = false)
-    private boolean refundNeeded = false;
+    private boolean refundNeeded;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /**
+     * When the booking entered its current status; saga timeouts are measured from here
+     */
+    @Column(name = "status_changed_at", nullable = false)
+    private Instant statusChangedAt;
+
+    /**
+     * How many times the cancellation request was re-sent because the replies never came
+     */
+    @Column(name = "compensation_attempts", nullable = false)
+    private int compensationAttempts;
+
+    /**
+     * Saga replies, the reaper and the API may touch the same booking concurrently;
+     * the loser of a race gets an optimistic lock failure and its batch is retried
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @PrePersist
+    void onCreate() {
+        Instant now = Instant.now();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        if (statusChangedAt == null) {
+            statusChangedAt = now;
+        }
+    }
+
+    /**
+     * Status moves only through the transitions below, which keep the saga flags in step with it
+     */
+    private void setStatus(Status status) {
+        if (this.status != status) {
+            this.status = status;
+            this.statusChangedAt = Instant.now();
+        }
+    }
 
     /**
      * Booking successfully created: payment ok, dates locked
      */
-    public void confirm() {
+    public void confirm(String paymentId) {
         if (status != Status.PENDING) {
             throw new IllegalStateException("Only PENDING booking can be confirmed");
         }
-        this.status = Status.CONFIRMED;
+        setStatus(Status.CONFIRMED);
+        this.paymentId = paymentId;
         this.refundNeeded = true;
     }
 
+    /**
+     * Nights could not be locked: nothing is held anywhere, so there is nothing to compensate
+     */
+    public void rejectCreation() {
+        if (status != Status.PENDING) {
+            throw new IllegalStateException("Only PENDING booking can be rejected");
+        }
+        setStatus(Status.CANCELED);
+    }
+
     public void startCancellation() {
         if (status != Status.CONFIRMED) {
             throw new IllegalStateException("Only CONFIRMED booking can be canceled");
         }
-        this.status = Status.CANCELING;
+        setStatus(Status.CANCELING);
         // refundNeeded already true
     }
 
@@ -91,18 +156,21 @@ public class Booking {
         if (status != Status.PENDING) {
             throw new IllegalStateException("Only PENDING booking can be failed");
         }
-        this.status = Status.CANCELING;
+        setStatus(Status.CANCELING);
         this.refundNeeded = false;
     }
 
-    public void markPaymentCanceled() {
+    /**
+     * @return false if the payment was already marked as canceled — nothing changed
+     */
+    public boolean markPaymentCanceled() {
 
         if (paymentCanceled) {
-            return;
+            return false;
         }
 
         if (status == Status.CANCELED || status == Status.EXPIRED) {
-            return;
+            return false;
         }
 
         if (status != Status.CANCELING) {
@@ -113,16 +181,20 @@ public class Booking {
 
         this.paymentCanceled = true;
         tryFinishCancellation();
+        return true;
     }
 
-    public void markDatesUnlocked() {
+    /**
+     * @return false if the dates were already marked as unlocked — nothing changed
+     */
+    public boolean markDatesUnlocked() {
 
         if (datesUnlocked) {
-            return;
+            return false;
         }
 
         if (status == Status.CANCELED || status == Status.EXPIRED) {
-            return;
+            return false;
         }
 
         if (status != Status.CANCELING) {
@@ -133,6 +205,29 @@ public class Booking {
 
         this.datesUnlocked = true;
         tryFinishCancellation();
+        return true;
+    }
+
+    /**
+     * Compensation replies did not arrive in time: the request goes out again
+     * and the timeout starts over.
+     */
+    public void retryCompensation() {
+        if (status != Status.CANCELING) {
+            throw new IllegalStateException("Only CANCELING booking can retry compensation");
+        }
+        this.compensationAttempts++;
+        this.statusChangedAt = Instant.now();
+    }
+
+    /**
+     * Compensation replies never came after the last retry: the booking is left for manual handling
+     */
+    public void failCancellation() {
+        if (status != Status.CANCELING) {
+            throw new IllegalStateException("Only CANCELING booking can fail cancellation");
+        }
+        setStatus(Status.CANCEL_FAILED);
     }
 
     private void tryFinishCancellation() {
@@ -140,18 +235,25 @@ public class Booking {
         if (refundNeeded) {
             // CONFIRMED → CANCELING → CANCELED
             if (paymentCanceled && datesUnlocked) {
-                this.status = Status.CANCELED;
+                setStatus(Status.CANCELED);
             }
         } else {
             // PENDING → CANCELING → EXPIRED
             if (datesUnlocked) {
-                this.status = Status.EXPIRED;
+                setStatus(Status.EXPIRED);
             }
         }
     }
 
     public enum Status {
-        PENDING, CONFIRMED, CANCELED, CANCELING, CANCEL_FAILED, EXPIRED
+        PENDING, CONFIRMED, CANCELED, CANCELING, CANCEL_FAILED, EXPIRED;
+
+        /**
+         * @return true if the saga will not move the booking any further on its own
+         */
+        public boolean isFinal() {
+            return this != PENDING && this != CANCELING;
+        }
     }
 
 }
@@ -0,0 +1,71 @@
+package com.samilyak.bookingservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A message written in the same transaction as the state change it announces.
+ * The relay publishes it to the broker after commit and deletes the row; a row the broker
+ * keeps refusing is parked after a bounded number of attempts.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel", nullable = false)
+    private Channel channel;
+
+    /**
+     * Kafka topic or RabbitMQ exchange
+     */
+    @Column(name = "destination", nullable = false)
+    private String destination;
+
+    /**
+     * Kafka record key or RabbitMQ routing key
+     */
+    @Column(name = "message_key")
+    private String messageKey;
+
+    /**
+     * Kafka: saga event in the event-schema binary format, RabbitMQ: UTF-8 JSON
+     */
+    @Column(name = "payload", nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "parked_at")
+    private Instant parkedAt;
+
+    public enum Channel {
+        KAFKA, RABBIT
+    }
+
+}
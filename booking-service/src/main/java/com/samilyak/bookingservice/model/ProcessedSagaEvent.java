@@ -0,0 +1,58 @@
+package com.samilyak.bookingservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A saga reply that has already been applied. A redelivered record finds its key here
+ * and is dropped before the booking is even loaded.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "processed_saga_events")
+public class ProcessedSagaEvent implements Persistable<ProcessedSagaEvent.Key> {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+
+    /**
+     * Rows are only ever inserted, so save() can persist without a SELECT first
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @EqualsAndHashCode
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "booking_id", nullable = false)
+        private Long bookingId;
+
+        @Column(name = "event_type", nullable = false)
+        private String eventType;
+
+        @Column(name = "event_id", nullable = false)
+        private String eventId;
+    }
+}
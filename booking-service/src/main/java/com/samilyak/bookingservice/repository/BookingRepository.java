@@ -1,12 +1,15 @@
 package com.samilyak.bookingservice.repository;
 
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
 import com.samilyak.bookingservice.model.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,10 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     List<Booking> findAllByUserId(Long userId);
 
+    @Query("SELECT new com.samilyak.bookingservice.dto.booking.BookingStatusDto(b.id, b.status) "
+            + "FROM Booking b WHERE b.id IN :ids")
+    List<BookingStatusDto> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
     @Lock(PESSIMISTIC_WRITE)
     @Query("SELECT b FROM Booking b WHERE b.accommodationId = :accommodationId "
             + "AND ((b.checkInDate BETWEEN :checkInDate AND :checkOutDate) "
@@ -34,4 +41,21 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findExpiredBookings(@Param("tomorrow") LocalDate tomorrow);
 
     Optional<Booking> findTopByOrderByIdDesc();
+
+    /**
+     * Bookings stuck in {@code status} since before {@code staleBefore}, locked for the current transaction.
+     * Keyset on (status_changed_at, id) walks past rows that could not be handled,
+     * SKIP LOCKED lets several replicas reap at once without touching the same booking.
+     */
+    @Query(value = "SELECT * FROM bookings "
+            + "WHERE status = :status AND status_changed_at < :staleBefore "
+            + "AND (status_changed_at, id) > (:afterChangedAt, :afterId) "
+            + "ORDER BY status_changed_at, id "
+            + "LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Booking> lockStaleBatch(@Param("status") String status,
+                                 @Param("staleBefore") Instant staleBefore,
+                                 @Param("afterChangedAt") Instant afterChangedAt,
+                                 @Param("afterId") long afterId,
+                                 @Param("limit") int limit);
 }
@@ -0,0 +1,42 @@
+package com.samilyak.bookingservice.repository;
+
+import com.samilyak.bookingservice.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest pending messages, locked for the current transaction; parked rows are left out.
+     * SKIP LOCKED lets several replicas drain the table without publishing the same row twice.
+     */
+    @Query(value = """
+            SELECT * FROM outbox_events
+            WHERE parked_at IS NULL
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    /**
+     * Counts one more failed publish; a row that reaches {@code maxAttempts} is parked at {@code now}.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+            SET attempts = attempts + 1,
+                parked_at = CASE WHEN attempts + 1 >= :maxAttempts THEN :now END
+            WHERE id IN :ids
+            """, nativeQuery = true)
+    int recordFailures(@Param("ids") Collection<Long> ids,
+                       @Param("maxAttempts") int maxAttempts,
+                       @Param("now") Instant now);
+
+}
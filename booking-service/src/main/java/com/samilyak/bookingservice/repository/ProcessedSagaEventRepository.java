@@ -0,0 +1,21 @@
+package com.samilyak.bookingservice.repository;
+
+import com.samilyak.bookingservice.model.ProcessedSagaEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ProcessedSagaEventRepository extends JpaRepository<ProcessedSagaEvent, ProcessedSagaEvent.Key> {
+
+    @Query("SELECT p.id FROM ProcessedSagaEvent p WHERE p.id.bookingId IN :bookingIds")
+    List<ProcessedSagaEvent.Key> findKeysByBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+
+    @Modifying
+    @Query("DELETE FROM ProcessedSagaEvent p WHERE p.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Instant before);
+}
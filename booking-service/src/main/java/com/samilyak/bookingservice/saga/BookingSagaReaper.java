@@ -0,0 +1,110 @@
+package com.samilyak.bookingservice.saga;
+
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Finds sagas nobody will ever answer and compensates them, so leaked locks do not
+ * eat into the sellable inventory. Every batch is its own transaction holding row locks
+ * with SKIP LOCKED, which makes it safe to run on every replica.
+ */
+@Slf4j
+@Component
+public class BookingSagaReaper {
+
+    private final BookingRepository bookingRepository;
+    private final BookingSagaService bookingSagaService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration pendingTimeout;
+    private final Duration cancelingTimeout;
+    private final int batchSize;
+    private final int maxCompensationAttempts;
+
+    public BookingSagaReaper(BookingRepository bookingRepository,
+                             BookingSagaService bookingSagaService,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${application.saga.reaper.pending-timeout:45m}") Duration pendingTimeout,
+                             @Value("${application.saga.reaper.canceling-timeout:15m}") Duration cancelingTimeout,
+                             @Value("${application.saga.reaper.batch-size:200}") int batchSize,
+                             @Value("${application.saga.reaper.max-compensation-attempts:5}") int maxCompensationAttempts) {
+        this.bookingRepository = bookingRepository;
+        this.bookingSagaService = bookingSagaService;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingTimeout = pendingTimeout;
+        this.cancelingTimeout = cancelingTimeout;
+        this.batchSize = batchSize;
+        this.maxCompensationAttempts = maxCompensationAttempts;
+    }
+
+    @Scheduled(fixedDelayString = "${application.saga.reaper.interval-ms:60000}")
+    public void reap() {
+        reap(Booking.Status.PENDING, pendingTimeout, bookingSagaService::expirePending);
+        reap(Booking.Status.CANCELING, cancelingTimeout,
+                booking -> bookingSagaService.retryCancellation(booking, maxCompensationAttempts));
+    }
+
+    private void reap(Booking.Status status, Duration timeout, Consumer<Booking> action) {
+        Instant staleBefore = Instant.now().minus(timeout);
+        Cursor cursor = Cursor.START;
+        int reaped = 0;
+
+        while (cursor != null) {
+            Cursor from = cursor;
+            BatchResult result = transactionTemplate.execute(tx -> reapBatch(status, staleBefore, from, action));
+            if (result == null) {
+                break;
+            }
+            reaped += result.reaped();
+            cursor = result.next();
+        }
+
+        if (reaped > 0) {
+            log.info("⏰ SAGA reaper: обработано {} броней в статусе {}", reaped, status);
+        }
+    }
+
+    /**
+     * Compensation events go through the outbox, so the whole batch is published
+     * together after commit.
+     */
+    private BatchResult reapBatch(Booking.Status status, Instant staleBefore, Cursor from,
+                                  Consumer<Booking> action) {
+        List<Booking> batch = bookingRepository.lockStaleBatch(
+                status.name(), staleBefore, from.changedAt(), from.id(), batchSize);
+        if (batch.isEmpty()) {
+            return new BatchResult(0, null);
+        }
+
+        // Курсор берём до обработки: статус и время смены статуса сейчас поменяются
+        Booking last = batch.get(batch.size() - 1);
+        Cursor next = batch.size() < batchSize ? null : new Cursor(last.getStatusChangedAt(), last.getId());
+
+        int reaped = 0;
+        for (Booking booking : batch) {
+            try {
+                action.accept(booking);
+                reaped++;
+            } catch (IllegalStateException e) {
+                log.warn("⚠️ SAGA reaper: бронь {} пропущена: {}", booking.getId(), e.getMessage());
+            }
+        }
+        return new BatchResult(reaped, next);
+    }
+
+    private record Cursor(Instant changedAt, long id) {
+        static final Cursor START = new Cursor(Instant.EPOCH, 0L);
+    }
+
+    private record BatchResult(int reaped, Cursor next) {
+    }
+}
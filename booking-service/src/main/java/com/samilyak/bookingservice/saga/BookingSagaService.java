@@ -1,15 +1,23 @@
 package com.samilyak.bookingservice.saga;
 
-import com.samilyak.bookingservice.dto.event.BookingCancellationRequestedEvent;
 import com.samilyak.bookingservice.exception.EntityNotFoundException;
 import com.samilyak.bookingservice.messaging.kafka.BookingMessageProducer;
 import com.samilyak.bookingservice.model.Booking;
 import com.samilyak.bookingservice.repository.BookingRepository;
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -18,84 +26,120 @@ public class BookingSagaService {
 
     private final BookingRepository bookingRepository;
     private final BookingMessageProducer bookingMessageProducer;
+    private final ProcessedSagaEvents processedSagaEvents;
+    private final ApplicationEventPublisher eventPublisher;
 
     public void cancelBooking(Long bookingId) {
         Booking booking = getBookingOrThrow(bookingId);
 
         booking.startCancellation();
         bookingRepository.save(booking);
+        publishStatus(booking);
 
-        BookingCancellationRequestedEvent event =
-                new BookingCancellationRequestedEvent(
-                        booking.getId(),
-                        booking.getAccommodationId(),
-                        booking.getCheckInDate(),
-                        booking.getCheckOutDate(),
-                        booking.getPaymentId(),
-                        booking.isRefundNeeded()
-                );
-
-        bookingMessageProducer.sendBookingCancellationRequested(event);
+        requestCompensation(booking);
     }
 
-    public void handlePaymentCanceled(Long bookingId) {
-        Booking booking = getBookingOrThrow(bookingId);
-        booking.markPaymentCanceled();
-
-        bookingRepository.save(booking);
-        log.info("SAGA: Платёж отменен для брони {}", bookingId);
-
-        checkCancellationComplete(booking);
+    /**
+     * PENDING for too long: the BookingCreated event was lost or the payment was abandoned.
+     * The booking is failed and whatever it holds (locked nights, open payment) is released.
+     */
+    public void expirePending(Booking booking) {
+        log.warn("⏰ SAGA: Бронь {} слишком долго в PENDING (с {}), отменяем",
+                booking.getId(), booking.getStatusChangedAt());
+        booking.failBooking();
+        publishStatus(booking);
+        requestCompensation(booking);
     }
 
-    public void handleDatesUnlocked(Long bookingId) {
-        Booking booking = getBookingOrThrow(bookingId);
-        booking.markDatesUnlocked();
+    /**
+     * CANCELING for too long: one of the compensation replies was lost, so the request is sent again.
+     * Both participants handle a repeated request idempotently.
+     */
+    public void retryCancellation(Booking booking, int maxAttempts) {
+        if (booking.getCompensationAttempts() >= maxAttempts) {
+            booking.failCancellation();
+            publishStatus(booking);
+            log.error("🛑 SAGA: Бронь {} не удалось отменить за {} попыток (paymentCanceled={}, datesUnlocked={})",
+                    booking.getId(), maxAttempts, booking.isPaymentCanceled(), booking.isDatesUnlocked());
+            return;
+        }
+        booking.retryCompensation();
+        log.warn("🔁 SAGA: Повторный запрос компенсации для брони {} (попытка {})",
+                booking.getId(), booking.getCompensationAttempts());
+        requestCompensation(booking);
+    }
 
-        bookingRepository.save(booking);
-        log.info("SAGA: Даты разблокированы для брони {}", bookingId);
+    /**
+     * Applies a whole batch of replies in one transaction. Replies already in the processed-event
+     * store are dropped before any booking is loaded; the rest go through {@link BookingStateMachine}
+     * and are recorded, so a redelivery of the batch is a single SELECT.
+     */
+    public void applyReplies(List<SagaReply> replies) {
+        List<SagaReply> fresh = processedSagaEvents.dropProcessed(replies);
+        if (fresh.isEmpty()) {
+            return;
+        }
 
-        checkCancellationComplete(booking);
+        Set<Long> bookingIds = fresh.stream()
+                .map(SagaReply::bookingId)
+                .collect(Collectors.toSet());
+        Map<Long, Booking> bookings = bookingRepository.findAllById(bookingIds)
+                .stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<SagaReply> handled = new ArrayList<>(fresh.size());
+        for (SagaReply reply : fresh) {
+            Booking booking = bookings.get(reply.bookingId());
+            if (booking == null) {
+                log.warn("⚠️ SAGA: Бронь {} не найдена, пропускаем {}", reply.bookingId(), reply.type());
+                continue;
+            }
+            apply(booking, reply);
+            handled.add(reply);
+        }
+        processedSagaEvents.markProcessed(handled);
     }
 
-    //  ЛОГИКА СОЗДАНИЯ (То, что нужно добавить для clean BookingService)
+    private void apply(Booking booking, SagaReply reply) {
+        Booking.Status before = booking.getStatus();
+        BookingStateMachine.Result result = BookingStateMachine.apply(booking, reply);
+
+        switch (result.outcome()) {
+            case APPLIED -> log.info("✅ SAGA: {} для брони {}: {} -> {}",
+                    reply.type(), booking.getId(), before, booking.getStatus());
+            case DUPLICATE -> log.debug("SAGA: {} для брони {} уже учтён (статус {})",
+                    reply.type(), booking.getId(), before);
+            case REJECTED -> log.warn("⚠️ SAGA: {} не применим к брони {} в статусе {}{}",
+                    reply.type(), booking.getId(), before,
+                    reply.reason() != null ? " (" + reply.reason() + ")" : "");
+        }
 
-    public void finalizeBookingCreation(Long bookingId, String paymentSessionId) {
-        Booking booking = getBookingOrThrow(bookingId);
+        if (booking.getStatus() != before) {
+            publishStatus(booking);
+        }
 
-        if (booking.getStatus() == Booking.Status.PENDING) {
-            booking.setStatus(Booking.Status.CONFIRMED);
-            booking.setPaymentId(paymentSessionId);
-            bookingRepository.save(booking);
-            log.info("✅ SAGA: Бронь {} успешно ПОДТВЕРЖДЕНА (Оплата прошла)", bookingId);
-        } else {
-            // Этот лог полезен для отладки, если вдруг пришел дубликат события
-            log.warn("⚠️ SAGA: Игнорируем подтверждение для брони {}, так как статус уже {}",
-                    bookingId, booking.getStatus());
+        if (result.effect() == BookingStateMachine.Effect.REQUEST_COMPENSATION) {
+            log.warn("🛑 SAGA: Ошибка создания брони {}. Причина: {}", booking.getId(), reply.reason());
+            requestCompensation(booking);
         }
     }
 
     /**
-     * Вызывается, когда Accommodation (нет мест) или Payment (нет денег) прислали отказ.
+     * Picked up by the status stream after commit, so subscribers never see a rolled-back status.
      */
-    public void failBookingCreation(Long bookingId, String reason) {
-        Booking booking = getBookingOrThrow(bookingId);
-
-        log.warn("🛑 SAGA: Ошибка создания брони {}. Причина: {}", bookingId, reason);
-
-        // Переводим в CANCELED, если она еще "жива"
-        if (booking.getStatus() == Booking.Status.PENDING) {
-            booking.setStatus(Booking.Status.CANCELED);
-            bookingRepository.save(booking);
-        }
+    private void publishStatus(Booking booking) {
+        eventPublisher.publishEvent(new BookingStatusChangedEvent(booking.getId(), booking.getStatus()));
     }
 
-    private void checkCancellationComplete(Booking booking) {
-        if (booking.isPaymentCanceled() && booking.isDatesUnlocked()) {
-            booking.setStatus(Booking.Status.CANCELED);
-            bookingRepository.save(booking);
-            log.info("SAGA: Бронь {} полностью ОТМЕНЕНА", booking.getId());
-        }
+    private void requestCompensation(Booking booking) {
+        bookingMessageProducer.sendBookingCancellationRequested(new BookingCancellationRequestedEvent(
+                booking.getId(),
+                booking.getAccommodationId(),
+                booking.getCheckInDate(),
+                booking.getCheckOutDate(),
+                booking.getPaymentId(),
+                booking.isRefundNeeded()
+        ));
     }
 
     private Booking getBookingOrThrow(Long bookingId) {
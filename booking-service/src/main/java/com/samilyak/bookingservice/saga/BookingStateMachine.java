@@ -0,0 +1,101 @@
+package com.samilyak.bookingservice.saga;
+
+import com.samilyak.bookingservice.model.Booking;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import static com.samilyak.bookingservice.model.Booking.Status.CANCELED;
+import static com.samilyak.bookingservice.model.Booking.Status.CANCELING;
+import static com.samilyak.bookingservice.model.Booking.Status.CONFIRMED;
+import static com.samilyak.bookingservice.model.Booking.Status.EXPIRED;
+import static com.samilyak.bookingservice.model.Booking.Status.PENDING;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.DATES_UNLOCKED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.INVENTORY_FAILED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_CANCELED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_FAILED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_SUCCEEDED;
+
+/**
+ * Transition table of the booking saga: for every status, which reply moves the booking and how.
+ * A reply that is already reflected in the booking is a duplicate and leaves the entity untouched,
+ * so Hibernate has nothing to flush. Anything not in the table is rejected.
+ */
+final class BookingStateMachine {
+
+    enum Outcome {
+        APPLIED, DUPLICATE, REJECTED
+    }
+
+    /**
+     * What the saga must do besides saving the booking
+     */
+    enum Effect {
+        NONE, REQUEST_COMPENSATION
+    }
+
+    record Result(Outcome outcome, Effect effect) {
+        static final Result DUPLICATE = new Result(Outcome.DUPLICATE, Effect.NONE);
+        static final Result REJECTED = new Result(Outcome.REJECTED, Effect.NONE);
+    }
+
+    private record Transition(BiPredicate<Booking, SagaReply> action, Effect effect) {
+    }
+
+    private static final Map<Booking.Status, Map<SagaReply.Type, Transition>> TRANSITIONS =
+            new EnumMap<>(Booking.Status.class);
+    private static final Map<Booking.Status, Set<SagaReply.Type>> DUPLICATES = new EnumMap<>(Booking.Status.class);
+
+    static {
+        on(PENDING, PAYMENT_SUCCEEDED, Effect.NONE, (booking, reply) -> {
+            booking.confirm(reply.paymentSessionId());
+            return true;
+        });
+        on(PENDING, INVENTORY_FAILED, Effect.NONE, (booking, reply) -> {
+            booking.rejectCreation();
+            return true;
+        });
+        // Ночи уже заблокированы — их нужно отпустить
+        on(PENDING, PAYMENT_FAILED, Effect.REQUEST_COMPENSATION, (booking, reply) -> {
+            booking.failBooking();
+            return true;
+        });
+        on(CANCELING, PAYMENT_CANCELED, Effect.NONE, (booking, reply) -> booking.markPaymentCanceled());
+        on(CANCELING, DATES_UNLOCKED, Effect.NONE, (booking, reply) -> booking.markDatesUnlocked());
+
+        // Повторы уже учтённых ответов
+        duplicates(CONFIRMED, PAYMENT_SUCCEEDED);
+        duplicates(CANCELING, PAYMENT_FAILED);
+        duplicates(CANCELED, INVENTORY_FAILED, PAYMENT_FAILED, PAYMENT_CANCELED, DATES_UNLOCKED);
+        duplicates(EXPIRED, PAYMENT_FAILED, PAYMENT_CANCELED, DATES_UNLOCKED);
+    }
+
+    private BookingStateMachine() {
+    }
+
+    static Result apply(Booking booking, SagaReply reply) {
+        Transition transition = TRANSITIONS.getOrDefault(booking.getStatus(), Map.of()).get(reply.type());
+        if (transition == null) {
+            return DUPLICATES.getOrDefault(booking.getStatus(), Set.of()).contains(reply.type())
+                    ? Result.DUPLICATE
+                    : Result.REJECTED;
+        }
+        return transition.action().test(booking, reply)
+                ? new Result(Outcome.APPLIED, transition.effect())
+                : Result.DUPLICATE;
+    }
+
+    private static void on(Booking.Status status, SagaReply.Type type, Effect effect,
+                           BiPredicate<Booking, SagaReply> action) {
+        TRANSITIONS.computeIfAbsent(status, s -> new EnumMap<>(SagaReply.Type.class))
+                .put(type, new Transition(action, effect));
+    }
+
+    private static void duplicates(Booking.Status status, SagaReply.Type first, SagaReply.Type... rest) {
+        DUPLICATES.computeIfAbsent(status, s -> EnumSet.noneOf(SagaReply.Type.class))
+                .addAll(EnumSet.of(first, rest));
+    }
+}
@@ -0,0 +1,9 @@
+package com.samilyak.bookingservice.saga;
+
+import com.samilyak.bookingservice.model.Booking;
+
+/**
+ * Published inside the transaction that moved the booking; listeners see it only after commit.
+ */
+public record BookingStatusChangedEvent(Long bookingId, Booking.Status status) {
+}
@@ -0,0 +1,75 @@
+package com.samilyak.bookingservice.saga;
+
+import com.samilyak.bookingservice.model.ProcessedSagaEvent;
+import com.samilyak.bookingservice.repository.ProcessedSagaEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Store of applied saga replies keyed by (bookingId, eventType, eventId).
+ */
+@Slf4j
+@Component
+class ProcessedSagaEvents {
+
+    private final ProcessedSagaEventRepository processedSagaEventRepository;
+    private final Duration retention;
+
+    ProcessedSagaEvents(ProcessedSagaEventRepository processedSagaEventRepository,
+                        @Value("${application.saga.processed-events.retention:7d}") Duration retention) {
+        this.processedSagaEventRepository = processedSagaEventRepository;
+        this.retention = retention;
+    }
+
+    /**
+     * Replies seen for the first time, in arrival order. One query for the whole batch;
+     * repeats inside the batch itself are dropped too.
+     */
+    List<SagaReply> dropProcessed(List<SagaReply> replies) {
+        Set<Long> bookingIds = new HashSet<>();
+        replies.forEach(reply -> bookingIds.add(reply.bookingId()));
+        Set<ProcessedSagaEvent.Key> seen = new HashSet<>(processedSagaEventRepository.findKeysByBookingIds(bookingIds));
+
+        List<SagaReply> fresh = new ArrayList<>(replies.size());
+        for (SagaReply reply : replies) {
+            if (seen.add(keyOf(reply))) {
+                fresh.add(reply);
+            }
+        }
+        if (fresh.size() < replies.size()) {
+            log.info("♻️ SAGA: пропущено {} повторных ответов", replies.size() - fresh.size());
+        }
+        return fresh;
+    }
+
+    void markProcessed(List<SagaReply> replies) {
+        Instant now = Instant.now();
+        processedSagaEventRepository.saveAll(replies.stream()
+                .map(reply -> new ProcessedSagaEvent(keyOf(reply), now))
+                .toList());
+    }
+
+    /**
+     * Keys only have to outlive redelivery; after that the state machine alone filters repeats.
+     */
+    @Transactional
+    @Scheduled(cron = "${application.saga.processed-events.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int deleted = processedSagaEventRepository.deleteProcessedBefore(Instant.now().minus(retention));
+        log.info("🧹 SAGA: удалено {} записей об обработанных ответах", deleted);
+    }
+
+    private static ProcessedSagaEvent.Key keyOf(SagaReply reply) {
+        return new ProcessedSagaEvent.Key(reply.bookingId(), reply.type().name(), reply.eventId());
+    }
+}
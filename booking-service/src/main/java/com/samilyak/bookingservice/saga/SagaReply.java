@@ -0,0 +1,40 @@
+package com.samilyak.bookingservice.saga;
+
+/**
+ * One reply from accommodation-service or payment-service, reduced to what the saga needs.
+ * {@code eventId} identifies the Kafka record it came from and is the deduplication key.
+ */
+public record SagaReply(
+
+        Type type,
+        Long bookingId,
+        String eventId,
+        String paymentSessionId,
+        String reason
+
+) {
+
+    public static SagaReply paymentSucceeded(Long bookingId, String eventId, String paymentSessionId) {
+        return new SagaReply(Type.PAYMENT_SUCCEEDED, bookingId, eventId, paymentSessionId, null);
+    }
+
+    public static SagaReply inventoryFailed(Long bookingId, String eventId, String reason) {
+        return new SagaReply(Type.INVENTORY_FAILED, bookingId, eventId, null, reason);
+    }
+
+    public static SagaReply paymentFailed(Long bookingId, String eventId, String reason) {
+        return new SagaReply(Type.PAYMENT_FAILED, bookingId, eventId, null, reason);
+    }
+
+    public static SagaReply paymentCanceled(Long bookingId, String eventId) {
+        return new SagaReply(Type.PAYMENT_CANCELED, bookingId, eventId, null, null);
+    }
+
+    public static SagaReply datesUnlocked(Long bookingId, String eventId) {
+        return new SagaReply(Type.DATES_UNLOCKED, bookingId, eventId, null, null);
+    }
+
+    public enum Type {
+        PAYMENT_SUCCEEDED, INVENTORY_FAILED, PAYMENT_FAILED, PAYMENT_CANCELED, DATES_UNLOCKED
+    }
+}
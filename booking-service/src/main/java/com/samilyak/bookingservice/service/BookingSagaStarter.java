@@ -0,0 +1,145 @@
+package com.samilyak.bookingservice.service;
+
+import com.samilyak.bookingservice.client.AccommodationClient;
+import com.samilyak.bookingservice.dto.accommodation.AccommodationDto;
+import com.samilyak.bookingservice.dto.notification.NotificationDto;
+import com.samilyak.bookingservice.messaging.NotificationProducer;
+import com.samilyak.bookingservice.messaging.kafka.BookingMessageProducer;
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.repository.BookingRepository;
+import com.samilyak.bookingservice.saga.BookingStatusChangedEvent;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Prices a PENDING booking and hands it to the saga.
+ * The synchronous endpoint does it inline; for the asynchronous one it runs on a virtual thread
+ * once the booking row is committed. If the process dies in between, the reaper expires the booking.
+ */
+@Slf4j
+@Component
+class BookingSagaStarter {
+
+    private final BookingRepository bookingRepository;
+    private final AccommodationClient accommodationClient;
+    private final BookingMessageProducer messageProducer;
+    private final NotificationProducer notificationProducer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    // Не больше стольких одновременных запросов в accommodation-service
+    private final Semaphore permits;
+
+    BookingSagaStarter(BookingRepository bookingRepository,
+                       AccommodationClient accommodationClient,
+                       BookingMessageProducer messageProducer,
+                       NotificationProducer notificationProducer,
+                       ApplicationEventPublisher eventPublisher,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${application.booking.async-create.max-in-flight:64}") int maxInFlight) {
+        this.bookingRepository = bookingRepository;
+        this.accommodationClient = accommodationClient;
+        this.messageProducer = messageProducer;
+        this.notificationProducer = notificationProducer;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("booking-start-", 0).factory());
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Must run inside the transaction that holds the booking: the events go through the outbox.
+     */
+    void start(Booking booking, AccommodationDto accommodation) {
+        long days = ChronoUnit.DAYS.between(booking.getCheckInDate(), booking.getCheckOutDate());
+        booking.setTotalPrice(accommodation.dailyRate().multiply(BigDecimal.valueOf(days)));
+
+        log.info("Booking #{} priced at {}. Starting SAGA...", booking.getId(), booking.getTotalPrice());
+
+        messageProducer.sendBookingCreated(new BookingCreatedEvent(
+                booking.getId(),
+                booking.getUserId(),
+                booking.getAccommodationId(),
+                booking.getCheckInDate(),
+                booking.getCheckOutDate(),
+                booking.getTotalPrice(),
+                booking.getPhoneNumber(),
+                accommodation.version()
+        ));
+
+        NotificationDto notification = new NotificationDto(
+                booking.getUserId(),
+                booking.getPhoneNumber(),
+                "Ваше бронирование #" + booking.getId() + " создано и ожидает оплаты."
+        );
+        notificationProducer.sendNotification(notification, List.of("telegram", "email"));
+    }
+
+    /**
+     * Schedules {@link #start} for after the current transaction commits; the caller returns immediately.
+     */
+    void startAfterCommit(Long bookingId, Long accommodationId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                executor.execute(() -> startInBackground(bookingId, accommodationId));
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.close();
+    }
+
+    private void startInBackground(Long bookingId, Long accommodationId) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            AccommodationDto accommodation;
+            try {
+                accommodation = accommodationClient.getAccommodationById(accommodationId);
+            } catch (Exception e) {
+                log.warn("❌ Жильё {} для брони {} недоступно: {}", accommodationId, bookingId, e.getMessage());
+                transactionTemplate.executeWithoutResult(tx -> reject(bookingId));
+                return;
+            }
+            transactionTemplate.executeWithoutResult(tx -> bookingRepository.findById(bookingId)
+                    // Бронь могли удалить или уже отменить по таймауту
+                    .filter(booking -> booking.getStatus() == Booking.Status.PENDING && booking.getTotalPrice() == null)
+                    .ifPresent(booking -> start(booking, accommodation)));
+        } catch (Exception e) {
+            // Бронь останется в PENDING, её подберёт reaper
+            log.error("❌ Не удалось запустить SAGA для брони {}: {}", bookingId, e.getMessage(), e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reject(Long bookingId) {
+        bookingRepository.findById(bookingId)
+                .filter(booking -> booking.getStatus() == Booking.Status.PENDING)
+                .ifPresent(booking -> {
+                    booking.rejectCreation();
+                    eventPublisher.publishEvent(new BookingStatusChangedEvent(booking.getId(), booking.getStatus()));
+                });
+    }
+}
@@ -2,6 +2,7 @@ package com.samilyak.bookingservice.service;
 
 import com.samilyak.bookingservice.dto.booking.BookingRequestDto;
 import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
 import com.samilyak.bookingservice.model.Booking;
 
 import java.util.List;
@@ -10,10 +11,19 @@ public interface BookingService {
 
     BookingResponseDto createBooking(BookingRequestDto requestDto, String userId, String role);
 
+    BookingStatusDto requestBooking(BookingRequestDto requestDto, String userId, String role);
+
     List<BookingResponseDto> getUserBookings(String userId);
 
     BookingResponseDto getBookingById(Long id, String userId, String role);
 
+    BookingStatusDto getBookingStatus(Long id, String userId, String role);
+
+    /**
+     * For service-to-service checks; unknown ids are simply missing from the result
+     */
+    List<BookingStatusDto> getBookingStatuses(List<Long> ids);
+
     Long getUserIdByBookingId(Long bookingId);
 
     void deleteBookingById(Long id, String role);
@@ -1,29 +1,22 @@
 package com.samilyak.bookingservice.service;
 
 import com.samilyak.bookingservice.client.AccommodationClient;
+import com.samilyak.bookingservice.config.cache.BookingCache;
+import com.samilyak.bookingservice.dto.accommodation.AccommodationDto;
 import com.samilyak.bookingservice.dto.booking.BookingRequestDto;
 import com.samilyak.bookingservice.dto.booking.BookingResponseDto;
-import com.samilyak.bookingservice.dto.accommodation.AccommodationDto;
-import com.samilyak.bookingservice.dto.event.BookingCreatedEvent;
-import com.samilyak.bookingservice.dto.notification.NotificationDto;
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
 import com.samilyak.bookingservice.exception.AccessDeniedException;
 import com.samilyak.bookingservice.exception.EntityNotFoundException;
 import com.samilyak.bookingservice.mapper.BookingMapper;
-import com.samilyak.bookingservice.messaging.NotificationProducer;
-import com.samilyak.bookingservice.messaging.kafka.BookingMessageProducer;
 import com.samilyak.bookingservice.model.Booking;
 import com.samilyak.bookingservice.repository.BookingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Slf4j
@@ -34,83 +27,71 @@ public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
     private final AccommodationClient accommodationClient;
     private final BookingMapper bookingMapper;
-    private final NotificationProducer notificationProducer;
-    private final BookingMessageProducer messageProducer;
+    private final BookingSagaStarter bookingSagaStarter;
+    private final BookingCache bookingCache;
 
     @Override
-    @CacheEvict(value = {"userBookings"}, key = "#userId")
     @Transactional
     public BookingResponseDto createBooking(BookingRequestDto requestDto, String userId, String role) {
-        log.info("🔥🔥🔥 ВЕРСИЯ 2.0 - ПРОВЕРКА! Время: {}", java.time.LocalDateTime.now());
-
         validateDates(requestDto);
 
         AccommodationDto accommodation = accommodationClient.getAccommodationById(
                 requestDto.accommodationId()
         );
 
-        //  Рассчитываем стоимость
-        long days = ChronoUnit.DAYS.between(requestDto.checkInDate(), requestDto.checkOutDate());
-        BigDecimal dailyRate = accommodation.dailyRate();
-        BigDecimal totalPrice = dailyRate.multiply(BigDecimal.valueOf(days));
-
-        //  Создаем бронь PENDING
-        Long userIdLong = null;
-        try {
-            userIdLong = Long.valueOf(userId);
-        } catch (NumberFormatException e) {
-            log.warn("UserId '{}' is not numeric — using null instead", userId);
-        }
-
-        Booking savedBooking = savePendingBooking(requestDto, userIdLong, totalPrice);
-
-        log.info("Booking #{} saved with status PENDING. Starting SAGA...", savedBooking.getId());
-
-        BookingCreatedEvent event = new BookingCreatedEvent(
-                savedBooking.getId(),
-                userIdLong,
-                requestDto.accommodationId(),
-                requestDto.checkInDate(),
-                requestDto.checkOutDate(),
-                savedBooking.getTotalPrice(),
-                requestDto.phoneNumber(),
-                accommodation.version()
-        );
+        Booking savedBooking = savePendingBooking(requestDto, parseUserId(userId));
+        bookingSagaStarter.start(savedBooking, accommodation);
 
-        messageProducer.sendBookingCreated(event);
+        return bookingMapper.toDto(savedBooking);
+    }
 
-        NotificationDto notification = new NotificationDto(
-                userIdLong,
-                requestDto.phoneNumber(),
-                "Ваше бронирование #" + savedBooking.getId() + " создано и ожидает оплаты."
-        );
+    /**
+     * Only the PENDING row is written on the request thread; the price lookup and the saga start
+     * happen after commit, see {@link BookingSagaStarter}. Progress is followed through the status stream.
+     */
+    @Override
+    @Transactional
+    public BookingStatusDto requestBooking(BookingRequestDto requestDto, String userId, String role) {
+        validateDates(requestDto);
 
-        notificationProducer.sendNotification(
-                notification,
-                List.of("telegram", "email")
-        );
+        Booking savedBooking = savePendingBooking(requestDto, parseUserId(userId));
+        bookingSagaStarter.startAfterCommit(savedBooking.getId(), savedBooking.getAccommodationId());
 
-        return bookingMapper.toDto(savedBooking);
+        log.info("📥 Бронь #{} принята, SAGA будет запущена асинхронно", savedBooking.getId());
+        return new BookingStatusDto(savedBooking.getId(), savedBooking.getStatus());
     }
 
-    @Cacheable(value = "userBookings", key = "#userId", unless = "#result.size() == 0")
     @Override
     public List<BookingResponseDto> getUserBookings(String userId) {
-        return bookingRepository.findAllByUserId(Long.valueOf(userId))
-                .stream()
-                .map(bookingMapper::toDto)
-                .toList();
+        Long id = Long.valueOf(userId);
+        return bookingCache.getUserBookings(id,
+                () -> toDtos(bookingRepository.findAllByUserId(id)),
+                ids -> toDtos(bookingRepository.findAllById(ids)));
     }
 
-    @Cacheable(value = "booking", key = "#id + ':' + #userId")
+    /**
+     * Cached per booking, not per caller: the access check runs on every read, cached or not.
+     */
     @Override
     public BookingResponseDto getBookingById(Long id, String userId, String role) {
+        BookingResponseDto booking = bookingCache.getBooking(id, () -> bookingMapper.toDto(getBookingById(id)));
+        checkAccess(booking.userId(), userId, role);
+        return booking;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BookingStatusDto getBookingStatus(Long id, String userId, String role) {
         Booking booking = getBookingById(id);
+        checkAccess(booking.getUserId(), userId, role);
+        return new BookingStatusDto(booking.getId(), booking.getStatus());
+    }
 
-        if (!booking.getUserId().equals(Long.valueOf(userId)) && !"MANAGER".equals(role)) {
-            throw new AccessDeniedException("You are not authorized to view this booking.");
-        }
-        return bookingMapper.toDto(booking);
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookingStatusDto> getBookingStatuses(List<Long> ids) {
+        log.info("📌 Статусы {} броней", ids.size());
+        return ids.isEmpty() ? List.of() : bookingRepository.findStatusesByIdIn(ids);
     }
 
     @Transactional(readOnly = true)
@@ -123,7 +104,6 @@ public class BookingServiceImpl implements BookingService {
         return userId;
     }
 
-    @CacheEvict(value = {"userBookings"}, key = "#role")
     @Override
     public void deleteBookingById(Long id, String role) {
         if (!"MANAGER".equals(role)) {
@@ -149,20 +129,39 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
+    private List<BookingResponseDto> toDtos(List<Booking> bookings) {
+        return bookings.stream()
+                .map(bookingMapper::toDto)
+                .toList();
+    }
+
+    private void checkAccess(Long ownerId, String userId, String role) {
+        if (!ownerId.equals(Long.valueOf(userId)) && !"MANAGER".equals(role)) {
+            throw new AccessDeniedException("You are not authorized to view this booking.");
+        }
+    }
+
+    private Long parseUserId(String userId) {
+        try {
+            return Long.valueOf(userId);
+        } catch (NumberFormatException e) {
+            log.warn("UserId '{}' is not numeric — using null instead", userId);
+            return null;
+        }
+    }
+
     private Booking getBookingById(Long id) {
         return bookingRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Booking not found with id: " + id));
     }
 
-    private Booking savePendingBooking(BookingRequestDto dto, Long userId, BigDecimal totalPrice) {
+    private Booking savePendingBooking(BookingRequestDto dto, Long userId) {
         Booking booking = new Booking();
         booking.setAccommodationId(dto.accommodationId());
         booking.setUserId(userId);
         booking.setCheckInDate(dto.checkInDate());
         booking.setCheckOutDate(dto.checkOutDate());
         booking.setPhoneNumber(dto.phoneNumber());
-        booking.setStatus(Booking.Status.PENDING);
-        booking.setTotalPrice(totalPrice);
         return bookingRepository.save(booking);
     }
 }
@@ -0,0 +1,125 @@
+package com.samilyak.bookingservice.service;
+
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.saga.BookingStatusChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Pushes booking status changes to Server-Sent-Events subscribers.
+ * The client may be connected to any replica, so every committed change goes through a Redis channel
+ * ({@code <bookingId>:<status>}) and each replica delivers it to its own subscribers.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingStatusStream implements MessageListener {
+
+    private static final String EVENT_NAME = "status";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${application.booking.status-stream.channel:booking-status}")
+    private String channel;
+
+    @Value("${application.booking.status-stream.timeout:5m}")
+    private Duration timeout;
+
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * The current status is read after the emitter is registered, so a transition that lands
+     * in between is delivered twice rather than lost. The stream completes on a final status.
+     */
+    public SseEmitter subscribe(Long bookingId, Supplier<BookingStatusDto> currentStatus) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        subscribers.compute(bookingId, (id, emitters) -> {
+            Set<SseEmitter> set = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            set.add(emitter);
+            return set;
+        });
+        emitter.onCompletion(() -> unsubscribe(bookingId, emitter));
+        emitter.onError(e -> unsubscribe(bookingId, emitter));
+        // EventSource сам переподключится
+        emitter.onTimeout(emitter::complete);
+
+        BookingStatusDto current;
+        try {
+            current = currentStatus.get();
+        } catch (RuntimeException e) {
+            unsubscribe(bookingId, emitter);
+            throw e;
+        }
+        send(emitter, current);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(BookingStatusChangedEvent event) {
+        try {
+            redisTemplate.convertAndSend(channel, event.bookingId() + ":" + event.status().name());
+        } catch (Exception e) {
+            // Подписчики на других репликах увидят статус при переподключении
+            log.warn("⚠️ Не удалось разослать статус брони {}: {}", event.bookingId(), e.getMessage());
+            deliver(new BookingStatusDto(event.bookingId(), event.status()));
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        try {
+            deliver(new BookingStatusDto(
+                    Long.valueOf(body.substring(0, separator)),
+                    Booking.Status.valueOf(body.substring(separator + 1))));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Некорректное сообщение о статусе брони: {}", body);
+        }
+    }
+
+    private void deliver(BookingStatusDto status) {
+        Set<SseEmitter> emitters = subscribers.get(status.bookingId());
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(emitter, status));
+        }
+    }
+
+    private void send(SseEmitter emitter, BookingStatusDto status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(status, MediaType.APPLICATION_JSON));
+            if (status.status().isFinal()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE-подписчик брони {} отключился: {}", status.bookingId(), e.getMessage());
+            unsubscribe(status.bookingId(), emitter);
+        }
+    }
+
+    private void unsubscribe(Long bookingId, SseEmitter emitter) {
+        subscribers.computeIfPresent(bookingId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
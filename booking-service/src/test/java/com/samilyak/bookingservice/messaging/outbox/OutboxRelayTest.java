@@ -0,0 +1,91 @@
+package com.samilyak.bookingservice.messaging.outbox;
+
+import com.samilyak.bookingservice.model.OutboxEvent;
+import com.samilyak.bookingservice.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        relay = new OutboxRelay(outboxEventRepository, kafkaTemplate, rabbitTemplate, transactionTemplate,
+                BATCH_SIZE, 100, MAX_ATTEMPTS);
+    }
+
+    @Test
+    void publishedRowsAreDeletedAndRefusedOnesCounted() {
+        OutboxEvent refused = kafka(1L, "poison", 0);
+        OutboxEvent accepted = kafka(2L, "ok", 0);
+        when(outboxEventRepository.lockNextBatch(BATCH_SIZE)).thenReturn(List.of(refused, accepted));
+        when(kafkaTemplate.send("saga", "poison", refused.getPayload()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("record too large")));
+        when(kafkaTemplate.send("saga", "ok", accepted.getPayload()))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        relay.relay();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+        verify(outboxEventRepository).recordFailures(eq(List.of(1L)), eq(MAX_ATTEMPTS), any());
+    }
+
+    @Test
+    void completeBatchRecordsNoFailures() {
+        OutboxEvent accepted = kafka(1L, "ok", 2);
+        when(outboxEventRepository.lockNextBatch(BATCH_SIZE)).thenReturn(List.of(accepted));
+        when(kafkaTemplate.send("saga", "ok", accepted.getPayload()))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        relay.relay();
+
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxEventRepository, never()).recordFailures(anyCollection(), anyInt(), any());
+    }
+
+    private static OutboxEvent kafka(Long id, String key, int attempts) {
+        return OutboxEvent.builder()
+                .id(id)
+                .channel(OutboxEvent.Channel.KAFKA)
+                .destination("saga")
+                .messageKey(key)
+                .payload(key.getBytes())
+                .attempts(attempts)
+                .build();
+    }
+}
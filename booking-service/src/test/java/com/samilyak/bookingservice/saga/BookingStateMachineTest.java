@@ -0,0 +1,188 @@
+package com.samilyak.bookingservice.saga;
+
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.saga.BookingStateMachine.Effect;
+import com.samilyak.bookingservice.saga.BookingStateMachine.Outcome;
+import com.samilyak.bookingservice.saga.BookingStateMachine.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static com.samilyak.bookingservice.model.Booking.Status.CANCELED;
+import static com.samilyak.bookingservice.model.Booking.Status.CANCELING;
+import static com.samilyak.bookingservice.model.Booking.Status.CANCEL_FAILED;
+import static com.samilyak.bookingservice.model.Booking.Status.CONFIRMED;
+import static com.samilyak.bookingservice.model.Booking.Status.EXPIRED;
+import static com.samilyak.bookingservice.model.Booking.Status.PENDING;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.DATES_UNLOCKED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.INVENTORY_FAILED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_CANCELED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_FAILED;
+import static com.samilyak.bookingservice.saga.SagaReply.Type.PAYMENT_SUCCEEDED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookingStateMachineTest {
+
+    private static final Long BOOKING_ID = 42L;
+
+    @Test
+    void paymentSucceededConfirmsPendingBooking() {
+        Booking booking = booking(PENDING);
+
+        Result result = BookingStateMachine.apply(booking, SagaReply.paymentSucceeded(BOOKING_ID, "e1", "cs_1"));
+
+        assertThat(result).isEqualTo(new Result(Outcome.APPLIED, Effect.NONE));
+        assertThat(booking.getStatus()).isEqualTo(CONFIRMED);
+        assertThat(booking.getPaymentId()).isEqualTo("cs_1");
+        assertThat(booking.isRefundNeeded()).isTrue();
+    }
+
+    @Test
+    void inventoryFailedCancelsPendingBookingWithoutCompensation() {
+        Booking booking = booking(PENDING);
+
+        Result result = BookingStateMachine.apply(booking, SagaReply.inventoryFailed(BOOKING_ID, "e1", "taken"));
+
+        assertThat(result).isEqualTo(new Result(Outcome.APPLIED, Effect.NONE));
+        assertThat(booking.getStatus()).isEqualTo(CANCELED);
+    }
+
+    @Test
+    void paymentFailedStartsCompensation() {
+        Booking booking = booking(PENDING);
+
+        Result result = BookingStateMachine.apply(booking, SagaReply.paymentFailed(BOOKING_ID, "e1", "declined"));
+
+        assertThat(result).isEqualTo(new Result(Outcome.APPLIED, Effect.REQUEST_COMPENSATION));
+        assertThat(booking.getStatus()).isEqualTo(CANCELING);
+        assertThat(booking.isRefundNeeded()).isFalse();
+    }
+
+    @Test
+    void canceledBookingFinishesOnlyAfterBothReplies() {
+        Booking booking = booking(CANCELING);
+
+        assertThat(BookingStateMachine.apply(booking, SagaReply.paymentCanceled(BOOKING_ID, "e1")).outcome())
+                .isEqualTo(Outcome.APPLIED);
+        assertThat(booking.getStatus()).isEqualTo(CANCELING);
+
+        assertThat(BookingStateMachine.apply(booking, SagaReply.datesUnlocked(BOOKING_ID, "e2")).outcome())
+                .isEqualTo(Outcome.APPLIED);
+        assertThat(booking.getStatus()).isEqualTo(CANCELED);
+    }
+
+    @Test
+    void failedBookingExpiresOnceDatesAreUnlocked() {
+        Booking booking = booking(PENDING);
+        BookingStateMachine.apply(booking, SagaReply.paymentFailed(BOOKING_ID, "e1", "declined"));
+
+        Result result = BookingStateMachine.apply(booking, SagaReply.datesUnlocked(BOOKING_ID, "e2"));
+
+        assertThat(result.outcome()).isEqualTo(Outcome.APPLIED);
+        assertThat(booking.getStatus()).isEqualTo(EXPIRED);
+    }
+
+    @Test
+    void repeatedCompensationReplyIsDuplicateAndLeavesBookingUntouched() {
+        Booking booking = booking(CANCELING);
+        BookingStateMachine.apply(booking, SagaReply.paymentCanceled(BOOKING_ID, "e1"));
+        Long version = booking.getVersion();
+
+        Result result = BookingStateMachine.apply(booking, SagaReply.paymentCanceled(BOOKING_ID, "e1-redelivered"));
+
+        assertThat(result).isEqualTo(Result.DUPLICATE);
+        assertThat(booking.getStatus()).isEqualTo(CANCELING);
+        assertThat(booking.getVersion()).isEqualTo(version);
+    }
+
+    @ParameterizedTest(name = "{0} + {1} -> DUPLICATE")
+    @MethodSource("duplicates")
+    void repliesAlreadyReflectedAreDuplicates(Booking.Status status, SagaReply.Type type) {
+        Booking booking = booking(status);
+
+        Result result = BookingStateMachine.apply(booking, reply(type));
+
+        assertThat(result).isEqualTo(Result.DUPLICATE);
+        assertThat(booking.getStatus()).isEqualTo(status);
+    }
+
+    static Stream<Arguments> duplicates() {
+        return Stream.of(
+                Arguments.of(CONFIRMED, PAYMENT_SUCCEEDED),
+                Arguments.of(CANCELING, PAYMENT_FAILED),
+                Arguments.of(CANCELED, INVENTORY_FAILED),
+                Arguments.of(CANCELED, PAYMENT_FAILED),
+                Arguments.of(CANCELED, PAYMENT_CANCELED),
+                Arguments.of(CANCELED, DATES_UNLOCKED),
+                Arguments.of(EXPIRED, PAYMENT_FAILED),
+                Arguments.of(EXPIRED, PAYMENT_CANCELED),
+                Arguments.of(EXPIRED, DATES_UNLOCKED)
+        );
+    }
+
+    @ParameterizedTest(name = "{0} + {1} -> REJECTED")
+    @MethodSource("rejections")
+    void transitionsOutsideTheTableAreRejected(Booking.Status status, SagaReply.Type type) {
+        Booking booking = booking(status);
+
+        Result result = BookingStateMachine.apply(booking, reply(type));
+
+        assertThat(result).isEqualTo(Result.REJECTED);
+        assertThat(booking.getStatus()).isEqualTo(status);
+    }
+
+    static Stream<Arguments> rejections() {
+        return Stream.of(
+                // Оплата пришла после истечения или отмены брони — это сверка, а не сага
+                Arguments.of(EXPIRED, PAYMENT_SUCCEEDED),
+                Arguments.of(CANCELED, PAYMENT_SUCCEEDED),
+                Arguments.of(CANCELING, PAYMENT_SUCCEEDED),
+                Arguments.of(CONFIRMED, PAYMENT_FAILED),
+                Arguments.of(CONFIRMED, INVENTORY_FAILED),
+                Arguments.of(PENDING, PAYMENT_CANCELED),
+                Arguments.of(PENDING, DATES_UNLOCKED),
+                Arguments.of(CANCEL_FAILED, DATES_UNLOCKED)
+        );
+    }
+
+    /**
+     * Walks a new booking through the real transitions, so the saga flags match the status
+     */
+    private static Booking booking(Booking.Status status) {
+        Booking booking = new Booking();
+        booking.setId(BOOKING_ID);
+        booking.setVersion(3L);
+        switch (status) {
+            case PENDING -> {
+            }
+            case CONFIRMED -> booking.confirm("cs_1");
+            case CANCELING -> {
+                booking.confirm("cs_1");
+                booking.startCancellation();
+            }
+            case CANCELED -> {
+                booking.confirm("cs_1");
+                booking.startCancellation();
+                booking.markPaymentCanceled();
+                booking.markDatesUnlocked();
+            }
+            case EXPIRED -> {
+                booking.failBooking();
+                booking.markDatesUnlocked();
+            }
+            case CANCEL_FAILED -> {
+                booking.failBooking();
+                booking.failCancellation();
+            }
+        }
+        assertThat(booking.getStatus()).isEqualTo(status);
+        return booking;
+    }
+
+    private static SagaReply reply(SagaReply.Type type) {
+        return new SagaReply(type, BOOKING_ID, "e-" + type, "cs_1", null);
+    }
+}
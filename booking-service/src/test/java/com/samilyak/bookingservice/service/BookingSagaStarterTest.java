@@ -0,0 +1,175 @@
+package com.samilyak.bookingservice.service;
+
+import com.samilyak.bookingservice.client.AccommodationClient;
+import com.samilyak.bookingservice.dto.accommodation.AccommodationDto;
+import com.samilyak.bookingservice.messaging.NotificationProducer;
+import com.samilyak.bookingservice.messaging.kafka.BookingMessageProducer;
+import com.samilyak.bookingservice.messaging.outbox.OutboxWriter;
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.repository.BookingRepository;
+import com.samilyak.bookingservice.saga.BookingStatusChangedEvent;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingSagaStarterTest {
+
+    private static final Long BOOKING_ID = 42L;
+    private static final Long ACCOMMODATION_ID = 7L;
+    private static final String BOOKING_CREATED_TOPIC = "booking-created";
+    private static final long ASYNC_TIMEOUT_MS = 2000;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private AccommodationClient accommodationClient;
+
+    @Mock
+    private OutboxWriter outboxWriter;
+
+    @Mock
+    private NotificationProducer notificationProducer;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BookingSagaStarter starter;
+
+    @BeforeEach
+    void setUp() {
+        BookingMessageProducer messageProducer = new BookingMessageProducer(outboxWriter);
+        ReflectionTestUtils.setField(messageProducer, "bookingCreatedTopic", BOOKING_CREATED_TOPIC);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        starter = new BookingSagaStarter(bookingRepository, accommodationClient, messageProducer,
+                notificationProducer, eventPublisher, transactionTemplate, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        starter.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void startPricesBookingAndQueuesBookingCreatedInOutbox() {
+        Booking booking = pendingBooking();
+
+        starter.start(booking, accommodation());
+
+        assertThat(booking.getTotalPrice()).isEqualByComparingTo("300");
+        BookingCreatedEvent event = queuedBookingCreated();
+        assertThat(event.bookingId()).isEqualTo(BOOKING_ID);
+        assertThat(event.totalPrice()).isEqualByComparingTo("300");
+        assertThat(event.accommodationVersion()).isEqualTo(5L);
+        verify(notificationProducer).sendNotification(any(), eq(List.of("telegram", "email")));
+    }
+
+    @Test
+    void nothingStartsBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        starter.startAfterCommit(BOOKING_ID, ACCOMMODATION_ID);
+
+        verify(accommodationClient, never()).getAccommodationById(any());
+    }
+
+    @Test
+    void asyncStartAfterCommitQueuesBookingCreated() {
+        Booking booking = pendingBooking();
+        when(accommodationClient.getAccommodationById(ACCOMMODATION_ID)).thenReturn(accommodation());
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+
+        startAndCommit();
+
+        verify(outboxWriter, timeout(ASYNC_TIMEOUT_MS))
+                .enqueueKafka(eq(BOOKING_CREATED_TOPIC), eq("42"), any(BookingCreatedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void unavailableAccommodationRejectsBookingAndPublishesStatus() {
+        Booking booking = pendingBooking();
+        when(accommodationClient.getAccommodationById(ACCOMMODATION_ID))
+                .thenThrow(new IllegalStateException("accommodation-service is down"));
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+
+        startAndCommit();
+
+        verify(eventPublisher, timeout(ASYNC_TIMEOUT_MS))
+                .publishEvent(new BookingStatusChangedEvent(BOOKING_ID, Booking.Status.CANCELED));
+        assertThat(booking.getStatus()).isEqualTo(Booking.Status.CANCELED);
+        verify(outboxWriter, never()).enqueueKafka(anyString(), anyString(), any());
+    }
+
+    @Test
+    void bookingAlreadyExpiredIsNotStarted() {
+        Booking booking = pendingBooking();
+        booking.failBooking();
+        when(accommodationClient.getAccommodationById(ACCOMMODATION_ID)).thenReturn(accommodation());
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+
+        startAndCommit();
+
+        verify(bookingRepository, timeout(ASYNC_TIMEOUT_MS)).findById(BOOKING_ID);
+        starter.shutdown();
+        verify(outboxWriter, never()).enqueueKafka(anyString(), anyString(), any());
+    }
+
+    private void startAndCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        starter.startAfterCommit(BOOKING_ID, ACCOMMODATION_ID);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private BookingCreatedEvent queuedBookingCreated() {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(outboxWriter).enqueueKafka(eq(BOOKING_CREATED_TOPIC), eq("42"), payload.capture());
+        return (BookingCreatedEvent) payload.getValue();
+    }
+
+    private static Booking pendingBooking() {
+        Booking booking = new Booking();
+        booking.setId(BOOKING_ID);
+        booking.setUserId(1L);
+        booking.setAccommodationId(ACCOMMODATION_ID);
+        booking.setCheckInDate(LocalDate.of(2030, 5, 1));
+        booking.setCheckOutDate(LocalDate.of(2030, 5, 4));
+        return booking;
+    }
+
+    private static AccommodationDto accommodation() {
+        return new AccommodationDto(ACCOMMODATION_ID, "HOUSE", "2 rooms", List.of(), new BigDecimal("100"), 365, 5L);
+    }
+}
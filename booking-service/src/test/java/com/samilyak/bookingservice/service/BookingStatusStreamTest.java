@@ -0,0 +1,152 @@
+package com.samilyak.bookingservice.service;
+
+import com.samilyak.bookingservice.dto.booking.BookingStatusDto;
+import com.samilyak.bookingservice.model.Booking;
+import com.samilyak.bookingservice.saga.BookingStatusChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BookingStatusStreamTest {
+
+    private static final String CHANNEL = "booking-status";
+    private static final Long BOOKING_ID = 42L;
+    private static final Long OTHER_BOOKING_ID = 43L;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private MockedConstruction<SseEmitter> emitters;
+
+    private BookingStatusStream stream;
+
+    @BeforeEach
+    void setUp() {
+        emitters = mockConstruction(SseEmitter.class);
+        stream = new BookingStatusStream(redisTemplate);
+        ReflectionTestUtils.setField(stream, "channel", CHANNEL);
+        ReflectionTestUtils.setField(stream, "timeout", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        emitters.close();
+    }
+
+    @Test
+    void pendingSubscriberGetsCurrentStatusAndStaysOpen() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.PENDING);
+
+        verify(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter, never()).complete();
+    }
+
+    @Test
+    void subscriberToFinalBookingIsCompletedAtOnce() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.CONFIRMED);
+
+        verify(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter).complete();
+    }
+
+    @Test
+    void changeIsFannedOutToEverySubscriberOfThatBooking() throws IOException {
+        SseEmitter first = subscribe(BOOKING_ID, Booking.Status.PENDING);
+        SseEmitter second = subscribe(BOOKING_ID, Booking.Status.PENDING);
+        SseEmitter other = subscribe(OTHER_BOOKING_ID, Booking.Status.PENDING);
+
+        stream.onMessage(message("42:CONFIRMED"), null);
+
+        verify(first, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(second, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(first).complete();
+        verify(second).complete();
+        verify(other, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(other, never()).complete();
+    }
+
+    @Test
+    void nonFinalChangeKeepsStreamOpen() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.PENDING);
+
+        stream.onMessage(message("42:CANCELING"), null);
+
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter, never()).complete();
+    }
+
+    @Test
+    void committedChangeIsPublishedToRedis() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.PENDING);
+
+        stream.onStatusChanged(new BookingStatusChangedEvent(BOOKING_ID, Booking.Status.CONFIRMED));
+
+        verify(redisTemplate).convertAndSend(CHANNEL, "42:CONFIRMED");
+        // Доставка — только из канала, иначе подписчик получит статус дважды
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void localSubscribersStillGetChangeWhenRedisIsDown() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.PENDING);
+        doThrow(new RedisConnectionFailureException("redis is down"))
+                .when(redisTemplate).convertAndSend(CHANNEL, "42:CANCELED");
+
+        stream.onStatusChanged(new BookingStatusChangedEvent(BOOKING_ID, Booking.Status.CANCELED));
+
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter).complete();
+    }
+
+    @Test
+    void disconnectedSubscriberIsDropped() throws IOException {
+        SseEmitter gone = subscribe(BOOKING_ID, Booking.Status.PENDING);
+        SseEmitter alive = subscribe(BOOKING_ID, Booking.Status.PENDING);
+        doThrow(new IOException("Broken pipe")).when(gone).send(any(SseEmitter.SseEventBuilder.class));
+
+        stream.onMessage(message("42:CANCELING"), null);
+        stream.onMessage(message("42:CANCELED"), null);
+
+        verify(gone, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(alive, times(3)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void malformedMessageIsIgnored() throws IOException {
+        SseEmitter emitter = subscribe(BOOKING_ID, Booking.Status.PENDING);
+
+        stream.onMessage(message("42:UNKNOWN"), null);
+        stream.onMessage(message("garbage"), null);
+
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    private SseEmitter subscribe(Long bookingId, Booking.Status current) {
+        return stream.subscribe(bookingId, () -> new BookingStatusDto(bookingId, current));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
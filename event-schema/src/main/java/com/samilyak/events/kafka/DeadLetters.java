@@ -0,0 +1,48 @@
+package com.samilyak.events.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Poison records in a batch: the ErrorHandlingDeserializer leaves their value null and puts
+ * the failure in a header. They are sent to {@code <topic>.DLT} so the rest of the batch can go on.
+ * Each service declares it as a bean around its own {@link DeadLetterPublishingRecoverer}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DeadLetters {
+
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    public <V> List<ConsumerRecord<String, V>> dropPoison(List<ConsumerRecord<String, V>> records) {
+        List<ConsumerRecord<String, V>> valid = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, V> record : records) {
+            DeserializationException failure = deserializationFailure(record);
+            if (failure != null) {
+                log.error("☠️ Poison message {}-{}@{} sent to DLT: {}",
+                        record.topic(), record.partition(), record.offset(), failure.getMessage());
+                deadLetterRecoverer.accept(record, failure);
+            } else if (record.value() != null) {
+                valid.add(record);
+            }
+        }
+        return valid;
+    }
+
+    private static DeserializationException deserializationFailure(ConsumerRecord<String, ?> record) {
+        if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) == null) {
+            return null;
+        }
+        // spring-kafka пишет ошибки разбора заголовка через свой LogAccessor — в ту же категорию, что и log
+        return SerializationUtils.getExceptionFromHeader(
+                record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, new LogAccessor(log.getName()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.samilyak.events.kafka;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.samilyak.events.schema.EventCodec;
+import com.samilyak.events.schema.EventSchemaRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads one saga event type. Records written before the switch to Avro are still JSON,
+ * so a payload without the single-object marker is read as JSON instead of being rejected.
+ */
+public class EventDeserializer<T> implements Deserializer<T> {
+
+    private static final ObjectMapper LEGACY_JSON = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final EventCodec<T> codec;
+    private final ObjectReader legacyReader;
+
+    public EventDeserializer(Class<T> type) {
+        this(EventSchemaRegistry.getDefault(), type);
+    }
+
+    public EventDeserializer(EventSchemaRegistry registry, Class<T> type) {
+        this.codec = registry.codecFor(type);
+        this.legacyReader = LEGACY_JSON.readerFor(type);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (EventCodec.isEncoded(data)) {
+                return codec.decode(data);
+            }
+            return legacyReader.readValue(data);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException(
+                    "Cannot deserialize " + codec.type().getSimpleName() + " from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.samilyak.events.kafka;
+
+/**
+ * Kafka headers shared by the saga participants.
+ */
+public final class EventHeaders {
+
+    /**
+     * Unique id of an emitted event, raw UTF-8 bytes. A record re-sent by the producer keeps it,
+     * so consumers can recognise the repeat even at a different offset.
+     */
+    public static final String EVENT_ID = "event-id";
+
+    private EventHeaders() {
+    }
+}
@@ -0,0 +1,36 @@
+package com.samilyak.events.kafka;
+
+import com.samilyak.events.schema.EventCodec;
+import com.samilyak.events.schema.EventSchemaRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer for the saga events, usable straight from
+ * {@code spring.kafka.producer.value-serializer}.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    private final EventSchemaRegistry registry;
+
+    public EventSerializer() {
+        this(EventSchemaRegistry.getDefault());
+    }
+
+    public EventSerializer(EventSchemaRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (!registry.isRegistered(data.getClass())) {
+            throw new SerializationException("No event schema for " + data.getClass().getName() + " (topic " + topic + ")");
+        }
+        EventCodec<Object> codec = (EventCodec<Object>) registry.codecFor(data.getClass());
+        return codec.encode(data);
+    }
+}
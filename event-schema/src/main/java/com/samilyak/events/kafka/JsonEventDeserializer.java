@@ -0,0 +1,37 @@
+package com.samilyak.events.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads one JSON event type straight from the record bytes with a pre-built {@link ObjectReader},
+ * without going through a String or a JSON tree first. For topics that are not saga topics
+ * and stay JSON; saga events go through {@link EventDeserializer}.
+ */
+public class JsonEventDeserializer<T> implements Deserializer<T> {
+
+    private final Class<T> type;
+    private final ObjectReader reader;
+
+    public JsonEventDeserializer(ObjectMapper objectMapper, Class<T> type) {
+        this.type = type;
+        this.reader = objectMapper.readerFor(type);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return reader.readValue(data);
+        } catch (IOException e) {
+            throw new SerializationException(
+                    "Cannot deserialize " + type.getSimpleName() + " from topic " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.samilyak.events.kafka;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs tasks on virtual threads while keeping tasks with the same key in submission order:
+ * each task is chained behind the previous one for its key, different keys run in parallel.
+ * At most {@code maxInFlight} tasks execute at once so a burst cannot drain the connection pool.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    // Задачи без ключа выполняются друг за другом
+    private static final Object NO_KEY = new Object();
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final ConcurrentMap<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(String name, int maxInFlight) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        Object lane = key != null ? key : NO_KEY;
+        CompletableFuture<Void> next = tails.compute(lane, (k, tail) -> {
+            CompletableFuture<Void> previous = tail != null
+                    ? tail.exceptionally(e -> null)
+                    : CompletableFuture.completedFuture(null);
+            return previous.thenRunAsync(() -> runWithPermit(task), executor);
+        });
+        next.whenComplete((result, error) -> tails.remove(lane, next));
+        return next;
+    }
+
+    /**
+     * Submits every item and blocks until all of them finished.
+     * Meant for batch listeners: returning only now keeps the offset commit behind the work.
+     *
+     * @throws CompletionException if any handler failed, after the rest have completed
+     */
+    public <T> void runAll(Collection<T> items, Function<T, Object> keyOf, Consumer<T> handler) {
+        CompletableFuture<?>[] futures = items.stream()
+                .map(item -> submit(keyOf.apply(item), () -> handler.accept(item)))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void runWithPermit(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        try {
+            task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
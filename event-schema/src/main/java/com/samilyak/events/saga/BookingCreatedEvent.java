@@ -0,0 +1,18 @@
+package com.samilyak.events.saga;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record BookingCreatedEvent(
+
+        Long bookingId,
+        Long userId,
+        Long accommodationId,
+        LocalDate checkInDate,
+        LocalDate checkOutDate,
+        BigDecimal totalPrice,
+        String phoneNumber,
+        Long accommodationVersion
+
+) {
+}
@@ -1,4 +1,4 @@
-package com.samilyak.accommodationservice.dto.event;
+package com.samilyak.events.saga;
 
 public record DatesUnlockedEvent(
 
@@ -1,4 +1,4 @@
-package com.samilyak.paymentservice.dto.event;
+package com.samilyak.events.saga;
 
 import java.math.BigDecimal;
 
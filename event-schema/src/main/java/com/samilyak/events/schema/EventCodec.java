@@ -0,0 +1,74 @@
+package com.samilyak.events.schema;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.message.SchemaStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Encodes one event type in Avro single-object encoding: a two-byte marker, the 8-byte fingerprint
+ * of the writer schema, then the binary body. The fingerprint lets a reader on a newer version
+ * find the schema the message was written with and resolve it against its own.
+ * Thread-safe.
+ */
+public final class EventCodec<T> {
+
+    private static final byte[] MARKER = {(byte) 0xC3, (byte) 0x01};
+
+    private final Class<T> type;
+    private final Schema schema;
+    private final RecordMapper<T> mapper;
+    private final BinaryMessageEncoder<GenericRecord> encoder;
+    private final BinaryMessageDecoder<GenericRecord> decoder;
+
+    EventCodec(Class<T> type, Schema schema, GenericData model, SchemaStore writerSchemas) {
+        this.type = type;
+        this.schema = schema;
+        this.mapper = new RecordMapper<>(type, schema);
+        this.encoder = new BinaryMessageEncoder<>(model, schema);
+        this.decoder = new BinaryMessageDecoder<>(model, schema, writerSchemas);
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public byte[] encode(T event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        try {
+            encoder.encode(mapper.toAvro(event), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws AvroRuntimeException if the data is not single-object encoded or its writer schema is unknown
+     */
+    public T decode(byte[] data) {
+        try {
+            return mapper.fromAvro(decoder.decode(data));
+        } catch (IOException e) {
+            throw new AvroRuntimeException("Cannot decode " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * @return true if the payload starts with the single-object marker, i.e. it was not written as JSON
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length > MARKER.length && data[0] == MARKER[0] && data[1] == MARKER[1];
+    }
+}
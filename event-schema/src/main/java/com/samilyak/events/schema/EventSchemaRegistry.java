@@ -0,0 +1,95 @@
+package com.samilyak.events.schema;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.message.SchemaStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for a schema registry: all versions of every saga schema ship on the classpath
+ * as {@code schemas/<name>.v1.avsc}, {@code .v2.avsc}, ... No network lookups, works offline.
+ * The highest version is the one we write with; every version is kept, so messages produced
+ * by a service that has not been redeployed yet still decode.
+ */
+public final class EventSchemaRegistry {
+
+    private static final String SCHEMA_LOCATION = "schemas/%s.v%d.avsc";
+
+    private static final EventSchemaRegistry DEFAULT = new EventSchemaRegistry(
+            EventSchemaRegistry.class.getClassLoader());
+
+    private final SchemaStore.Cache writerSchemas = new SchemaStore.Cache();
+    private final Map<Class<?>, EventCodec<?>> codecs = new HashMap<>();
+    private final Map<Class<?>, Integer> versions = new HashMap<>();
+
+    EventSchemaRegistry(ClassLoader classLoader) {
+        GenericData model = new GenericData(classLoader);
+        model.addLogicalTypeConversion(new TimeConversions.DateConversion());
+        model.addLogicalTypeConversion(new Conversions.DecimalConversion());
+
+        for (SagaEventType eventType : SagaEventType.values()) {
+            List<Schema> schemas = loadVersions(classLoader, eventType.schemaName());
+            schemas.forEach(writerSchemas::addSchema);
+            register(eventType.eventClass(), schemas.get(schemas.size() - 1), model);
+            versions.put(eventType.eventClass(), schemas.size());
+        }
+    }
+
+    public static EventSchemaRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> EventCodec<T> codecFor(Class<T> type) {
+        EventCodec<?> codec = codecs.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("No schema registered for " + type.getName());
+        }
+        return (EventCodec<T>) codec;
+    }
+
+    public boolean isRegistered(Class<?> type) {
+        return codecs.containsKey(type);
+    }
+
+    public int currentVersion(Class<?> type) {
+        Integer version = versions.get(type);
+        if (version == null) {
+            throw new IllegalArgumentException("No schema registered for " + type.getName());
+        }
+        return version;
+    }
+
+    private <T> void register(Class<T> type, Schema schema, GenericData model) {
+        codecs.put(type, new EventCodec<>(type, schema, model, writerSchemas));
+    }
+
+    private static List<Schema> loadVersions(ClassLoader classLoader, String name) {
+        List<Schema> schemas = new ArrayList<>();
+        for (int version = 1; ; version++) {
+            String location = String.format(SCHEMA_LOCATION, name, version);
+            try (InputStream in = classLoader.getResourceAsStream(location)) {
+                if (in == null) {
+                    break;
+                }
+                // Отдельный парсер на файл: версии одной схемы объявляют одно и то же имя
+                schemas.add(new Schema.Parser().parse(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read schema " + location, e);
+            }
+        }
+        if (schemas.isEmpty()) {
+            throw new IllegalStateException("No schema found for " + name + " at " + SCHEMA_LOCATION.formatted(name, 1));
+        }
+        return schemas;
+    }
+}
@@ -0,0 +1,150 @@
+package com.samilyak.events.schema;
+
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Copies a Java record to and from an Avro {@link GenericRecord}, component by component.
+ * The record must have exactly the fields of its schema — checked once, when the mapper is built.
+ */
+final class RecordMapper<T> {
+
+    private static final Set<Class<?>> SUPPORTED_TYPES = Set.of(
+            Long.class, Integer.class, String.class, Boolean.class, boolean.class,
+            LocalDate.class, BigDecimal.class);
+
+    private final Schema schema;
+    private final MethodHandle[] accessors;
+    private final Class<?>[] types;
+    private final int[] positions;
+    private final LogicalTypes.Decimal[] decimals;
+    private final Constructor<T> constructor;
+
+    RecordMapper(Class<T> type, Schema schema) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is not a record");
+        }
+        RecordComponent[] components = type.getRecordComponents();
+        Set<String> componentNames = Arrays.stream(components)
+                .map(RecordComponent::getName)
+                .collect(Collectors.toSet());
+        Set<String> fieldNames = schema.getFields().stream()
+                .map(Schema.Field::name)
+                .collect(Collectors.toSet());
+        if (!componentNames.equals(fieldNames)) {
+            throw new IllegalStateException("Schema " + schema.getFullName() + " does not match " + type.getName()
+                    + ": schema fields " + fieldNames + ", record components " + componentNames);
+        }
+
+        this.schema = schema;
+        this.accessors = new MethodHandle[components.length];
+        this.types = new Class<?>[components.length];
+        this.positions = new int[components.length];
+        this.decimals = new LogicalTypes.Decimal[components.length];
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            for (int i = 0; i < components.length; i++) {
+                RecordComponent component = components[i];
+                if (!SUPPORTED_TYPES.contains(component.getType())) {
+                    throw new IllegalStateException("Unsupported type " + component.getType().getName()
+                            + " of " + type.getName() + "." + component.getName());
+                }
+                accessors[i] = lookup.unreflect(component.getAccessor());
+                types[i] = component.getType();
+                Schema.Field field = schema.getField(component.getName());
+                positions[i] = field.pos();
+                decimals[i] = decimalOf(field.schema());
+            }
+            this.constructor = type.getDeclaredConstructor(
+                    Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access components of " + type.getName(), e);
+        }
+    }
+
+    GenericRecord toAvro(T event) {
+        GenericData.Record record = new GenericData.Record(schema);
+        try {
+            for (int i = 0; i < accessors.length; i++) {
+                Object value = accessors[i].invoke(event);
+                if (value instanceof BigDecimal decimal && decimals[i] != null) {
+                    value = rescale(decimal, decimals[i], i);
+                }
+                record.put(positions[i], value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read " + event.getClass().getName(), e);
+        }
+        return record;
+    }
+
+    T fromAvro(GenericRecord record) {
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = convert(record.get(positions[i]), types[i]);
+        }
+        try {
+            return constructor.newInstance(args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * Avro's DecimalConversion only accepts the exact scale of the schema, but prices computed
+     * in the services carry whatever scale the arithmetic left them with.
+     */
+    private BigDecimal rescale(BigDecimal value, LogicalTypes.Decimal decimal, int component) {
+        BigDecimal scaled = value.setScale(decimal.getScale(), RoundingMode.HALF_EVEN);
+        if (scaled.precision() > decimal.getPrecision()) {
+            throw new IllegalArgumentException("Value " + value + " of " + schema.getName() + "."
+                    + schema.getFields().get(positions[component]).name()
+                    + " does not fit decimal(" + decimal.getPrecision() + "," + decimal.getScale() + ")");
+        }
+        return scaled;
+    }
+
+    /**
+     * Decimal logical type of a field, also when the field is a nullable union.
+     */
+    private static LogicalTypes.Decimal decimalOf(Schema fieldSchema) {
+        if (fieldSchema.getType() == Schema.Type.UNION) {
+            for (Schema branch : fieldSchema.getTypes()) {
+                LogicalTypes.Decimal decimal = decimalOf(branch);
+                if (decimal != null) {
+                    return decimal;
+                }
+            }
+            return null;
+        }
+        LogicalType logicalType = fieldSchema.getLogicalType();
+        return logicalType instanceof LogicalTypes.Decimal decimal ? decimal : null;
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (value instanceof CharSequence text) {
+            // Avro читает строки как Utf8
+            return text.toString();
+        }
+        if (value == null && type == boolean.class) {
+            return false;
+        }
+        return value;
+    }
+}
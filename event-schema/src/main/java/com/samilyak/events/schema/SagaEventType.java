@@ -0,0 +1,42 @@
+package com.samilyak.events.schema;
+
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.BookingCreatedEvent;
+import com.samilyak.events.saga.DatesUnlockedEvent;
+import com.samilyak.events.saga.InventoryReservationFailedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+
+/**
+ * Every event that travels between the saga participants, with the name of its schema files
+ * ({@code schemas/<schemaName>.v<N>.avsc}).
+ */
+public enum SagaEventType {
+
+    BOOKING_CREATED("booking-created", BookingCreatedEvent.class),
+    INVENTORY_RESERVED("inventory-reserved", InventoryReservedEvent.class),
+    INVENTORY_FAILED("inventory-failed", InventoryReservationFailedEvent.class),
+    PAYMENT_SUCCESS("payment-success", PaymentSuccessEvent.class),
+    PAYMENT_FAILED("payment-failed", PaymentFailedEvent.class),
+    BOOKING_CANCELLATION_REQUESTED("booking-cancellation-requested", BookingCancellationRequestedEvent.class),
+    PAYMENT_CANCELED("payment-canceled", PaymentCanceledEvent.class),
+    DATES_UNLOCKED("dates-unlocked", DatesUnlockedEvent.class);
+
+    private final String schemaName;
+    private final Class<? extends Record> eventClass;
+
+    SagaEventType(String schemaName, Class<? extends Record> eventClass) {
+        this.schemaName = schemaName;
+        this.eventClass = eventClass;
+    }
+
+    public String schemaName() {
+        return schemaName;
+    }
+
+    public Class<? extends Record> eventClass() {
+        return eventClass;
+    }
+}
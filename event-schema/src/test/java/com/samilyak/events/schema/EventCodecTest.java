@@ -0,0 +1,55 @@
+package com.samilyak.events.schema;
+
+import com.samilyak.events.saga.InventoryReservedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecTest {
+
+    private final EventCodec<InventoryReservedEvent> codec =
+            EventSchemaRegistry.getDefault().codecFor(InventoryReservedEvent.class);
+
+    @Test
+    void roundTripsEvent() {
+        InventoryReservedEvent event = new InventoryReservedEvent(1L, 2L, new BigDecimal("1260.00"), "+79991234567");
+
+        assertThat(codec.decode(codec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void rescalesDecimalToSchemaScale() {
+        // dailyRate * nights — масштаб тот, что остался после умножения
+        BigDecimal computed = new BigDecimal("180").multiply(BigDecimal.valueOf(7));
+        InventoryReservedEvent event = new InventoryReservedEvent(1L, 2L, computed, null);
+
+        assertThat(codec.decode(codec.encode(event)).totalPrice()).isEqualTo(new BigDecimal("1260.00"));
+    }
+
+    @Test
+    void roundsExtraFractionDigitsHalfEven() {
+        InventoryReservedEvent event = new InventoryReservedEvent(1L, 2L, new BigDecimal("10.125"), null);
+
+        assertThat(codec.decode(codec.encode(event)).totalPrice()).isEqualTo(new BigDecimal("10.12"));
+    }
+
+    @Test
+    void keepsNullDecimal() {
+        InventoryReservedEvent event = new InventoryReservedEvent(1L, 2L, null, null);
+
+        assertThat(codec.decode(codec.encode(event)).totalPrice()).isNull();
+    }
+
+    @Test
+    void rejectsDecimalBeyondSchemaPrecision() {
+        InventoryReservedEvent event = new InventoryReservedEvent(1L, 2L, new BigDecimal("1e20"), null);
+
+        assertThatThrownBy(() -> codec.encode(event))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("totalPrice")
+                .hasMessageContaining("decimal(19,2)");
+    }
+}
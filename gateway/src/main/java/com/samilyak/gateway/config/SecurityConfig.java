@@ -46,6 +46,8 @@ public class SecurityConfig {
                         .pathMatchers(GET, "/api/accommodations/**").hasAnyAuthority("CUSTOMER", "MANAGER")
 
                         // Bookings
+                        // Статусы броней — только для сервисов, они ходят в booking-service напрямую
+                        .pathMatchers("/api/bookings/statuses").denyAll()
                         .pathMatchers(POST, "/api/bookings/**").hasAnyAuthority("CUSTOMER", "MANAGER")
                         .pathMatchers(GET, "/api/bookings/**").hasAnyAuthority("CUSTOMER", "MANAGER")
                         .pathMatchers(PUT, "/api/bookings/**").hasAnyAuthority("CUSTOMER", "MANAGER")
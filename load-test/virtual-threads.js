@@ -0,0 +1,69 @@
+// Нагрузка для сравнения виртуальных и платформенных потоков (k6).
+//
+//   VIRTUAL_THREADS_ENABLED=true  docker compose up -d && k6 run load-test/virtual-threads.js
+//   VIRTUAL_THREADS_ENABLED=false docker compose up -d && k6 run load-test/virtual-threads.js
+//
+// Запросы идут через gateway и в основном ждут I/O: карточка жилья (Feign в address-service
+// и параллельные ветки), поиск свободного жилья (Postgres) и брони пользователя (Postgres + Redis).
+// Пропускная способность — http_reqs и http_req_duration из отчёта k6; память на запрос в полёте —
+// из Prometheus за время плато (см. README, раздел Load test).
+
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8222';
+const EMAIL = __ENV.EMAIL || 'john.doe@gmail.com';
+const PASSWORD = __ENV.PASSWORD || 'password123';
+const CITY = __ENV.CITY || 'Minsk';
+const ACCOMMODATION_IDS = (__ENV.ACCOMMODATION_IDS || '1,2,3,4,5').split(',');
+// Виртуальных пользователей на плато; каждый держит в полёте до трёх запросов сразу
+const IN_FLIGHT = parseInt(__ENV.IN_FLIGHT || '400', 10);
+
+export const options = {
+    scenarios: {
+        io_bound: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: IN_FLIGHT },
+                { duration: '3m', target: IN_FLIGHT },
+                { duration: '15s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const response = http.post(`${BASE_URL}/api/auth/login`,
+        JSON.stringify({ email: EMAIL, password: PASSWORD }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(response, { 'login 200': r => r.status === 200 });
+    return { token: response.json('token') };
+}
+
+export default function (data) {
+    const params = { headers: { Authorization: `Bearer ${data.token}` } };
+    const id = ACCOMMODATION_IDS[Math.floor(Math.random() * ACCOMMODATION_IDS.length)];
+    const checkIn = new Date(Date.now() + (7 + Math.floor(Math.random() * 60)) * 86_400_000);
+    const checkOut = new Date(checkIn.getTime() + (1 + Math.floor(Math.random() * 7)) * 86_400_000);
+
+    const responses = http.batch([
+        ['GET', `${BASE_URL}/api/accommodations/${id}/detail`, null,
+            { ...params, tags: { name: 'accommodation-detail' } }],
+        ['GET', `${BASE_URL}/api/accommodations/search/available?city=${CITY}`
+            + `&checkIn=${isoDate(checkIn)}&checkOut=${isoDate(checkOut)}`, null,
+            { ...params, tags: { name: 'search-available' } }],
+        ['GET', `${BASE_URL}/api/bookings/my`, null,
+            { ...params, tags: { name: 'bookings-my' } }],
+    ]);
+    responses.forEach(response => check(response, { 'status 200': r => r.status === 200 }));
+}
+
+function isoDate(date) {
+    return date.toISOString().slice(0, 10);
+}
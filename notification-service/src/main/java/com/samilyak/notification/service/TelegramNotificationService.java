@@ -3,10 +3,12 @@ package com.samilyak.notification.service;
 import com.samilyak.notification.dto.NotificationDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
 
 @Slf4j
@@ -25,7 +27,8 @@ public class TelegramNotificationService implements NotificationSender {
         this.botToken = botToken;
         this.chatId = chatId;
         this.botUsername = botUsername;
-        this.restTemplate = new RestTemplate();
+        // java.net.http.HttpClient не закрепляет виртуальный поток на время запроса
+        this.restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(HttpClient.newHttpClient()));
     }
 
     @Override
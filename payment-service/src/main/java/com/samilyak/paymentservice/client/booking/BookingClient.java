@@ -0,0 +1,21 @@
+package com.samilyak.paymentservice.client.booking;
+
+import com.samilyak.paymentservice.config.FeignTracingConfig;
+import com.samilyak.paymentservice.dto.BookingStatusDto;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+@FeignClient(
+        name = "booking-service",
+        path = "/api/bookings",
+        configuration = FeignTracingConfig.class
+)
+public interface BookingClient {
+
+    @GetMapping("/statuses")
+    List<BookingStatusDto> getBookingStatuses(@RequestParam("ids") List<Long> ids);
+
+}
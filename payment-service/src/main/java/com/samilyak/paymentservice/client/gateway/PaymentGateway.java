@@ -0,0 +1,85 @@
+package com.samilyak.paymentservice.client.gateway;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous entry point to the payment provider.
+ * Every call runs on its own virtual thread behind a bulkhead (concurrent calls cap),
+ * a time limiter and a circuit breaker, so a slow or failing provider neither piles up
+ * threads nor holds the Kafka partition longer than the timeout.
+ * <p>
+ * The time limiter completes the future on timeout but does not stop the call: a
+ * {@code supplyAsync} task cannot be interrupted. What bounds the call is the provider's own
+ * HTTP timeouts, which {@link com.samilyak.paymentservice.config.PaymentGatewayConfig} requires
+ * to fit into the time limit, so an abandoned call ends by the time its caller has moved on.
+ */
+@Slf4j
+@Component
+public class PaymentGateway {
+
+    private final PaymentProvider provider;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-gateway-", 0).factory());
+    private final ScheduledExecutorService timeouts =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("payment-gateway-timeouts").daemon().factory());
+
+    public PaymentGateway(PaymentProvider provider, CircuitBreaker circuitBreaker,
+                          Bulkhead bulkhead, TimeLimiter timeLimiter) {
+        this.provider = provider;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.timeLimiter = timeLimiter;
+        log.info("💳 Платёжный шлюз: провайдер {}", provider.getClass().getSimpleName());
+    }
+
+    public CompletableFuture<PaymentSession> createSession(Long bookingId, BigDecimal amount, Instant expiresAt) {
+        return call(() -> provider.createSession(bookingId, amount, expiresAt));
+    }
+
+    public CompletableFuture<String> refund(Long bookingId, String paymentIntentId) {
+        return call(() -> provider.refund(bookingId, paymentIntentId));
+    }
+
+    public CompletableFuture<SessionState> getSessionState(String sessionId) {
+        return call(() -> provider.getSessionState(sessionId));
+    }
+
+    public CompletableFuture<Void> expireSession(String sessionId) {
+        return call(() -> {
+            provider.expireSession(sessionId);
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> request) {
+        // Порядок: breaker -> timeout -> bulkhead -> вызов; отказ bulkhead не открывает breaker
+        Supplier<CompletableFuture<T>> async =
+                () -> CompletableFuture.supplyAsync(Bulkhead.decorateSupplier(bulkhead, request), executor);
+        return circuitBreaker
+                .executeCompletionStage(() -> timeLimiter.executeCompletionStage(timeouts, async))
+                .toCompletableFuture();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timeouts.shutdownNow();
+        executor.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.samilyak.paymentservice.client.gateway;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Blocking calls to a payment provider. Callers go through {@link PaymentGateway},
+ * which adds the thread, the bulkhead, the timeout and the circuit breaker.
+ * Both calls must be idempotent per booking: a retried call may not charge or refund twice.
+ */
+public interface PaymentProvider {
+
+    /**
+     * @param expiresAt after this the session can no longer be paid; must not outlive the PENDING booking
+     */
+    PaymentSession createSession(Long bookingId, BigDecimal amount, Instant expiresAt);
+
+    /**
+     * @return provider id of the refund
+     */
+    String refund(Long bookingId, String paymentIntentId);
+
+    /**
+     * Read-only, used by the reconciliation to catch lost webhooks
+     */
+    SessionState getSessionState(String sessionId);
+
+    /**
+     * Closes an open session so it can no longer be paid. An already expired session is fine;
+     * a session paid in the meantime is an error, so the caller retries and finds the payment.
+     */
+    void expireSession(String sessionId);
+
+}
@@ -0,0 +1,7 @@
+package com.samilyak.paymentservice.client.gateway;
+
+/**
+ * Hosted checkout page opened at the provider.
+ */
+public record PaymentSession(String id, String url) {
+}
@@ -0,0 +1,13 @@
+package com.samilyak.paymentservice.client.gateway;
+
+/**
+ * Checkout session as the provider sees it.
+ *
+ * @param paymentIntentId set once the session is paid
+ */
+public record SessionState(Status status, String paymentIntentId) {
+
+    public enum Status {
+        OPEN, PAID, EXPIRED
+    }
+}
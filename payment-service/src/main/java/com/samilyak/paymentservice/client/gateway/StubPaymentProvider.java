@@ -0,0 +1,84 @@
+package com.samilyak.paymentservice.client.gateway;
+
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the provider, for load tests without network access.
+ * Answers after a configurable latency and fails a configurable share of calls,
+ * so the bulkhead, the timeout and the circuit breaker can be exercised offline.
+ * Sessions are completed through the webhook stub as usual; the stub itself only lets them expire
+ * at their {@code expiresAt} (and forgets them on restart, so unknown sessions count as expired).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "application.payment-gateway.provider", havingValue = "stub")
+public class StubPaymentProvider implements PaymentProvider {
+
+    private final Duration latency;
+    private final double failureRate;
+    private final String checkoutBaseUrl;
+    private final Map<String, Instant> sessions = new ConcurrentHashMap<>();
+
+    public StubPaymentProvider(
+            @Value("${application.payment-gateway.stub.latency:200ms}") Duration latency,
+            @Value("${application.payment-gateway.stub.failure-rate:0.0}") double failureRate,
+            @Value("${application.payment-gateway.stub.checkout-url:http://localhost:8085/stub/checkout/}")
+            String checkoutBaseUrl
+    ) {
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.checkoutBaseUrl = checkoutBaseUrl;
+        log.warn("🧪 Платёжный провайдер — локальная заглушка (latency={}, failureRate={})", latency, failureRate);
+    }
+
+    @Override
+    public PaymentSession createSession(Long bookingId, BigDecimal amount, Instant expiresAt) {
+        simulateCall("createSession");
+        String sessionId = "cs_stub_" + bookingId;
+        sessions.putIfAbsent(sessionId, expiresAt);
+        return new PaymentSession(sessionId, checkoutBaseUrl + sessionId);
+    }
+
+    @Override
+    public String refund(Long bookingId, String paymentIntentId) {
+        simulateCall("refund");
+        return "re_stub_" + bookingId;
+    }
+
+    @Override
+    public SessionState getSessionState(String sessionId) {
+        simulateCall("getSessionState");
+        Instant expiresAt = sessions.get(sessionId);
+        boolean expired = expiresAt == null || expiresAt.isBefore(Instant.now());
+        return new SessionState(expired ? SessionState.Status.EXPIRED : SessionState.Status.OPEN, null);
+    }
+
+    @Override
+    public void expireSession(String sessionId) {
+        simulateCall("expireSession");
+        sessions.computeIfPresent(sessionId, (id, expiresAt) -> Instant.MIN);
+    }
+
+    private void simulateCall(String operation) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Stub " + operation + " interrupted", e);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Stub " + operation + " failed on purpose", null);
+        }
+    }
+}
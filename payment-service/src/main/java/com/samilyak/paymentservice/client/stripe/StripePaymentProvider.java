@@ -0,0 +1,165 @@
+package com.samilyak.paymentservice.client.stripe;
+
+import com.samilyak.paymentservice.client.gateway.PaymentProvider;
+import com.samilyak.paymentservice.client.gateway.PaymentSession;
+import com.samilyak.paymentservice.client.gateway.SessionState;
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.IdempotencyException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Refund;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
+import com.stripe.param.checkout.SessionCreateParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.CHECKOUT;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+
+/**
+ * Stripe through its own client instance instead of the static {@code Stripe.apiKey}.
+ * The SDK transport keeps connections alive and reuses them (pool size: {@code -Dhttp.maxConnections}).
+ * SDK retries are off: timeouts and failures are handled by {@link com.samilyak.paymentservice.client.gateway.PaymentGateway}.
+ * The connect and read timeouts are what actually ends a call; they are kept inside the gateway timeout
+ * (checked in {@link com.samilyak.paymentservice.config.PaymentGatewayConfig}).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "application.payment-gateway.provider", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentProvider implements PaymentProvider {
+
+    private final StripeClient stripe;
+
+    public StripePaymentProvider(
+            @Value("${stripe.secret-key}") String secretKey,
+            @Value("${application.payment-gateway.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${application.payment-gateway.read-timeout:7s}") Duration readTimeout
+    ) {
+        this.stripe = StripeClient.builder()
+                .setApiKey(secretKey)
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setReadTimeout((int) readTimeout.toMillis())
+                .setMaxNetworkRetries(0)
+                .build();
+    }
+
+    /**
+     * Создание платёжной сессии Stripe
+     */
+    @Override
+    public PaymentSession createSession(Long bookingId, BigDecimal amount, Instant expiresAt) {
+        log.info("💳 Создание платёжной сессии в Stripe для брони {}, сумма: {}", bookingId, amount);
+
+        SessionCreateParams params = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT) // Разовый платёж
+                .setSuccessUrl("http://localhost:3000/payment/success")
+                .setCancelUrl("http://localhost:3000/payment/cancel")
+                .setClientReferenceId(String.valueOf(bookingId))
+                // Иначе сессию можно оплатить ещё сутки после того, как бронь истекла
+                .setExpiresAt(expiresAt.getEpochSecond())
+                .addLineItem(
+                        SessionCreateParams.LineItem.builder()
+                                .setQuantity(1L)
+                                .setPriceData(
+                                        SessionCreateParams.LineItem.PriceData.builder()
+                                                .setCurrency("usd")
+                                                .setUnitAmount(amount.multiply(BigDecimal.valueOf(100)).longValue()) // Stripe требует сумму в центах
+                                                .setProductData(
+                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                                .setName("Booking Payment")
+                                                                .build()
+                                                )
+                                                .build()
+                                )
+                                .build()
+                )
+                .build();
+
+        try {
+            Session session = stripe.checkout().sessions().create(params, idempotent(CHECKOUT.keyFor(bookingId)));
+            log.info("✅ Платёжная сессия создана в Stripe: {}", session.getId());
+            return new PaymentSession(session.getId(), session.getUrl());
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Ошибка при создании платёжной сессии", e);
+        }
+    }
+
+    @Override
+    public String refund(Long bookingId, String paymentIntentId) {
+        log.info("💸 Stripe refund for paymentIntent {}", paymentIntentId);
+
+        RefundCreateParams params = RefundCreateParams.builder()
+                .setPaymentIntent(paymentIntentId)
+                .build();
+
+        try {
+            Refund refund = stripe.refunds().create(params, idempotent(REFUND.keyFor(bookingId)));
+            log.info("✅ Stripe refund created: {}", refund.getId());
+            return refund.getId();
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Stripe refund failed", e, isDefinitive(e));
+        }
+    }
+
+    @Override
+    public SessionState getSessionState(String sessionId) {
+        try {
+            Session session = stripe.checkout().sessions().retrieve(sessionId);
+            if ("paid".equals(session.getPaymentStatus())) {
+                return new SessionState(SessionState.Status.PAID, session.getPaymentIntent());
+            }
+            return new SessionState("expired".equals(session.getStatus())
+                    ? SessionState.Status.EXPIRED
+                    : SessionState.Status.OPEN, null);
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Stripe session lookup failed: " + sessionId, e);
+        }
+    }
+
+    @Override
+    public void expireSession(String sessionId) {
+        try {
+            Session session = stripe.checkout().sessions().retrieve(sessionId);
+            switch (String.valueOf(session.getStatus())) {
+                case "open" -> {
+                    stripe.checkout().sessions().expire(sessionId);
+                    log.info("⌛ Stripe session {} expired", sessionId);
+                }
+                case "expired" -> log.info("ℹ️ Stripe session {} already expired", sessionId);
+                default -> throw new PaymentGatewayException(
+                        "Stripe session " + sessionId + " is " + session.getStatus() + ", cannot expire it", null);
+            }
+        } catch (StripeException e) {
+            throw new PaymentGatewayException("Stripe session expire failed: " + sessionId, e);
+        }
+    }
+
+    /**
+     * Once Stripe has started executing a request it stores the result under the idempotency key, errors included.
+     * A network failure, a rate limit or a concurrent request with the same key leave nothing stored.
+     */
+    private static boolean isDefinitive(StripeException e) {
+        return !(e instanceof ApiConnectionException
+                || e instanceof RateLimitException
+                || e instanceof IdempotencyException);
+    }
+
+    /**
+     * Stripe answers a repeated key with the first result, so a retry never charges or refunds twice.
+     */
+    private static RequestOptions idempotent(String key) {
+        return RequestOptions.builder()
+                .setIdempotencyKey(key)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.samilyak.paymentservice.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRateLimiterMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedTimeLimiterMetrics;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Resilience settings of the payment provider calls.
+ * The time limiter only stops waiting — it cannot interrupt the provider call running on its own thread.
+ * The call itself ends on the HTTP timeouts, so bulkhead wait + connect + read must stay below the limit;
+ * otherwise a timed-out call keeps its bulkhead slot and connection after the caller gave up.
+ * The application refuses to start with settings that break this.
+ * Metrics: {@code resilience4j.circuitbreaker.*}, {@code resilience4j.bulkhead.*}, {@code resilience4j.timelimiter.*}
+ * tagged with {@code name=payment-provider}.
+ */
+@Slf4j
+@Configuration
+public class PaymentGatewayConfig {
+
+    private static final String NAME = "payment-provider";
+
+    @Value("${application.payment-gateway.timeout:10s}")
+    private Duration timeout;
+
+    @Value("${application.payment-gateway.max-concurrent-calls:32}")
+    private int maxConcurrentCalls;
+
+    @Value("${application.payment-gateway.max-wait:500ms}")
+    private Duration maxWait;
+
+    @Value("${application.payment-gateway.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${application.payment-gateway.read-timeout:7s}")
+    private Duration readTimeout;
+
+    @Value("${application.payment.refunds.rate-per-second:20}")
+    private int refundsPerSecond;
+
+    @Value("${application.payment-gateway.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${application.payment-gateway.circuit-breaker.slow-call-duration:5s}")
+    private Duration slowCallDuration;
+
+    @Value("${application.payment-gateway.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${application.payment-gateway.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    @Bean
+    public CircuitBreaker paymentCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(Math.min(10, windowSize))
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                // Переполненный bulkhead — это наша нагрузка, а не отказ провайдера
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+
+        CircuitBreaker circuitBreaker = registry.circuitBreaker(NAME);
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("⚡ Circuit breaker {}: {}", NAME, event.getStateTransition()));
+        return circuitBreaker;
+    }
+
+    @Bean
+    public Bulkhead paymentBulkhead(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(NAME);
+    }
+
+    @Bean
+    public TimeLimiter paymentTimeLimiter(MeterRegistry meterRegistry) {
+        Duration callBound = maxWait.plus(connectTimeout).plus(readTimeout);
+        // На равных лимитер и HTTP-таймаут срабатывают наперегонки
+        if (callBound.compareTo(timeout) >= 0) {
+            throw new IllegalStateException("payment-gateway: max-wait + connect-timeout + read-timeout = "
+                    + callBound + " must be below timeout " + timeout);
+        }
+        TimeLimiterRegistry registry = TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+                .timeoutDuration(timeout)
+                .cancelRunningFuture(true)
+                .build());
+        TaggedTimeLimiterMetrics.ofTimeLimiterRegistry(registry).bindTo(meterRegistry);
+        return registry.timeLimiter(NAME);
+    }
+
+    /**
+     * Paces mass refunds below the provider's API rate limit; single calls do not go through it.
+     */
+    @Bean
+    public RateLimiter refundRateLimiter(MeterRegistry meterRegistry) {
+        RateLimiterRegistry registry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+                .limitForPeriod(refundsPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(30))
+                .build());
+        TaggedRateLimiterMetrics.ofRateLimiterRegistry(registry).bindTo(meterRegistry);
+        return registry.rateLimiter("payment-refunds");
+    }
+}
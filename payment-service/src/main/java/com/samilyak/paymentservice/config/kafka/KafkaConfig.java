@@ -1,22 +1,166 @@
 package com.samilyak.paymentservice.config.kafka;
 
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.EventDeserializer;
+import com.samilyak.events.kafka.EventSerializer;
+import com.samilyak.events.kafka.KeyOrderedExecutor;
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 @Configuration
 public class KafkaConfig {
 
+    @Value("${application.kafka.topics.inventory-reserved}")
+    private String inventoryReservedTopic;
+
+    @Value("${application.kafka.topics.booking-cancellation-requested}")
+    private String bookingCancellationTopic;
+
     @Value("${application.kafka.topics.payment-canceled}")
     private String paymentCanceledTopic;
 
+    @Value("${application.kafka.topics.payment-success}")
+    private String paymentSuccessTopic;
+
+    @Value("${application.kafka.topics.payment-failed}")
+    private String paymentFailedTopic;
+
+    @Value("${application.kafka.partitions:3}")
+    private int partitions;
+
+    @Value("${application.kafka.workers.max-in-flight:32}")
+    private int maxInFlight;
+
     @Bean
     public NewTopic paymentCanceledTopic() {
         return TopicBuilder.name(paymentCanceledTopic)
-                .partitions(3)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic paymentSuccessTopic() {
+        return TopicBuilder.name(paymentSuccessTopic)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic paymentFailedTopic() {
+        return TopicBuilder.name(paymentFailedTopic)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
+
+    /**
+     * Same settings as the auto-configured factory (spring.kafka.listener.*, including concurrency),
+     * but hands the listener a whole poll so it can fan it out to {@link KeyOrderedExecutor}.
+     * Offsets are committed after the listener returned.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    /**
+     * Replaces the auto-configured consumer factory: everything still comes from spring.kafka.consumer.*,
+     * only the value deserializer is ours.
+     */
+    @Bean
+    public ConsumerFactory<Object, Object> kafkaConsumerFactory(KafkaProperties kafkaProperties) {
+        DefaultKafkaConsumerFactory<Object, Object> factory =
+                new DefaultKafkaConsumerFactory<>(kafkaProperties.buildConsumerProperties(null));
+        factory.setValueDeserializerSupplier(this::eventDeserializer);
+        return factory;
+    }
+
+    /**
+     * Failed records end up in {@code <topic>.DLT}. Poison messages arrive there with their original bytes,
+     * records that failed in the listener are written back in the saga binary format.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new EventSerializer());
+
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), new DelegatingByTypeSerializer(serializers, true)));
+        return new DeadLetterPublishingRecoverer(template);
+    }
+
+    /**
+     * Picked up by the Boot configurer for both the default and the batch container factory.
+     */
+    @Bean
+    public DefaultErrorHandler errorHandler(DeadLetterPublishingRecoverer deadLetterRecoverer) {
+        // Ошибки десериализации не ретраятся — сразу в DLT
+        return new DefaultErrorHandler(deadLetterRecoverer, new FixedBackOff(1000L, 2));
+    }
+
+    @Bean
+    public DeadLetters deadLetters(DeadLetterPublishingRecoverer deadLetterRecoverer) {
+        return new DeadLetters(deadLetterRecoverer);
+    }
+
+    @Bean
+    public KeyOrderedExecutor keyOrderedExecutor() {
+        return new KeyOrderedExecutor("kafka-worker", maxInFlight);
+    }
+
+    /**
+     * Each incoming topic carries one event type, so the topic alone picks the typed deserializer.
+     * A record that does not parse comes out with a null value and the failure in a header.
+     */
+    private Deserializer<Object> eventDeserializer() {
+        Map<Pattern, Deserializer<?>> byTopic = new LinkedHashMap<>();
+        byTopic.put(Pattern.compile(Pattern.quote(inventoryReservedTopic)),
+                new EventDeserializer<>(InventoryReservedEvent.class));
+        byTopic.put(Pattern.compile(Pattern.quote(bookingCancellationTopic)),
+                new EventDeserializer<>(BookingCancellationRequestedEvent.class));
+
+        Deserializer<Object> unknownTopic = (topic, data) -> {
+            throw new SerializationException("No event type registered for topic " + topic);
+        };
+        return new ErrorHandlingDeserializer<>(new DelegatingByTopicDeserializer(byTopic, unknownTopic));
+    }
 }
@@ -1,10 +1,11 @@
 package com.samilyak.paymentservice.controller;
 
-import com.samilyak.paymentservice.dto.event.PaymentFailedEvent;
-import com.samilyak.paymentservice.dto.event.PaymentSuccessEvent;
-import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
-import com.samilyak.paymentservice.model.Payment;
-import com.samilyak.paymentservice.service.PaymentService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.paymentservice.dto.StripeWebhookEvent;
+import com.samilyak.paymentservice.service.WebhookInbox;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.net.Webhook;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,78 +17,64 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
+/**
+ * Verifies the webhook, stores it in the {@link WebhookInbox} and answers at once;
+ * the payment update and the saga event happen asynchronously.
+ * <p>
+ * The {@code Stripe-Signature} header is checked the way Stripe signs it: HMAC-SHA256 of
+ * {@code timestamp.payload} with the endpoint secret, and a timestamp within the SDK's 5-minute
+ * tolerance, so a captured request cannot be replayed later. Locally, events are signed by
+ * {@code stripe listen --forward-to …/api/payments/webhook} with {@code STRIPE_WEBHOOK_SECRET} set to its secret.
+ */
 @Slf4j
 @RestController
 @RequestMapping("/api/payments/webhook")
 @RequiredArgsConstructor
 public class StripeWebhookStubController {
 
-    private final PaymentService paymentService;
-    private final PaymentMessageProducer messageProducer;
+    private final WebhookInbox webhookInbox;
+    private final ObjectMapper objectMapper;
 
     @Value("${stripe.webhook-secret}")
     private String endpointSecret;
 
     @PostMapping
     public ResponseEntity<String> handleFakeStripeEvent(
-            @RequestBody Map<String, Object> payload,
+            @RequestBody String payload,
             @RequestHeader(value = "Stripe-Signature", required = false) String sigHeader) {
 
-        log.info("📩 Webhook получен! payload={}, signature={}", payload, sigHeader);
-
-        if (sigHeader == null || !sigHeader.equals(endpointSecret)) {
-            log.warn("❌ Подпись не совпадает! sigHeader={} secret={}", sigHeader, endpointSecret);
+        if (sigHeader == null) {
+            log.warn("❌ Webhook без подписи отклонён");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid signature");
         }
-
-        String eventType = (String) payload.get("type");
-        String sessionId = (String) payload.get("sessionId");
-
-        if (sessionId == null) {
-            log.info("⚠️ Событие {} без sessionId, пропускаем.", eventType);
-            return ResponseEntity.ok("ignored");
+        try {
+            Webhook.constructEvent(payload, sigHeader, endpointSecret);
+        } catch (SignatureVerificationException e) {
+            log.warn("❌ Подпись webhook не прошла проверку: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid signature");
+        } catch (RuntimeException e) {
+            // Подпись верна, но тело — не событие Stripe
+            log.warn("❌ Webhook не разобран: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid payload");
         }
 
-        Payment payment = paymentService.findBySessionId(sessionId);
-
-        switch (eventType) {
-            case "checkout.session.completed" -> {
-                log.info("✅ Оплата завершена успешно, sessionId={}", sessionId);
-
-                String paymentIntentId = (String) payload.get("paymentIntentId");
-
-                paymentService.updatePaymentWithIntent(
-                        payment.getId(),
-                        Payment.Status.PAID,
-                        paymentIntentId
-                );
-
-                messageProducer.sendPaymentSuccess(new PaymentSuccessEvent(
-                        payment.getBookingId(),
-                        payment.getUserId(),
-                        sessionId,
-                        "user@example.com"
-                ));
-            }
-
-            case "checkout.session.expired" -> {
-                log.info("⚠️ Сессия оплаты истекла, sessionId={}", sessionId);
-
-                paymentService.cancelPayment(String.valueOf(payment.getBookingId()));
-
-                messageProducer.sendPaymentFailed(new PaymentFailedEvent(
-                        payment.getBookingId(),
-                        payment.getUserId(),
-                        "Session expired"
-                ));
-            }
+        // Поля, нужные обработке, берём из того же тела: не зависим от версии API в SDK
+        StripeWebhookEvent event;
+        try {
+            event = objectMapper.readValue(payload, StripeWebhookEvent.class);
+        } catch (JsonProcessingException e) {
+            log.warn("❌ Webhook не разобран: {}", e.getOriginalMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid payload");
+        }
+        log.info("📩 Webhook получен: id={}, type={}", event.id(), event.type());
 
-            default -> log.info("📌 Получено неизвестное событие: {}", eventType);
+        if (event.id() == null || event.type() == null || event.sessionId() == null) {
+            log.info("⚠️ Событие {} без sessionId, пропускаем.", event.type());
+            return ResponseEntity.ok("ignored");
         }
 
+        // Повторная доставка того же события — тоже 200, иначе провайдер будет слать его снова
+        webhookInbox.append(event, payload);
         return ResponseEntity.ok("success");
     }
 }
-
@@ -0,0 +1,9 @@
+package com.samilyak.paymentservice.dto;
+
+public record BookingStatusDto(
+
+        Long bookingId,
+        String status
+
+) {
+}
@@ -0,0 +1,35 @@
+package com.samilyak.paymentservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Fields of a Stripe checkout session event that the service uses:
+ * {@code {"id", "type", "data": {"object": {"id", "payment_intent"}}}}
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record StripeWebhookEvent(
+        String id,
+        String type,
+        Data data
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Data(SessionObject object) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record SessionObject(
+            String id,
+            @JsonProperty("payment_intent") String paymentIntent
+    ) {
+    }
+
+    public String sessionId() {
+        return data != null && data.object() != null ? data.object().id() : null;
+    }
+
+    public String paymentIntentId() {
+        return data != null && data.object() != null ? data.object().paymentIntent() : null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.samilyak.paymentservice.exception;
+
+import lombok.Getter;
+
+@Getter
+public class PaymentGatewayException extends RuntimeException {
+
+    /**
+     * The provider answered and has stored that answer under the idempotency key:
+     * repeating the request with the same key returns the same error
+     */
+    private final boolean definitive;
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause, boolean definitive) {
+        super(message, cause);
+        this.definitive = definitive;
+    }
+}
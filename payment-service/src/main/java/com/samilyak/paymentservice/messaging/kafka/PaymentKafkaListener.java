@@ -1,15 +1,22 @@
 package com.samilyak.paymentservice.messaging.kafka;
 
-import com.samilyak.paymentservice.dto.event.BookingCancellationRequestedEvent;
-import com.samilyak.paymentservice.dto.event.InventoryReservedEvent;
-import com.samilyak.paymentservice.dto.event.PaymentCanceledEvent;
-import com.samilyak.paymentservice.dto.event.PaymentFailedEvent;
+import com.samilyak.events.kafka.DeadLetters;
+import com.samilyak.events.kafka.KeyOrderedExecutor;
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.InventoryReservedEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
 import com.samilyak.paymentservice.service.PaymentService;
+import com.samilyak.paymentservice.service.RefundPipeline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Set;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -17,13 +24,50 @@ public class PaymentKafkaListener {
 
     private final PaymentService paymentService;
     private final PaymentMessageProducer paymentMessageProducer;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final DeadLetters deadLetters;
+    private final RefundPipeline refundPipeline;
 
     // 1. ИНИЦИАЛИЗАЦИЯ ПЛАТЕЖА (Пришло от Accommodation)
+    // Вызовы Stripe идут параллельно по разным броням, события одной брони — по порядку
     @KafkaListener(
             topics = "${application.kafka.topics.inventory-reserved}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
     )
-    public void onInventoryReserved(InventoryReservedEvent event) {
+    public void onInventoryReserved(List<ConsumerRecord<String, InventoryReservedEvent>> records) {
+        log.info("📨 Received {} InventoryReservedEvent(s)", records.size());
+        keyOrderedExecutor.runAll(values(records), InventoryReservedEvent::bookingId,
+                this::handleInventoryReserved);
+    }
+
+    /**
+     * Handled as one batch by {@link RefundPipeline}. A refund that still fails is not acknowledged:
+     * offsets are committed up to the first failed record, the rest of the poll is redelivered
+     * after the error handler's backoff (payments already REFUNDED are not refunded twice).
+     */
+    @KafkaListener(
+            topics = "${application.kafka.topics.booking-cancellation-requested}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void onBookingCancellationRequested(
+            List<ConsumerRecord<String, BookingCancellationRequestedEvent>> records) {
+        log.info("📨 Получено запросов на отмену платежа: {}", records.size());
+        List<ConsumerRecord<String, BookingCancellationRequestedEvent>> valid = deadLetters.dropPoison(records);
+
+        Set<Long> failed = refundPipeline.process(valid.stream().map(ConsumerRecord::value).toList());
+
+        valid.stream()
+                .filter(record -> failed.contains(record.value().bookingId()))
+                .findFirst()
+                .ifPresent(record -> {
+                    throw new BatchListenerFailedException(
+                            "Refund failed for booking " + record.value().bookingId(), record);
+                });
+    }
+
+    private void handleInventoryReserved(InventoryReservedEvent event) {
         log.info("📨 Received InventoryReservedEvent for bookingId={}. Initializing payment...", event.bookingId());
 
         try {
@@ -47,33 +91,9 @@ public class PaymentKafkaListener {
         }
     }
 
-    @KafkaListener(
-            topics = "${application.kafka.topics.booking-cancellation-requested}",
-            groupId = "${spring.kafka.consumer.group-id}"
-    )
-    public void onBookingCancellationRequested(BookingCancellationRequestedEvent event) {
-        log.info("📨 Запрос на отмену платежа: bookingId={}, возврат={}", event.bookingId(), event.refundNeeded());
-
-        // 1. ЛОГИКА ДЕНЕГ
-        if (event.refundNeeded()) {
-            try {
-                // Ты сказал, что метод принимает String, поэтому приводим bookingId к строке
-                paymentService.cancelPayment(String.valueOf(event.bookingId()));
-                log.info("💰 Возврат оформлен через Stripe для брони {}", event.bookingId());
-            } catch (Exception e) {
-                log.error("❌ Ошибка при возврате денег: {}", e.getMessage());
-            }
-        } else {
-            log.info("ℹ️ Возврат денег не требуется.");
-        }
-
-        paymentMessageProducer.sendPaymentCanceled(
-                new PaymentCanceledEvent(
-                        event.bookingId(),
-                        event.paymentId()
-                )
-        );
-
-        log.info("📤 Отправлено подтверждение отмены в Kafka для брони {}", event.bookingId());
+    private <V> List<V> values(List<ConsumerRecord<String, V>> records) {
+        return deadLetters.dropPoison(records).stream()
+                .map(ConsumerRecord::value)
+                .toList();
     }
 }
@@ -1,17 +1,24 @@
 package com.samilyak.paymentservice.messaging.kafka;
 
-import com.samilyak.paymentservice.dto.event.PaymentCanceledEvent;
-import com.samilyak.paymentservice.dto.event.PaymentFailedEvent;
-import com.samilyak.paymentservice.dto.event.PaymentSuccessEvent;
+import com.samilyak.events.kafka.EventHeaders;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -28,27 +35,46 @@ public class PaymentMessageProducer {
     @Value("${application.kafka.topics.payment-failed}")
     private String paymentFailedTopic;
 
+    /**
+     * Like every send here, returns only once Kafka acknowledged the event and throws if it did not,
+     * so the caller records its own progress only for events that are durable.
+     */
     public void sendPaymentSuccess(PaymentSuccessEvent event) {
         log.info("📤 Sending PaymentSuccessEvent for bookingId={}", event.bookingId());
-        sendMessage(paymentSuccessTopic, String.valueOf(event.bookingId()), event);
+        sendMessage(paymentSuccessTopic, String.valueOf(event.bookingId()), event).join();
     }
 
     public void sendPaymentFailed(PaymentFailedEvent event) {
         log.warn("📤 Sending PaymentFailedEvent for bookingId={}", event.bookingId());
-        sendMessage(paymentFailedTopic, String.valueOf(event.bookingId()), event);
+        sendMessage(paymentFailedTopic, String.valueOf(event.bookingId()), event).join();
     }
 
     public void sendPaymentCanceled(PaymentCanceledEvent event) {
         log.info("📤 Sending PaymentCanceledEvent for bookingId={}", event.bookingId());
-        sendMessage(paymentCanceledTopic, String.valueOf(event.bookingId()), event);
+        sendMessage(paymentCanceledTopic, String.valueOf(event.bookingId()), event).join();
+    }
+
+    /**
+     * Sends the whole list at once (the producer packs it into few requests) and waits for the acks,
+     * so the caller commits its offsets only after the events are durable.
+     */
+    public void sendPaymentCanceled(List<PaymentCanceledEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        log.info("📤 Sending {} PaymentCanceledEvent(s)", events.size());
+        CompletableFuture.allOf(events.stream()
+                .map(event -> sendMessage(paymentCanceledTopic, String.valueOf(event.bookingId()), event))
+                .toArray(CompletableFuture[]::new)).join();
     }
 
-    private void sendMessage(String topic, String key, Object payload) {
+    private CompletableFuture<SendResult<String, Object>> sendMessage(String topic, String key, Object payload) {
         Message<Object> message = MessageBuilder
                 .withPayload(payload)
                 .setHeader(KafkaHeaders.TOPIC, topic)
                 .setHeader(KafkaHeaders.KEY, key)
+                .setHeader(EventHeaders.EVENT_ID, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
                 .build();
-        kafkaTemplate.send(message);
+        return kafkaTemplate.send(message);
     }
 }
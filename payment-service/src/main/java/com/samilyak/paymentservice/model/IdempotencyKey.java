@@ -0,0 +1,80 @@
+package com.samilyak.paymentservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+import static jakarta.persistence.EnumType.STRING;
+
+/**
+ * One provider operation per booking. The row is inserted before the provider is called
+ * and finalised afterwards; a duplicate delivery stops at the insert conflict.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", length = 64)
+    private String key;
+
+    @Column(nullable = false)
+    private Long bookingId;
+
+    @Enumerated(STRING)
+    @Column(nullable = false)
+    private Operation operation;
+
+    @Enumerated(STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    // Id сессии или возврата у провайдера
+    private String result;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public enum Operation {
+        CHECKOUT("checkout-"),
+        REFUND("refund-");
+
+        private final String prefix;
+
+        Operation(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * The same key goes to the provider, so a repeated call is deduplicated on both sides
+         */
+        public String keyFor(Long bookingId) {
+            return prefix + bookingId;
+        }
+    }
+
+    /**
+     * FAILED may be retried with the same key — the provider never stored an answer.
+     * REJECTED is final: the provider stored its error under the key and would only repeat it.
+     */
+    public enum Status {
+        IN_PROGRESS, COMPLETED, FAILED, REJECTED
+    }
+}
@@ -12,8 +12,10 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.UUID;
 
 import static jakarta.persistence.EnumType.STRING;
@@ -54,6 +56,14 @@ public class Payment {
     @Column(name = "payment_intent_id")
     private String paymentIntentId;
 
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    // Сверка подтвердила оплаченную бронь; такой платёж больше не сканируется
+    @Column(name = "reconciled_at")
+    private Instant reconciledAt;
+
     public enum Status {
         PENDING, PAID, CANCELED, FAILED, REFUNDED
     }
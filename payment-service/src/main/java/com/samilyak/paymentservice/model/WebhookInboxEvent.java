@@ -0,0 +1,64 @@
+package com.samilyak.paymentservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A provider webhook stored as received, keyed by the provider event id.
+ * The controller only appends it; the processor applies it later.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Getter
+@Setter
+@Entity
+@Table(name = "webhook_inbox")
+public class WebhookInboxEvent {
+
+    @Id
+    @Column(name = "event_id")
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    /**
+     * Checkout session the event belongs to; events of one session are applied in order
+     */
+    @Column(name = "session_id")
+    private String sessionId;
+
+    /**
+     * Raw request body
+     */
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "received_at", nullable = false)
+    private Instant receivedAt;
+
+    /**
+     * Not picked up before this moment: the claim lease of a processor, or the retry backoff
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,55 @@
+package com.samilyak.paymentservice.repository;
+
+import com.samilyak.paymentservice.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Inserts the key as IN_PROGRESS. An existing key is taken over only if its holder
+     * went silent before {@code staleBefore}, or if it failed and {@code retryFailed} is set;
+     * COMPLETED and REJECTED keys are never taken over.
+     *
+     * @return 1 if the caller now owns the key, 0 for a duplicate
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (idempotency_key, booking_id, operation, status, created_at, updated_at)
+            VALUES (:key, :bookingId, :operation, 'IN_PROGRESS', :now, :now)
+            ON CONFLICT (idempotency_key) DO UPDATE
+                SET status = 'IN_PROGRESS', result = NULL, updated_at = :now
+                WHERE (idempotency_keys.status = 'IN_PROGRESS' AND idempotency_keys.updated_at < :staleBefore)
+                   OR (idempotency_keys.status = 'FAILED' AND :retryFailed)
+            """, nativeQuery = true)
+    int reserve(@Param("key") String key,
+                @Param("bookingId") Long bookingId,
+                @Param("operation") String operation,
+                @Param("now") Instant now,
+                @Param("staleBefore") Instant staleBefore,
+                @Param("retryFailed") boolean retryFailed);
+
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyKey k SET k.status = :status, k.result = :result, k.updatedAt = :now
+            WHERE k.key = :key
+            """)
+    int finish(@Param("key") String key,
+               @Param("status") IdempotencyKey.Status status,
+               @Param("result") String result,
+               @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyKey k SET k.status = :status, k.result = NULL, k.updatedAt = :now
+            WHERE k.key IN :keys
+            """)
+    int finishAll(@Param("keys") Collection<String> keys,
+                  @Param("status") IdempotencyKey.Status status,
+                  @Param("now") Instant now);
+}
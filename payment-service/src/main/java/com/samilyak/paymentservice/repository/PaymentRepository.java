@@ -2,7 +2,11 @@ package com.samilyak.paymentservice.repository;
 
 import com.samilyak.paymentservice.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -18,5 +22,46 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
     Optional<Payment> findBySessionId(String sessionId);
 
+    List<Payment> findAllByBookingIdIn(Collection<Long> bookingIds);
+
+    /**
+     * Keyset page of one id range: next {@code limit} not yet reconciled payments after {@code after},
+     * below {@code upper}. Served by the (status, id) index, and for PAID by the partial index over
+     * unreconciled rows, so every page costs the same however deep the scan is and settled payments
+     * are never read again.
+     */
+    @Query(value = """
+            SELECT * FROM payments
+            WHERE status = :status AND reconciled_at IS NULL
+              AND id > :after AND id < :upper AND created_at < :createdBefore
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Payment> findPage(@Param("status") String status,
+                           @Param("after") UUID after,
+                           @Param("upper") UUID upper,
+                           @Param("createdBefore") Instant createdBefore,
+                           @Param("limit") int limit);
+
+    /**
+     * Moves one payment only if it is still in {@code expected}; 0 means a webhook or another replica was first.
+     */
+    @Modifying
+    @Query("""
+            UPDATE Payment p SET p.status = :next, p.paymentIntentId = COALESCE(:paymentIntentId, p.paymentIntentId)
+            WHERE p.id = :id AND p.status = :expected
+            """)
+    int transition(@Param("id") UUID id,
+                   @Param("expected") Payment.Status expected,
+                   @Param("next") Payment.Status next,
+                   @Param("paymentIntentId") String paymentIntentId);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.reconciledAt = :now WHERE p.id IN :ids")
+    int markReconciled(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status WHERE p.id IN :ids")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("status") Payment.Status status);
 
 }
@@ -0,0 +1,30 @@
+package com.samilyak.paymentservice.repository;
+
+import com.samilyak.paymentservice.model.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    /**
+     * Takes the lease until {@code lockedUntil} unless another holder's lease is still running at {@code now}.
+     *
+     * @return 1 if the caller now holds the lease, 0 if it is held elsewhere
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO scheduler_locks (name, locked_until, locked_by)
+            VALUES (:name, :lockedUntil, :owner)
+            ON CONFLICT (name) DO UPDATE
+                SET locked_until = :lockedUntil, locked_by = :owner
+                WHERE scheduler_locks.locked_until <= :now
+            """, nativeQuery = true)
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("now") Instant now,
+                @Param("lockedUntil") Instant lockedUntil);
+}
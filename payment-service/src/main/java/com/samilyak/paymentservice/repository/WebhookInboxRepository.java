@@ -0,0 +1,53 @@
+package com.samilyak.paymentservice.repository;
+
+import com.samilyak.paymentservice.model.WebhookInboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEvent, String> {
+
+    /**
+     * @return 0 if the provider redelivered an event that is already in the inbox
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO webhook_inbox (event_id, event_type, session_id, payload, received_at, next_attempt_at, attempts)
+            VALUES (:eventId, :eventType, :sessionId, :payload, :now, :now, 0)
+            ON CONFLICT (event_id) DO NOTHING
+            """, nativeQuery = true)
+    int append(@Param("eventId") String eventId,
+               @Param("eventType") String eventType,
+               @Param("sessionId") String sessionId,
+               @Param("payload") String payload,
+               @Param("now") Instant now);
+
+    /**
+     * Oldest due events in arrival order, locked for the current transaction.
+     * SKIP LOCKED lets several replicas claim disjoint batches. An event whose session still has
+     * an earlier unprocessed event is held back, so at most one event per session is in flight.
+     */
+    @Query(value = """
+            SELECT * FROM webhook_inbox w
+            WHERE w.processed_at IS NULL AND w.next_attempt_at <= :now AND w.attempts < :maxAttempts
+              AND NOT EXISTS (
+                  SELECT 1 FROM webhook_inbox earlier
+                  WHERE earlier.session_id = w.session_id
+                    AND earlier.processed_at IS NULL
+                    AND (earlier.received_at, earlier.event_id) < (w.received_at, w.event_id))
+            ORDER BY w.received_at, w.event_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<WebhookInboxEvent> lockNextBatch(@Param("now") Instant now,
+                                          @Param("maxAttempts") int maxAttempts,
+                                          @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM WebhookInboxEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") Instant before);
+}
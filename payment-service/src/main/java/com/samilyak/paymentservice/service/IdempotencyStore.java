@@ -0,0 +1,138 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.paymentservice.model.IdempotencyKey;
+import com.samilyak.paymentservice.model.IdempotencyKey.Operation;
+import com.samilyak.paymentservice.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reservation-style idempotency for provider calls: reserve the key, call the provider, then finalise.
+ * A duplicate delivery costs one insert conflict on the primary key instead of a provider round trip.
+ * Joins the caller's transaction, so the reservation commits together with the payment row.
+ */
+@Slf4j
+@Component
+class IdempotencyStore {
+
+    private final IdempotencyKeyRepository repository;
+    private final Duration lease;
+
+    IdempotencyStore(IdempotencyKeyRepository repository,
+                     @Value("${application.payment.idempotency.lease:1m}") Duration lease) {
+        this.repository = repository;
+        this.lease = lease;
+    }
+
+    /**
+     * An IN_PROGRESS key older than the lease belongs to a crashed worker and may be taken over;
+     * the lease has to outlive the gateway timeout.
+     *
+     * @param retryFailed whether a key that ended in FAILED may be reserved again
+     * @return true if the caller owns the key and should call the provider
+     */
+    @Transactional
+    public boolean reserve(Operation operation, Long bookingId, boolean retryFailed) {
+        String key = operation.keyFor(bookingId);
+        Instant now = Instant.now();
+        boolean reserved = repository.reserve(
+                key, bookingId, operation.name(), now, now.minus(lease), retryFailed) == 1;
+        if (!reserved) {
+            log.info("🔁 Ключ идемпотентности {} уже занят — дубликат пропущен", key);
+        }
+        return reserved;
+    }
+
+    /**
+     * {@link #reserve} for a whole batch in one transaction.
+     *
+     * @return booking ids whose key the caller now owns
+     */
+    @Transactional
+    public Set<Long> reserveAll(Operation operation, Collection<Long> bookingIds, boolean retryFailed) {
+        Set<Long> reserved = new LinkedHashSet<>();
+        for (Long bookingId : bookingIds) {
+            if (reserve(operation, bookingId, retryFailed)) {
+                reserved.add(bookingId);
+            }
+        }
+        return reserved;
+    }
+
+    @Transactional
+    public void complete(Operation operation, Long bookingId, String result) {
+        finish(operation, bookingId, IdempotencyKey.Status.COMPLETED, result);
+    }
+
+    @Transactional
+    public void fail(Operation operation, Long bookingId) {
+        finish(operation, bookingId, IdempotencyKey.Status.FAILED, null);
+    }
+
+    /**
+     * Results differ per key, so the rows are updated as entities and Hibernate sends them in JDBC batches.
+     */
+    @Transactional
+    public void completeAll(Operation operation, Map<Long, String> resultsByBookingId) {
+        Instant now = Instant.now();
+        List<String> keys = resultsByBookingId.keySet().stream().map(operation::keyFor).toList();
+        for (IdempotencyKey key : repository.findAllById(keys)) {
+            key.setStatus(IdempotencyKey.Status.COMPLETED);
+            key.setResult(resultsByBookingId.get(key.getBookingId()));
+            key.setUpdatedAt(now);
+        }
+    }
+
+    @Transactional
+    public void failAll(Operation operation, Collection<Long> bookingIds) {
+        finishAll(operation, bookingIds, IdempotencyKey.Status.FAILED);
+    }
+
+    /**
+     * The provider stored a definitive error under the key; no later attempt may reuse it.
+     */
+    @Transactional
+    public void reject(Operation operation, Long bookingId) {
+        finish(operation, bookingId, IdempotencyKey.Status.REJECTED, null);
+    }
+
+    @Transactional
+    public void rejectAll(Operation operation, Collection<Long> bookingIds) {
+        finishAll(operation, bookingIds, IdempotencyKey.Status.REJECTED);
+    }
+
+    /**
+     * @return those of the booking ids whose key was rejected by the provider
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> rejected(Operation operation, Collection<Long> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return Set.of();
+        }
+        return repository.findAllById(bookingIds.stream().map(operation::keyFor).toList()).stream()
+                .filter(key -> key.getStatus() == IdempotencyKey.Status.REJECTED)
+                .map(IdempotencyKey::getBookingId)
+                .collect(Collectors.toSet());
+    }
+
+    private void finishAll(Operation operation, Collection<Long> bookingIds, IdempotencyKey.Status status) {
+        if (!bookingIds.isEmpty()) {
+            repository.finishAll(bookingIds.stream().map(operation::keyFor).toList(), status, Instant.now());
+        }
+    }
+
+    private void finish(Operation operation, Long bookingId, IdempotencyKey.Status status, String result) {
+        repository.finish(operation.keyFor(bookingId), status, result, Instant.now());
+    }
+}
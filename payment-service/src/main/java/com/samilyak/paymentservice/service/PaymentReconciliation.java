@@ -0,0 +1,325 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+import com.samilyak.paymentservice.client.booking.BookingClient;
+import com.samilyak.paymentservice.client.gateway.PaymentGateway;
+import com.samilyak.paymentservice.client.gateway.SessionState;
+import com.samilyak.paymentservice.dto.BookingStatusDto;
+import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.repository.PaymentRepository;
+import com.samilyak.paymentservice.repository.SchedulerLockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.CHECKOUT;
+import static com.samilyak.paymentservice.model.Payment.Status.CANCELED;
+import static com.samilyak.paymentservice.model.Payment.Status.FAILED;
+import static com.samilyak.paymentservice.model.Payment.Status.PAID;
+import static com.samilyak.paymentservice.model.Payment.Status.PENDING;
+
+/**
+ * Finds payments the saga lost track of and sends the events that should have been sent.
+ * PENDING payments are compared with their checkout session at the provider (lost webhooks),
+ * PAID payments with the booking status (lost PaymentSuccessEvent, or money kept for a booking that is gone).
+ * The id space is split into ranges scanned in parallel, each by a keyset cursor in fixed-size chunks,
+ * so memory stays bounded however many payments there are. A PAID payment whose booking is confirmed is
+ * marked reconciled and leaves the scan for good: a later cancellation is the saga's to finish.
+ * A pass runs on one replica at a time, under a lease in {@code scheduler_locks}; every correction
+ * is still a conditional update, which makes a concurrent webhook harmless.
+ * Metrics: {@code payment.reconciliation.run}, {@code payment.reconciliation.scanned},
+ * {@code payment.reconciliation.corrections}, {@code payment.reconciliation.partitions.active}.
+ */
+@Slf4j
+@Component
+public class PaymentReconciliation {
+
+    // Бронь завершилась без подтверждения — деньги надо вернуть
+    private static final Set<String> ORPHANING_BOOKING_STATUSES = Set.of("CANCELED", "CANCEL_FAILED", "EXPIRED");
+    private static final String LOCK_NAME = "payment-reconciliation";
+
+    // Владелец аренды — этот экземпляр сервиса
+    private final String lockOwner = UUID.randomUUID().toString();
+
+    private final PaymentRepository paymentRepository;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentGateway paymentGateway;
+    private final BookingClient bookingClient;
+    private final RefundPipeline refundPipeline;
+    private final PaymentMessageProducer messageProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int partitions;
+    private final int chunkSize;
+    private final Duration grace;
+    private final Duration lease;
+
+    private final Timer runTimer;
+    private final AtomicInteger activePartitions = new AtomicInteger();
+
+    public PaymentReconciliation(PaymentRepository paymentRepository,
+                                 SchedulerLockRepository schedulerLockRepository,
+                                 IdempotencyStore idempotencyStore,
+                                 PaymentGateway paymentGateway,
+                                 BookingClient bookingClient,
+                                 RefundPipeline refundPipeline,
+                                 PaymentMessageProducer messageProducer,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.payment.reconciliation.partitions:4}") int partitions,
+                                 @Value("${application.payment.reconciliation.chunk-size:200}") int chunkSize,
+                                 @Value("${application.payment.reconciliation.grace:30m}") Duration grace,
+                                 @Value("${application.payment.reconciliation.lease:14m}") Duration lease) {
+        this.paymentRepository = paymentRepository;
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.paymentGateway = paymentGateway;
+        this.bookingClient = bookingClient;
+        this.refundPipeline = refundPipeline;
+        this.messageProducer = messageProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.grace = grace;
+        this.lease = lease;
+        this.runTimer = Timer.builder("payment.reconciliation.run")
+                .description("Duration of one full reconciliation pass")
+                .register(meterRegistry);
+        Gauge.builder("payment.reconciliation.partitions.active", activePartitions, AtomicInteger::get)
+                .description("Id ranges still being scanned in the current pass")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Payments younger than {@code grace} are left alone: their saga may still be in flight.
+     * The lease is not released at the end of the pass, so replicas on staggered timers still
+     * run at most one pass per {@code lease} between them.
+     */
+    @Scheduled(fixedDelayString = "${application.payment.reconciliation.interval-ms:900000}",
+            initialDelayString = "${application.payment.reconciliation.initial-delay-ms:60000}")
+    public void reconcile() {
+        Instant now = Instant.now();
+        if (!acquireLease(now)) {
+            log.debug("🔎 Сверка платежей пропущена: проход ведёт другая реплика");
+            return;
+        }
+
+        long started = System.nanoTime();
+        Instant createdBefore = now.minus(grace);
+        List<UUID> bounds = partitionBounds(partitions);
+
+        // close() ждёт, пока отработают все диапазоны
+        try (ExecutorService executor =
+                     Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("reconciliation-", 0).factory())) {
+            for (int i = 0; i < partitions; i++) {
+                UUID lower = bounds.get(i);
+                UUID upper = bounds.get(i + 1);
+                executor.submit(() -> scanPartition(PENDING, lower, upper, createdBefore));
+                executor.submit(() -> scanPartition(PAID, lower, upper, createdBefore));
+            }
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        runTimer.record(elapsed);
+        log.info("🔎 Сверка платежей завершена за {} мс", elapsed.toMillis());
+    }
+
+    private boolean acquireLease(Instant now) {
+        Integer acquired = transactionTemplate.execute(status ->
+                schedulerLockRepository.acquire(LOCK_NAME, lockOwner, now, now.plus(lease)));
+        return acquired != null && acquired == 1;
+    }
+
+    /**
+     * {@code n + 1} bounds that split the UUID space evenly by its high 64 bits. A bound has zero low bits,
+     * i.e. an invalid variant, so no generated id ever equals one and {@code (lower, upper)} ranges miss nothing.
+     */
+    static List<UUID> partitionBounds(int n) {
+        List<UUID> bounds = new ArrayList<>(n + 1);
+        BigInteger space = BigInteger.ONE.shiftLeft(Long.SIZE);
+        for (int i = 0; i < n; i++) {
+            long high = space.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)).longValue();
+            bounds.add(new UUID(high, 0L));
+        }
+        bounds.add(new UUID(-1L, -1L));
+        return bounds;
+    }
+
+    private void scanPartition(Payment.Status status, UUID lower, UUID upper, Instant createdBefore) {
+        activePartitions.incrementAndGet();
+        Counter scannedCounter = meterRegistry.counter("payment.reconciliation.scanned", "status", status.name());
+        UUID after = lower;
+        int scanned = 0;
+        try {
+            List<Payment> chunk;
+            do {
+                chunk = paymentRepository.findPage(status.name(), after, upper, createdBefore, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                if (status == PENDING) {
+                    reconcilePending(chunk);
+                } else {
+                    reconcilePaid(chunk);
+                }
+                scanned += chunk.size();
+                scannedCounter.increment(chunk.size());
+                after = chunk.get(chunk.size() - 1).getId();
+            } while (chunk.size() == chunkSize);
+        } catch (RuntimeException e) {
+            log.error("❌ Сверка {} в диапазоне {}: прервана после {} платежей: {}", status, lower, scanned, e.getMessage());
+        } finally {
+            activePartitions.decrementAndGet();
+        }
+        log.debug("🔎 Сверка {} в диапазоне {}: проверено {}", status, lower, scanned);
+    }
+
+    /**
+     * One provider lookup at a time per range: the ranges run in parallel, so the number of
+     * concurrent lookups equals the partition count and stays well inside the gateway bulkhead.
+     */
+    private void reconcilePending(List<Payment> chunk) {
+        for (Payment payment : chunk) {
+            if (payment.getSessionId() == null) {
+                failStuckInitiation(payment);
+                continue;
+            }
+
+            SessionState state;
+            try {
+                state = paymentGateway.getSessionState(payment.getSessionId()).join();
+            } catch (CompletionException e) {
+                log.warn("⚠️ Сверка: сессия {} не получена: {}", payment.getSessionId(), e.getMessage());
+                continue;
+            }
+
+            switch (state.status()) {
+                case PAID -> {
+                    if (transition(payment, PENDING, PAID, state.paymentIntentId())) {
+                        log.warn("🩹 Сверка: платёж брони {} оплачен, webhook потерян", payment.getBookingId());
+                        messageProducer.sendPaymentSuccess(new PaymentSuccessEvent(
+                                payment.getBookingId(), payment.getUserId(), payment.getSessionId(), "user@example.com"));
+                        corrected("webhook-paid");
+                    }
+                }
+                case EXPIRED -> {
+                    if (transition(payment, PENDING, CANCELED, null)) {
+                        log.warn("🩹 Сверка: сессия брони {} истекла без webhook", payment.getBookingId());
+                        messageProducer.sendPaymentFailed(new PaymentFailedEvent(
+                                payment.getBookingId(), payment.getUserId(), "Session expired"));
+                        corrected("session-expired");
+                    }
+                }
+                case OPEN -> {
+                    // Клиент ещё может оплатить
+                }
+            }
+        }
+    }
+
+    /**
+     * The initiation died between reserving its key and storing the session. The key is failed
+     * together with the payment, so a late redelivery cannot open a session for it any more.
+     */
+    private void failStuckInitiation(Payment payment) {
+        Boolean failed = transactionTemplate.execute(status -> {
+            if (paymentRepository.transition(payment.getId(), PENDING, FAILED, null) == 0) {
+                return false;
+            }
+            idempotencyStore.fail(CHECKOUT, payment.getBookingId());
+            return true;
+        });
+        if (Boolean.TRUE.equals(failed)) {
+            log.warn("🩹 Сверка: платёж брони {} завис без сессии", payment.getBookingId());
+            messageProducer.sendPaymentFailed(new PaymentFailedEvent(
+                    payment.getBookingId(), payment.getUserId(), "Payment initialization did not complete"));
+            corrected("stuck-initiation");
+        }
+    }
+
+    /**
+     * One booking-service call per chunk. Payments of confirmed bookings are marked reconciled,
+     * orphaned ones go through the refund pipeline, which also tells the booking side with a PaymentCanceledEvent.
+     */
+    private void reconcilePaid(List<Payment> chunk) {
+        Map<Long, String> bookingStatuses;
+        try {
+            bookingStatuses = bookingClient.getBookingStatuses(chunk.stream().map(Payment::getBookingId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(BookingStatusDto::bookingId, BookingStatusDto::status));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Сверка: статусы броней не получены, пачка пропущена: {}", e.getMessage());
+            return;
+        }
+
+        List<UUID> settled = new ArrayList<>();
+        List<BookingCancellationRequestedEvent> refunds = new ArrayList<>();
+        for (Payment payment : chunk) {
+            String bookingStatus = bookingStatuses.get(payment.getBookingId());
+            if ("CONFIRMED".equals(bookingStatus)) {
+                settled.add(payment.getId());
+            } else if (bookingStatus == null) {
+                log.warn("⚠️ Сверка: бронь {} оплачена, но не найдена", payment.getBookingId());
+            } else if ("PENDING".equals(bookingStatus)) {
+                log.warn("🩹 Сверка: бронь {} оплачена, но не подтверждена — повторяем PaymentSuccess",
+                        payment.getBookingId());
+                messageProducer.sendPaymentSuccess(new PaymentSuccessEvent(
+                        payment.getBookingId(), payment.getUserId(), payment.getSessionId(), "user@example.com"));
+                corrected("success-resent");
+            } else if (ORPHANING_BOOKING_STATUSES.contains(bookingStatus)) {
+                log.warn("🩹 Сверка: бронь {} в статусе {}, а платёж PAID — возврат", payment.getBookingId(), bookingStatus);
+                refunds.add(new BookingCancellationRequestedEvent(
+                        payment.getBookingId(), null, null, null, payment.getSessionId(), true));
+            }
+        }
+
+        if (!settled.isEmpty()) {
+            Instant now = Instant.now();
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.markReconciled(settled, now));
+        }
+
+        if (!refunds.isEmpty()) {
+            Set<Long> failed = refundPipeline.process(refunds);
+            corrected("refunded", refunds.size() - failed.size());
+        }
+    }
+
+    private boolean transition(Payment payment, Payment.Status expected, Payment.Status next, String paymentIntentId) {
+        Integer updated = transactionTemplate.execute(status ->
+                paymentRepository.transition(payment.getId(), expected, next, paymentIntentId));
+        return updated != null && updated == 1;
+    }
+
+    private void corrected(String action) {
+        corrected(action, 1);
+    }
+
+    private void corrected(String action, int count) {
+        meterRegistry.counter("payment.reconciliation.corrections", "action", action).increment(count);
+    }
+}
@@ -1,23 +1,33 @@
 package com.samilyak.paymentservice.service;
 
-import com.samilyak.paymentservice.client.stripe.StripeClient;
+import com.samilyak.paymentservice.client.gateway.PaymentGateway;
+import com.samilyak.paymentservice.client.gateway.PaymentSession;
 import com.samilyak.paymentservice.dto.PaymentResponseDto;
 import com.samilyak.paymentservice.exception.EntityNotFoundException;
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
 import com.samilyak.paymentservice.mapper.PaymentMapper;
 import com.samilyak.paymentservice.model.Payment;
 import com.samilyak.paymentservice.repository.PaymentRepository;
-import com.stripe.model.checkout.Session;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.CHECKOUT;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
 import static com.samilyak.paymentservice.model.Payment.Status.CANCELED;
+import static com.samilyak.paymentservice.model.Payment.Status.FAILED;
 import static com.samilyak.paymentservice.model.Payment.Status.PENDING;
 import static com.samilyak.paymentservice.model.Payment.Status.REFUNDED;
 
@@ -28,33 +38,62 @@ public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final PaymentMapper paymentMapper;
-    private final StripeClient stripeClient;
-
-    @Transactional
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${application.payment-gateway.session-ttl:40m}")
+    private Duration sessionTtl;
+
+    /**
+     * Insert-first: the idempotency key and the PENDING row commit together, then the provider is called
+     * outside any transaction, then the session and the key are finalised in one short transaction.
+     * A redelivered event stops at the key conflict and never reaches the provider.
+     */
     @Override
     public void initiatePayment(Long bookingId, Long userId, BigDecimal amount) {
         log.info("🚀 Инициация платежа для bookingId={}", bookingId);
 
-        // 1. Идемпотентность
-        if (paymentRepository.findByBookingId(bookingId).isPresent()) {
+        // 1. Идемпотентность: резервируем ключ и строку PENDING без сессии
+        Payment pending = transactionTemplate.execute(status -> {
+            if (!idempotencyStore.reserve(CHECKOUT, bookingId, false)) {
+                return null;
+            }
+            // Строка остаётся от упавшего обработчика — продолжаем с ней
+            return paymentRepository.findByBookingId(bookingId)
+                    .orElseGet(() -> paymentRepository.save(Payment.builder()
+                            .bookingId(bookingId)
+                            .userId(userId)
+                            .amountToPay(amount)
+                            .status(PENDING)
+                            .build()));
+        });
+        if (pending == null) {
             log.warn("⚠️ Платеж для брони {} уже существует.", bookingId);
             return;
         }
 
-        // 2. Stripe Session
-        Session session = stripeClient.createPaymentSession(amount);
-
-        // 3. Сохраняем (PENDING)
-        Payment payment = Payment.builder()
-                .bookingId(bookingId)
-                .userId(userId)
-                .amountToPay(amount)
-                .status(PENDING)
-                .sessionId(session.getId())
-                .sessionUrl(session.getUrl())
-                .build();
+        // 2. Сессия у провайдера — вне транзакции
+        // От момента создания строки: повтор после сбоя шлёт провайдеру те же параметры
+        Instant createdAt = pending.getCreatedAt() != null ? pending.getCreatedAt() : Instant.now();
+        PaymentSession session;
+        try {
+            session = await(paymentGateway.createSession(bookingId, pending.getAmountToPay(), createdAt.plus(sessionTtl)));
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> {
+                getPaymentById(pending.getId(), pending.getId().toString()).setStatus(FAILED);
+                idempotencyStore.fail(CHECKOUT, bookingId);
+            });
+            throw e;
+        }
 
-        paymentRepository.save(payment);
+        // 3. Сохраняем сессию и закрываем ключ
+        transactionTemplate.executeWithoutResult(status -> {
+            Payment payment = getPaymentById(pending.getId(), pending.getId().toString());
+            payment.setSessionId(session.id());
+            payment.setSessionUrl(session.url());
+            idempotencyStore.complete(CHECKOUT, bookingId, session.id());
+        });
         log.info("💾 Платеж создан: BookingID={}, Status=PENDING", bookingId);
     }
 
@@ -84,15 +123,20 @@ public class PaymentServiceImpl implements PaymentService {
                 .orElseThrow(() -> new EntityNotFoundException("Payment not found by sessionId: " + sessionId));
     }
 
-    @Transactional
+    /**
+     * Same split as {@link #initiatePayment}: reserve the refund key, refund outside the transaction,
+     * then record the result. A refund that failed before the provider answered releases the key for
+     * the next attempt; a definitive provider error rejects it for good, since the provider would only
+     * repeat that error for the same key.
+     */
     @Override
     public void cancelPayment(String bookingIdStr) {
         Long bookingId = Long.valueOf(bookingIdStr);
         log.info("🔄 Запрос на отмену платежа для bookingId={}", bookingId);
 
         // 2. Ищем платеж по ID БРОНИРОВАНИЯ
-        Payment payment = paymentRepository.findByBookingId(bookingId)
-                .orElseThrow(() -> new EntityNotFoundException("Payment not found for booking: " + bookingId));
+        Payment payment = transactionTemplate.execute(status -> paymentRepository.findByBookingId(bookingId)
+                .orElseThrow(() -> new EntityNotFoundException("Payment not found for booking: " + bookingId)));
 
         // 3. Если уже отменен — выходим
         if (payment.getStatus() == CANCELED || payment.getStatus() == REFUNDED) {
@@ -103,18 +147,39 @@ public class PaymentServiceImpl implements PaymentService {
         // 4. ЛОГИКА ВОЗВРАТА (Гибридная)
         if (payment.getPaymentIntentId() != null) {
             // Если Stripe уже провел оплату
-            log.info("💰 Выполняем возврат средств через Stripe (Intent: {})...", payment.getPaymentIntentId());
-            stripeClient.refundPayment(payment.getPaymentIntentId());
-
-            payment.setStatus(REFUNDED);
+            if (!idempotencyStore.reserve(REFUND, bookingId, true)) {
+                if (!idempotencyStore.rejected(REFUND, List.of(bookingId)).isEmpty()) {
+                    throw new PaymentGatewayException("Refund for booking " + bookingId + " was rejected by the provider",
+                            null, true);
+                }
+                return;
+            }
+            log.info("💰 Выполняем возврат средств через провайдера (Intent: {})...", payment.getPaymentIntentId());
+            String refundId;
+            try {
+                refundId = await(paymentGateway.refund(bookingId, payment.getPaymentIntentId()));
+            } catch (RuntimeException e) {
+                if (e instanceof PaymentGatewayException gatewayError && gatewayError.isDefinitive()) {
+                    idempotencyStore.reject(REFUND, bookingId);
+                } else {
+                    idempotencyStore.fail(REFUND, bookingId);
+                }
+                throw e;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                getPaymentById(payment.getId(), payment.getId().toString()).setStatus(REFUNDED);
+                idempotencyStore.complete(REFUND, bookingId, refundId);
+            });
             log.info("✅ Средства возвращены. Статус REFUNDED.");
         } else {
             // Если оплаты не было (PENDING или ошибка)
-            log.info("ℹ️ PaymentIntent отсутствует (клиент не платил). Просто отменяем статус.");
-            payment.setStatus(CANCELED);
+            log.info("ℹ️ PaymentIntent отсутствует (клиент не платил). Закрываем сессию и отменяем статус.");
+            if (payment.getSessionId() != null) {
+                await(paymentGateway.expireSession(payment.getSessionId()));
+            }
+            updateStatus(payment.getId(), CANCELED);
         }
-
-        paymentRepository.save(payment);
     }
 
     @Override
@@ -140,6 +205,26 @@ public class PaymentServiceImpl implements PaymentService {
         );
     }
 
+    private void updateStatus(UUID paymentId, Payment.Status status) {
+        transactionTemplate.executeWithoutResult(tx ->
+                getPaymentById(paymentId, paymentId.toString()).setStatus(status));
+    }
+
+    /**
+     * Blocks the calling (virtual) thread; the gateway has already bounded the wait by its timeout,
+     * and the provider's HTTP timeouts bound the call behind it (see {@link PaymentGateway}).
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     private UUID parsePaymentId(String paymentId) {
         try {
             return UUID.fromString(paymentId);
@@ -0,0 +1,293 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.paymentservice.client.gateway.PaymentGateway;
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
+import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.repository.PaymentRepository;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+import static com.samilyak.paymentservice.model.Payment.Status.CANCELED;
+import static com.samilyak.paymentservice.model.Payment.Status.PENDING;
+import static com.samilyak.paymentservice.model.Payment.Status.REFUNDED;
+
+/**
+ * Cancellation requests handled a whole poll at a time: one query for the payments, provider refunds
+ * with bounded parallelism and a rate limit, results written in batches and the PaymentCanceledEvents
+ * sent together. Unpaid payments get their checkout session expired first, so an expired booking
+ * cannot be paid afterwards; a session that could not be expired is reported as failed.
+ * Failed refunds are retried with exponential backoff under the same provider idempotency key, which is
+ * only safe while the provider has not answered (network error, timeout). A definitive provider error is
+ * stored under that key and would just be repeated, so the key is marked REJECTED and never retried.
+ * Refunds that still fail or were rejected get no PaymentCanceledEvent and are handed back to the caller.
+ * Metrics: {@code payment.refunds.batch} (timer) and {@code payment.refunds} (counter by outcome).
+ */
+@Slf4j
+@Component
+public class RefundPipeline {
+
+    private final PaymentRepository paymentRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentGateway paymentGateway;
+    private final RateLimiter rateLimiter;
+    private final PaymentMessageProducer messageProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Semaphore parallelism;
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    private final Timer batchTimer;
+    private final Counter refundedCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+
+    public RefundPipeline(PaymentRepository paymentRepository,
+                          IdempotencyStore idempotencyStore,
+                          PaymentGateway paymentGateway,
+                          RateLimiter refundRateLimiter,
+                          PaymentMessageProducer messageProducer,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${application.payment.refunds.parallelism:8}") int parallelism,
+                          @Value("${application.payment.refunds.retry.max-attempts:3}") int maxAttempts,
+                          @Value("${application.payment.refunds.retry.backoff:1s}") Duration backoff) {
+        this.paymentRepository = paymentRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.paymentGateway = paymentGateway;
+        this.rateLimiter = refundRateLimiter;
+        this.messageProducer = messageProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.parallelism = new Semaphore(parallelism);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.batchTimer = Timer.builder("payment.refunds.batch")
+                .description("Processing time of one batch of cancellation requests")
+                .register(meterRegistry);
+        this.refundedCounter = refunds(meterRegistry, "refunded");
+        this.failedCounter = refunds(meterRegistry, "failed");
+        this.skippedCounter = refunds(meterRegistry, "skipped");
+    }
+
+    /**
+     * @return booking ids whose refund (or session expiry) failed; nothing was sent for them
+     */
+    public Set<Long> process(List<BookingCancellationRequestedEvent> events) {
+        long started = System.nanoTime();
+
+        // Повторная доставка той же брони внутри пачки — берём последнюю
+        Map<Long, BookingCancellationRequestedEvent> byBooking = new LinkedHashMap<>();
+        events.forEach(event -> byBooking.put(event.bookingId(), event));
+
+        Map<Long, Payment> payments = transactionTemplate.execute(status ->
+                paymentRepository.findAllByBookingIdIn(byBooking.keySet()).stream()
+                        .collect(Collectors.toMap(Payment::getBookingId, Function.identity())));
+
+        List<Payment> toCancel = new ArrayList<>();
+        Map<Long, Payment> toRefund = new LinkedHashMap<>();
+        for (BookingCancellationRequestedEvent event : byBooking.values()) {
+            Payment payment = payments.get(event.bookingId());
+            if (payment == null || payment.getStatus() == CANCELED || payment.getStatus() == REFUNDED) {
+                continue;
+            }
+            if (payment.getPaymentIntentId() != null) {
+                if (event.refundNeeded()) {
+                    toRefund.put(event.bookingId(), payment);
+                }
+            } else {
+                // Клиент не платил — возвращать нечего, но сессию надо закрыть (в т.ч. у истёкшей брони)
+                toCancel.add(payment);
+            }
+        }
+
+        Set<Long> failed = new HashSet<>();
+        List<UUID> canceled = expireSessions(toCancel, failed);
+        if (!canceled.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.updateStatus(canceled, CANCELED));
+        }
+
+        Map<Long, String> refunded = new ConcurrentHashMap<>();
+        Set<Long> skipped = new HashSet<>();
+        refundWithRetry(toRefund, refunded, failed, skipped);
+
+        if (!refunded.isEmpty()) {
+            List<UUID> refundedIds = refunded.keySet().stream().map(id -> toRefund.get(id).getId()).toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentRepository.updateStatus(refundedIds, REFUNDED);
+                idempotencyStore.completeAll(REFUND, refunded);
+            });
+        }
+
+        // Ключ держит другой обработчик — он и отправит событие
+        messageProducer.sendPaymentCanceled(byBooking.values().stream()
+                .filter(event -> !failed.contains(event.bookingId()) && !skipped.contains(event.bookingId()))
+                .map(event -> new PaymentCanceledEvent(event.bookingId(), event.paymentId()))
+                .toList());
+
+        long elapsed = System.nanoTime() - started;
+        batchTimer.record(Duration.ofNanos(elapsed));
+        refundedCounter.increment(refunded.size());
+        failedCounter.increment(failed.size());
+        skippedCounter.increment(skipped.size());
+        log.info("💸 Пачка отмен: событий={}, без оплаты={}, возвратов ok={} failed={} skipped={} за {} мс ({} возвратов/с)",
+                events.size(), canceled.size(), refunded.size(), failed.size(), skipped.size(),
+                Duration.ofNanos(elapsed).toMillis(), String.format("%.1f", refunded.size() * 1e9 / elapsed));
+        if (!failed.isEmpty()) {
+            log.error("❌ Возвраты не прошли после {} попыток: {}", maxAttempts, failed);
+        }
+        return failed;
+    }
+
+    /**
+     * Expires the open checkout sessions of unpaid payments; no retries here — a failed one is
+     * redelivered with the record. A session paid in the meantime fails too, and the redelivery
+     * finds the payment with its intent.
+     *
+     * @return ids of the payments that can be marked CANCELED
+     */
+    private List<UUID> expireSessions(List<Payment> unpaid, Set<Long> failed) {
+        List<UUID> canceled = new ArrayList<>(unpaid.size());
+        Map<Payment, CompletableFuture<Void>> calls = new LinkedHashMap<>();
+        for (Payment payment : unpaid) {
+            if (payment.getStatus() == PENDING && payment.getSessionId() != null) {
+                calls.put(payment, paymentGateway.expireSession(payment.getSessionId()));
+            } else {
+                canceled.add(payment.getId());
+            }
+        }
+        calls.forEach((payment, call) -> {
+            try {
+                call.join();
+                canceled.add(payment.getId());
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Сессию {} брони {} не удалось закрыть: {}",
+                        payment.getSessionId(), payment.getBookingId(), e.getMessage());
+                failed.add(payment.getBookingId());
+            }
+        });
+        return canceled;
+    }
+
+    private void refundWithRetry(Map<Long, Payment> toRefund, Map<Long, String> refunded,
+                                 Set<Long> failed, Set<Long> skipped) {
+        Set<Long> pending = idempotencyStore.reserveAll(REFUND, toRefund.keySet(), true);
+        List<Long> notReserved = toRefund.keySet().stream().filter(id -> !pending.contains(id)).toList();
+        // Отклонённый провайдером возврат никто не повторит и событие не отправит
+        Set<Long> rejectedBefore = idempotencyStore.rejected(REFUND, notReserved);
+        failed.addAll(rejectedBefore);
+        notReserved.stream().filter(id -> !rejectedBefore.contains(id)).forEach(skipped::add);
+
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            Set<Long> rejected = ConcurrentHashMap.newKeySet();
+            Set<Long> attemptFailed = refundOnce(pending.stream().map(toRefund::get).toList(), refunded, rejected);
+            idempotencyStore.failAll(REFUND, attemptFailed);
+            if (!rejected.isEmpty()) {
+                idempotencyStore.rejectAll(REFUND, rejected);
+                failed.addAll(rejected);
+                log.error("⛔ Провайдер отклонил возвраты окончательно, повтора не будет: {}", rejected);
+            }
+            pending.retainAll(attemptFailed);
+
+            if (pending.isEmpty() || attempt >= maxAttempts || !sleep(backoff.multipliedBy(1L << (attempt - 1)))) {
+                break;
+            }
+            log.warn("🔁 Повтор возвратов ({} из {}): {}", attempt + 1, maxAttempts, pending);
+            pending.retainAll(idempotencyStore.reserveAll(REFUND, pending, true));
+        }
+        failed.addAll(pending);
+    }
+
+    /**
+     * The semaphore bounds the calls in flight and the rate limiter paces their start;
+     * both block this (listener) thread, so a large batch is fed to the gateway gradually.
+     *
+     * @return booking ids worth retrying with the same key; definitive errors go to {@code rejected}
+     */
+    private Set<Long> refundOnce(Collection<Payment> payments, Map<Long, String> refunded, Set<Long> rejected) {
+        Set<Long> failed = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> calls = new ArrayList<>(payments.size());
+
+        for (Payment payment : payments) {
+            Long bookingId = payment.getBookingId();
+            if (!acquire()) {
+                failed.add(bookingId);
+                continue;
+            }
+            calls.add(paymentGateway.refund(bookingId, payment.getPaymentIntentId())
+                    .handle((refundId, error) -> {
+                        parallelism.release();
+                        if (error != null) {
+                            log.warn("⚠️ Возврат для брони {} не прошёл: {}", bookingId, error.getMessage());
+                            (isDefinitive(error) ? rejected : failed).add(bookingId);
+                        } else {
+                            refunded.put(bookingId, refundId);
+                        }
+                        return null;
+                    }));
+        }
+
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        return failed;
+    }
+
+    private static boolean isDefinitive(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof PaymentGatewayException e && e.isDefinitive();
+    }
+
+    private boolean acquire() {
+        try {
+            parallelism.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (!rateLimiter.acquirePermission()) {
+            parallelism.release();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Counter refunds(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payment.refunds")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,188 @@
+package com.samilyak.paymentservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+import com.samilyak.paymentservice.dto.StripeWebhookEvent;
+import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.model.WebhookInboxEvent;
+import com.samilyak.paymentservice.repository.WebhookInboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable inbox for provider webhooks. The controller appends the raw event and answers right away;
+ * the processor claims due events in arrival order, applies them outside any transaction and records
+ * the outcome. A redelivered webhook stops at the primary key, a failed one is retried with backoff.
+ * An event counts as processed only once its saga event is acknowledged by Kafka.
+ * <p>
+ * Events of one checkout session are applied in arrival order: a later one is not claimed while an
+ * earlier one of the same session is unprocessed — retrying, or parked after max-attempts, in which
+ * case the session waits for an operator. Arrival order is Stripe's delivery order, which Stripe does
+ * not guarantee to match the order the events happened in.
+ */
+@Slf4j
+@Component
+public class WebhookInbox {
+
+    private final WebhookInboxRepository inboxRepository;
+    private final PaymentService paymentService;
+    private final PaymentMessageProducer messageProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration retention;
+
+    public WebhookInbox(WebhookInboxRepository inboxRepository,
+                        PaymentService paymentService,
+                        PaymentMessageProducer messageProducer,
+                        ObjectMapper objectMapper,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${application.webhook.inbox.batch-size:100}") int batchSize,
+                        @Value("${application.webhook.inbox.max-attempts:5}") int maxAttempts,
+                        @Value("${application.webhook.inbox.lease:1m}") Duration lease,
+                        @Value("${application.webhook.inbox.retry-backoff:5s}") Duration retryBackoff,
+                        @Value("${application.webhook.inbox.retention:7d}") Duration retention) {
+        this.inboxRepository = inboxRepository;
+        this.paymentService = paymentService;
+        this.messageProducer = messageProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+    }
+
+    /**
+     * @return false if the event is already in the inbox
+     */
+    public boolean append(StripeWebhookEvent event, String payload) {
+        Integer inserted = transactionTemplate.execute(status ->
+                inboxRepository.append(event.id(), event.type(), event.sessionId(), payload, Instant.now()));
+        if (inserted == null || inserted == 0) {
+            log.info("🔁 Webhook {} уже во входящих — дубликат", event.id());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * linger-ms is the pause between polls once the inbox is drained;
+     * while full batches keep coming the processor goes on without waiting.
+     */
+    @Scheduled(fixedDelayString = "${application.webhook.inbox.linger-ms:200}")
+    public void drain() {
+        List<WebhookInboxEvent> batch;
+        do {
+            batch = transactionTemplate.execute(status -> claimBatch());
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+
+            // По порядку поступления; ошибка одного события не останавливает события других сессий
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (WebhookInboxEvent event : batch) {
+                try {
+                    handle(objectMapper.readValue(event.getPayload(), StripeWebhookEvent.class));
+                } catch (JsonProcessingException | RuntimeException e) {
+                    log.error("❌ Webhook {} ({}) не обработан: {}", event.getEventId(), event.getEventType(), e.getMessage());
+                    errors.put(event.getEventId(), String.valueOf(e.getMessage()));
+                }
+            }
+
+            List<String> ids = batch.stream().map(WebhookInboxEvent::getEventId).toList();
+            transactionTemplate.executeWithoutResult(status -> recordOutcome(ids, errors));
+            log.info("📥 Webhook inbox: обработано {} из {}", batch.size() - errors.size(), batch.size());
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${application.webhook.inbox.purge-cron:0 45 3 * * *}")
+    public void purgeProcessed() {
+        Integer deleted = transactionTemplate.execute(status ->
+                inboxRepository.deleteProcessedBefore(Instant.now().minus(retention)));
+        log.info("🧹 Webhook inbox: удалено обработанных событий: {}", deleted);
+    }
+
+    /**
+     * Pushes next_attempt_at past the lease, so a replica that dies mid-batch releases its events by itself.
+     */
+    private List<WebhookInboxEvent> claimBatch() {
+        Instant now = Instant.now();
+        List<WebhookInboxEvent> batch = inboxRepository.lockNextBatch(now, maxAttempts, batchSize);
+        batch.forEach(event -> event.setNextAttemptAt(now.plus(lease)));
+        return batch;
+    }
+
+    private void recordOutcome(List<String> ids, Map<String, String> errors) {
+        Instant now = Instant.now();
+        for (WebhookInboxEvent event : inboxRepository.findAllById(ids)) {
+            String error = errors.get(event.getEventId());
+            if (error == null) {
+                event.setProcessedAt(now);
+                event.setLastError(null);
+                continue;
+            }
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            event.setNextAttemptAt(now.plus(retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 10))));
+            if (attempts >= maxAttempts) {
+                log.error("☠️ Webhook {} отложен после {} попыток, остаётся во входящих", event.getEventId(), attempts);
+            }
+        }
+    }
+
+    private void handle(StripeWebhookEvent event) {
+        String sessionId = event.sessionId();
+        Payment payment = paymentService.findBySessionId(sessionId);
+
+        switch (event.type()) {
+            case "checkout.session.completed" -> {
+                log.info("✅ Оплата завершена успешно, sessionId={}", sessionId);
+
+                paymentService.updatePaymentWithIntent(
+                        payment.getId(),
+                        Payment.Status.PAID,
+                        event.paymentIntentId()
+                );
+
+                messageProducer.sendPaymentSuccess(new PaymentSuccessEvent(
+                        payment.getBookingId(),
+                        payment.getUserId(),
+                        sessionId,
+                        "user@example.com"
+                ));
+            }
+
+            case "checkout.session.expired" -> {
+                log.info("⚠️ Сессия оплаты истекла, sessionId={}", sessionId);
+
+                paymentService.cancelPayment(String.valueOf(payment.getBookingId()));
+
+                messageProducer.sendPaymentFailed(new PaymentFailedEvent(
+                        payment.getBookingId(),
+                        payment.getUserId(),
+                        "Session expired"
+                ));
+            }
+
+            default -> log.info("📌 Получено неизвестное событие: {}", event.type());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.samilyak.paymentservice.config;
+
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentGatewayConfigTest {
+
+    @Test
+    void defaultTimeoutsFitIntoTimeLimit() {
+        TimeLimiter timeLimiter = config("10s", "500ms", "2s", "7s").paymentTimeLimiter(new SimpleMeterRegistry());
+
+        assertThat(timeLimiter.getTimeLimiterConfig().getTimeoutDuration()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(timeLimiter.getTimeLimiterConfig().shouldCancelRunningFuture()).isTrue();
+    }
+
+    @ParameterizedTest(name = "timeout {0}, max-wait {1}, connect {2}, read {3}")
+    @CsvSource({
+            // Ровно на пределе — тоже отказ
+            "10s, 500ms, 2s, 7500ms",
+            "10s, 500ms, 2s, 9s",
+            "10s, 0ms, 0ms, 10s",
+            "5s, 2s, 2s, 2s"
+    })
+    void providerTimeoutsNotBelowTimeLimitAreRejected(String timeout, String maxWait, String connect, String read) {
+        PaymentGatewayConfig config = config(timeout, maxWait, connect, read);
+
+        assertThatThrownBy(() -> config.paymentTimeLimiter(new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("must be below timeout");
+    }
+
+    private static PaymentGatewayConfig config(String timeout, String maxWait, String connect, String read) {
+        PaymentGatewayConfig config = new PaymentGatewayConfig();
+        ReflectionTestUtils.setField(config, "timeout", duration(timeout));
+        ReflectionTestUtils.setField(config, "maxWait", duration(maxWait));
+        ReflectionTestUtils.setField(config, "connectTimeout", duration(connect));
+        ReflectionTestUtils.setField(config, "readTimeout", duration(read));
+        return config;
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
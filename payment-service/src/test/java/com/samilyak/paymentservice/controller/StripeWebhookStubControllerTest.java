@@ -0,0 +1,117 @@
+package com.samilyak.paymentservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.paymentservice.dto.StripeWebhookEvent;
+import com.samilyak.paymentservice.service.WebhookInbox;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookStubControllerTest {
+
+    private static final String SECRET = "whsec_test";
+    private static final String PAYLOAD = """
+            {"id":"evt_1","object":"event","type":"checkout.session.completed",\
+            "data":{"object":{"id":"cs_1","object":"checkout.session","payment_intent":"pi_1"}}}""";
+
+    @Mock
+    private WebhookInbox webhookInbox;
+
+    private StripeWebhookStubController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new StripeWebhookStubController(webhookInbox, new ObjectMapper());
+        ReflectionTestUtils.setField(controller, "endpointSecret", SECRET);
+    }
+
+    @Test
+    void signedEventIsAppendedToInbox() throws Exception {
+        when(webhookInbox.append(any(), eq(PAYLOAD))).thenReturn(true);
+
+        ResponseEntity<String> response = controller.handleFakeStripeEvent(PAYLOAD, sign(PAYLOAD, SECRET, Instant.now()));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        ArgumentCaptor<StripeWebhookEvent> event = ArgumentCaptor.forClass(StripeWebhookEvent.class);
+        verify(webhookInbox).append(event.capture(), eq(PAYLOAD));
+        assertThat(event.getValue().id()).isEqualTo("evt_1");
+        assertThat(event.getValue().sessionId()).isEqualTo("cs_1");
+    }
+
+    @Test
+    void missingSignatureIsRejected() {
+        ResponseEntity<String> response = controller.handleFakeStripeEvent(PAYLOAD, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(webhookInbox);
+    }
+
+    @Test
+    void signatureWithOtherSecretIsRejected() throws Exception {
+        ResponseEntity<String> response = controller.handleFakeStripeEvent(PAYLOAD,
+                sign(PAYLOAD, "whsec_other", Instant.now()));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(webhookInbox);
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() throws Exception {
+        String signature = sign(PAYLOAD, SECRET, Instant.now());
+
+        ResponseEntity<String> response = controller.handleFakeStripeEvent(PAYLOAD.replace("cs_1", "cs_2"), signature);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(webhookInbox);
+    }
+
+    @Test
+    void replayedRequestOutsideToleranceIsRejected() throws Exception {
+        ResponseEntity<String> response = controller.handleFakeStripeEvent(PAYLOAD,
+                sign(PAYLOAD, SECRET, Instant.now().minus(Duration.ofMinutes(10))));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(webhookInbox);
+    }
+
+    @Test
+    void redeliveredEventIsAcknowledged() throws Exception {
+        when(webhookInbox.append(any(), anyString())).thenReturn(true, false);
+
+        ResponseEntity<String> first = controller.handleFakeStripeEvent(PAYLOAD, sign(PAYLOAD, SECRET, Instant.now()));
+        ResponseEntity<String> second = controller.handleFakeStripeEvent(PAYLOAD, sign(PAYLOAD, SECRET, Instant.now()));
+
+        // Иначе Stripe продолжит повторять доставку
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(webhookInbox, times(2)).append(any(), eq(PAYLOAD));
+    }
+
+    /**
+     * {@code Stripe-Signature} as Stripe builds it: HMAC-SHA256 of {@code timestamp.payload}.
+     */
+    private static String sign(String payload, String secret, Instant at) throws Exception {
+        long timestamp = at.getEpochSecond();
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(secret, timestamp + "." + payload);
+    }
+}
@@ -0,0 +1,129 @@
+package com.samilyak.paymentservice.repository;
+
+import com.samilyak.paymentservice.model.IdempotencyKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code reserve} is a native INSERT … ON CONFLICT … DO UPDATE … WHERE, so it runs against Postgres
+ * with the Liquibase schema rather than an in-memory database. The nested configuration keeps the
+ * application class (and its Feign clients) out of the JPA slice.
+ */
+@DataJpaTest(properties = "spring.cloud.config.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class IdempotencyKeyRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final Long BOOKING_ID = 42L;
+    private static final String KEY = REFUND.keyFor(BOOKING_ID);
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = IdempotencyKey.class)
+    @EnableJpaRepositories(basePackageClasses = IdempotencyKeyRepository.class)
+    static class JpaSlice {
+    }
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Test
+    void newKeyIsReservedInProgress() {
+        assertThat(reserve(now, false)).isEqualTo(1);
+
+        IdempotencyKey key = load();
+        assertThat(key.getStatus()).isEqualTo(IdempotencyKey.Status.IN_PROGRESS);
+        assertThat(key.getBookingId()).isEqualTo(BOOKING_ID);
+        assertThat(key.getOperation()).isEqualTo(REFUND);
+    }
+
+    @Test
+    void keyHeldWithinLeaseIsDuplicate() {
+        reserve(now, true);
+
+        assertThat(reserve(now.plusSeconds(10), true)).isZero();
+        assertThat(load().getUpdatedAt()).isEqualTo(now);
+    }
+
+    @Test
+    void keyHeldPastLeaseIsTakenOver() {
+        reserve(now, false);
+        Instant later = now.plus(LEASE).plusSeconds(1);
+
+        assertThat(reserve(later, false)).isEqualTo(1);
+        assertThat(load().getUpdatedAt()).isEqualTo(later);
+    }
+
+    @Test
+    void failedKeyIsRetriedOnlyWhenAllowed() {
+        reserve(now, true);
+        repository.finish(KEY, IdempotencyKey.Status.FAILED, "re_partial", now);
+
+        assertThat(reserve(now.plusSeconds(1), false)).isZero();
+        assertThat(reserve(now.plusSeconds(2), true)).isEqualTo(1);
+
+        IdempotencyKey key = load();
+        assertThat(key.getStatus()).isEqualTo(IdempotencyKey.Status.IN_PROGRESS);
+        assertThat(key.getResult()).isNull();
+    }
+
+    @Test
+    void completedKeyIsNeverTakenOver() {
+        reserve(now, true);
+        repository.finish(KEY, IdempotencyKey.Status.COMPLETED, "re_123", now);
+
+        assertThat(reserve(now.plus(LEASE).plusSeconds(1), true)).isZero();
+
+        IdempotencyKey key = load();
+        assertThat(key.getStatus()).isEqualTo(IdempotencyKey.Status.COMPLETED);
+        assertThat(key.getResult()).isEqualTo("re_123");
+    }
+
+    @Test
+    void rejectedKeyIsNeverTakenOver() {
+        reserve(now, true);
+        repository.finish(KEY, IdempotencyKey.Status.REJECTED, null, now);
+
+        assertThat(reserve(now.plus(LEASE).plusSeconds(1), true)).isZero();
+        assertThat(load().getStatus()).isEqualTo(IdempotencyKey.Status.REJECTED);
+    }
+
+    private int reserve(Instant at, boolean retryFailed) {
+        return repository.reserve(KEY, BOOKING_ID, REFUND.name(), at, at.minus(LEASE), retryFailed);
+    }
+
+    /**
+     * Native and bulk updates bypass the persistence context, so the row is read afresh
+     */
+    private IdempotencyKey load() {
+        entityManager.flush();
+        entityManager.clear();
+        return repository.findById(KEY).orElseThrow();
+    }
+}
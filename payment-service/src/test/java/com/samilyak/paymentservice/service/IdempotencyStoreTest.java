@@ -0,0 +1,123 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.paymentservice.model.IdempotencyKey;
+import com.samilyak.paymentservice.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Status.COMPLETED;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Status.FAILED;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Status.IN_PROGRESS;
+import static com.samilyak.paymentservice.model.IdempotencyKey.Status.REJECTED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Where an IN_PROGRESS key goes after the provider call; the SQL itself is covered by
+ * {@code IdempotencyKeyRepositoryTest}, which needs Docker.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(repository, LEASE);
+    }
+
+    @Test
+    void reserveTakesOverKeysOlderThanLease() {
+        when(repository.reserve(eq("refund-1"), eq(1L), eq("REFUND"), any(), any(), eq(true))).thenReturn(1);
+
+        assertThat(store.reserve(REFUND, 1L, true)).isTrue();
+
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> staleBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(repository).reserve(eq("refund-1"), eq(1L), eq("REFUND"), now.capture(), staleBefore.capture(), eq(true));
+        assertThat(Duration.between(staleBefore.getValue(), now.getValue())).isEqualTo(LEASE);
+    }
+
+    @Test
+    void heldKeyIsNotReserved() {
+        when(repository.reserve(eq("refund-1"), eq(1L), eq("REFUND"), any(), any(), eq(false))).thenReturn(0);
+
+        assertThat(store.reserve(REFUND, 1L, false)).isFalse();
+    }
+
+    @Test
+    void failLeavesKeyRetryable() {
+        store.fail(REFUND, 1L);
+
+        verify(repository).finish(eq("refund-1"), eq(FAILED), eq(null), any());
+    }
+
+    @Test
+    void rejectClosesKeyForGood() {
+        store.reject(REFUND, 1L);
+
+        verify(repository).finish(eq("refund-1"), eq(REJECTED), eq(null), any());
+    }
+
+    @Test
+    void completeStoresProviderResult() {
+        store.complete(REFUND, 1L, "re_1");
+
+        verify(repository).finish(eq("refund-1"), eq(COMPLETED), eq("re_1"), any());
+    }
+
+    @Test
+    void batchOutcomesAreWrittenPerStatus() {
+        store.failAll(REFUND, List.of(1L, 2L));
+        store.rejectAll(REFUND, List.of(3L));
+
+        verify(repository).finishAll(eq(List.of("refund-1", "refund-2")), eq(FAILED), any());
+        verify(repository).finishAll(eq(List.of("refund-3")), eq(REJECTED), any());
+    }
+
+    @Test
+    void emptyBatchTouchesNothing() {
+        store.failAll(REFUND, List.of());
+        store.rejectAll(REFUND, List.of());
+
+        assertThat(store.rejected(REFUND, List.of())).isEmpty();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void onlyRejectedKeysAreReportedRejected() {
+        when(repository.findAllById(anyCollection())).thenReturn(List.of(
+                key(1L, REJECTED), key(2L, FAILED), key(3L, IN_PROGRESS), key(4L, COMPLETED)));
+
+        assertThat(store.rejected(REFUND, List.of(1L, 2L, 3L, 4L))).isEqualTo(Set.of(1L));
+    }
+
+    private static IdempotencyKey key(Long bookingId, IdempotencyKey.Status status) {
+        return IdempotencyKey.builder()
+                .key(REFUND.keyFor(bookingId))
+                .bookingId(bookingId)
+                .operation(REFUND)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.samilyak.paymentservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentReconciliationTest {
+
+    private static final UUID FIRST = new UUID(0L, 0L);
+    private static final UUID LAST = new UUID(-1L, -1L);
+
+    @Test
+    void singlePartitionCoversWholeSpace() {
+        assertThat(PaymentReconciliation.partitionBounds(1)).containsExactly(FIRST, LAST);
+    }
+
+    @Test
+    void boundsSplitHighBitsEvenly() {
+        assertThat(PaymentReconciliation.partitionBounds(4)).containsExactly(
+                FIRST,
+                new UUID(1L << 62, 0L),
+                new UUID(Long.MIN_VALUE, 0L),
+                new UUID(3L << 62, 0L),
+                LAST);
+    }
+
+    @ParameterizedTest(name = "{0} partitions")
+    @ValueSource(ints = {1, 2, 3, 4, 7, 16})
+    void boundsAreAscendingAndSpanTheSpace(int n) {
+        List<UUID> bounds = PaymentReconciliation.partitionBounds(n);
+
+        assertThat(bounds).hasSize(n + 1).startsWith(FIRST).endsWith(LAST);
+        // Курсор сравнивает uuid в Postgres — беззнаково, поэтому сравниваем строки, а не UUID.compareTo
+        assertThat(bounds.stream().map(UUID::toString).toList()).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void generatedIdFallsStrictlyInsideExactlyOneRange() {
+        List<UUID> bounds = PaymentReconciliation.partitionBounds(4);
+
+        for (int i = 0; i < 1_000; i++) {
+            String id = UUID.randomUUID().toString();
+            long containing = IntStream.range(0, bounds.size() - 1)
+                    .filter(r -> bounds.get(r).toString().compareTo(id) < 0
+                            && id.compareTo(bounds.get(r + 1).toString()) < 0)
+                    .count();
+            assertThat(containing).as(id).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.paymentservice.client.gateway.PaymentGateway;
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
+import com.samilyak.paymentservice.mapper.PaymentMapper;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+import static com.samilyak.paymentservice.model.Payment.Status.PAID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A single refund leaves its IN_PROGRESS key FAILED or REJECTED depending on whether the provider answered.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceImplTest {
+
+    private static final Long BOOKING_ID = 42L;
+    private static final String INTENT_ID = "pi_42";
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    private PaymentServiceImpl paymentService;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        paymentService = new PaymentServiceImpl(paymentRepository, mock(PaymentMapper.class), paymentGateway,
+                transactionTemplate, idempotencyStore);
+
+        Payment paid = Payment.builder()
+                .id(UUID.randomUUID())
+                .bookingId(BOOKING_ID)
+                .status(PAID)
+                .paymentIntentId(INTENT_ID)
+                .build();
+        when(paymentRepository.findByBookingId(BOOKING_ID)).thenReturn(Optional.of(paid));
+    }
+
+    @Test
+    void refundThatNeverReachedProviderLeavesKeyRetryable() {
+        when(idempotencyStore.reserve(REFUND, BOOKING_ID, true)).thenReturn(true);
+        when(paymentGateway.refund(BOOKING_ID, INTENT_ID)).thenReturn(CompletableFuture.failedFuture(
+                new PaymentGatewayException("Read timed out", null)));
+
+        assertThatThrownBy(() -> paymentService.cancelPayment(String.valueOf(BOOKING_ID)))
+                .isInstanceOf(PaymentGatewayException.class);
+
+        verify(idempotencyStore).fail(REFUND, BOOKING_ID);
+        verify(idempotencyStore, never()).reject(any(), anyLong());
+    }
+
+    @Test
+    void refundRefusedByProviderRejectsKey() {
+        when(idempotencyStore.reserve(REFUND, BOOKING_ID, true)).thenReturn(true);
+        when(paymentGateway.refund(BOOKING_ID, INTENT_ID)).thenReturn(CompletableFuture.failedFuture(
+                new PaymentGatewayException("charge_already_refunded", null, true)));
+
+        assertThatThrownBy(() -> paymentService.cancelPayment(String.valueOf(BOOKING_ID)))
+                .isInstanceOf(PaymentGatewayException.class);
+
+        verify(idempotencyStore).reject(REFUND, BOOKING_ID);
+        verify(idempotencyStore, never()).fail(any(), anyLong());
+    }
+
+    @Test
+    void rejectedKeyIsNotRetried() {
+        when(idempotencyStore.reserve(REFUND, BOOKING_ID, true)).thenReturn(false);
+        when(idempotencyStore.rejected(REFUND, List.of(BOOKING_ID))).thenReturn(Set.of(BOOKING_ID));
+
+        assertThatThrownBy(() -> paymentService.cancelPayment(String.valueOf(BOOKING_ID)))
+                .isInstanceOfSatisfying(PaymentGatewayException.class, e -> assertThat(e.isDefinitive()).isTrue());
+
+        verify(paymentGateway, never()).refund(anyLong(), anyString());
+    }
+}
@@ -0,0 +1,221 @@
+package com.samilyak.paymentservice.service;
+
+import com.samilyak.events.saga.BookingCancellationRequestedEvent;
+import com.samilyak.events.saga.PaymentCanceledEvent;
+import com.samilyak.paymentservice.client.gateway.PaymentGateway;
+import com.samilyak.paymentservice.exception.PaymentGatewayException;
+import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.repository.PaymentRepository;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.samilyak.paymentservice.model.IdempotencyKey.Operation.REFUND;
+import static com.samilyak.paymentservice.model.Payment.Status.CANCELED;
+import static com.samilyak.paymentservice.model.Payment.Status.PAID;
+import static com.samilyak.paymentservice.model.Payment.Status.PENDING;
+import static com.samilyak.paymentservice.model.Payment.Status.REFUNDED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefundPipelineTest {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private RateLimiter rateLimiter;
+
+    @Mock
+    private PaymentMessageProducer messageProducer;
+
+    @Captor
+    private ArgumentCaptor<List<PaymentCanceledEvent>> sent;
+
+    private RefundPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        pipeline = new RefundPipeline(paymentRepository, idempotencyStore, paymentGateway, rateLimiter,
+                messageProducer, transactionTemplate, new SimpleMeterRegistry(),
+                4, MAX_ATTEMPTS, Duration.ofMillis(1));
+        lenient().when(rateLimiter.acquirePermission()).thenReturn(true);
+    }
+
+    @Test
+    void splitsBatchIntoRefundedFailedSkippedAndCanceled() {
+        Payment refundable = paid(1L);
+        Payment flaky = paid(2L);
+        Payment heldElsewhere = paid(3L);
+        Payment unpaid = pending(4L, "cs_4");
+        Payment paidButExpired = paid(5L);
+        givenPayments(refundable, flaky, heldElsewhere, unpaid, paidButExpired);
+        givenKeysReservedExcept(3L);
+        when(idempotencyStore.rejected(REFUND, List.of(3L))).thenReturn(Set.of());
+        when(paymentGateway.refund(1L, "pi_1")).thenReturn(CompletableFuture.completedFuture("re_1"));
+        when(paymentGateway.refund(2L, "pi_2"))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentGatewayException("read timed out", null)));
+        when(paymentGateway.expireSession("cs_4")).thenReturn(CompletableFuture.completedFuture(null));
+
+        Set<Long> failed = pipeline.process(List.of(
+                cancellation(1L, true), cancellation(2L, true), cancellation(3L, true),
+                cancellation(4L, false), cancellation(5L, false)));
+
+        assertThat(failed).containsExactly(2L);
+        // Сбой до ответа провайдера — повтор с тем же ключом
+        verify(paymentGateway, times(MAX_ATTEMPTS)).refund(2L, "pi_2");
+        verify(idempotencyStore, times(MAX_ATTEMPTS)).failAll(REFUND, Set.of(2L));
+        verify(idempotencyStore, never()).rejectAll(any(), anyCollection());
+        verify(paymentGateway, never()).refund(eq(3L), anyString());
+        verify(paymentGateway, never()).refund(eq(5L), anyString());
+
+        verify(paymentRepository).updateStatus(List.of(refundable.getId()), REFUNDED);
+        verify(idempotencyStore).completeAll(REFUND, Map.of(1L, "re_1"));
+        verify(paymentRepository).updateStatus(List.of(unpaid.getId()), CANCELED);
+
+        // Бронь 3 ведёт другой обработчик, бронь 2 вернётся повторной доставкой
+        assertThat(sentBookingIds()).containsExactly(1L, 4L, 5L);
+    }
+
+    @Test
+    void definitiveProviderErrorRejectsKeyWithoutRetry() {
+        givenPayments(paid(1L));
+        givenKeysReservedExcept();
+        when(idempotencyStore.rejected(REFUND, List.of())).thenReturn(Set.of());
+        when(paymentGateway.refund(1L, "pi_1"))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentGatewayException("charge disputed", null, true)));
+
+        Set<Long> failed = pipeline.process(List.of(cancellation(1L, true)));
+
+        assertThat(failed).containsExactly(1L);
+        verify(paymentGateway, times(1)).refund(1L, "pi_1");
+        verify(idempotencyStore).rejectAll(REFUND, Set.of(1L));
+        verify(paymentRepository, never()).updateStatus(anyCollection(), eq(REFUNDED));
+        assertThat(sentBookingIds()).isEmpty();
+    }
+
+    @Test
+    void previouslyRejectedRefundIsFailedNotSkipped() {
+        givenPayments(paid(1L));
+        givenKeysReservedExcept(1L);
+        when(idempotencyStore.rejected(REFUND, List.of(1L))).thenReturn(Set.of(1L));
+
+        Set<Long> failed = pipeline.process(List.of(cancellation(1L, true)));
+
+        assertThat(failed).containsExactly(1L);
+        verify(paymentGateway, never()).refund(anyLong(), anyString());
+        assertThat(sentBookingIds()).isEmpty();
+    }
+
+    @Test
+    void sessionThatCannotBeExpiredKeepsPaymentPending() {
+        givenPayments(pending(4L, "cs_4"));
+        givenKeysReservedExcept();
+        when(idempotencyStore.rejected(REFUND, List.of())).thenReturn(Set.of());
+        when(paymentGateway.expireSession("cs_4"))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentGatewayException("session is complete", null)));
+
+        Set<Long> failed = pipeline.process(List.of(cancellation(4L, false)));
+
+        assertThat(failed).containsExactly(4L);
+        verify(paymentRepository, never()).updateStatus(anyCollection(), eq(CANCELED));
+        assertThat(sentBookingIds()).isEmpty();
+    }
+
+    @Test
+    void redeliveryInsideBatchIsRefundedOnce() {
+        givenPayments(paid(1L));
+        givenKeysReservedExcept();
+        when(idempotencyStore.rejected(REFUND, List.of())).thenReturn(Set.of());
+        when(paymentGateway.refund(1L, "pi_1")).thenReturn(CompletableFuture.completedFuture("re_1"));
+
+        Set<Long> failed = pipeline.process(List.of(cancellation(1L, true), cancellation(1L, true)));
+
+        assertThat(failed).isEmpty();
+        verify(paymentGateway, times(1)).refund(1L, "pi_1");
+        assertThat(sentBookingIds()).containsExactly(1L);
+    }
+
+    private void givenPayments(Payment... payments) {
+        when(paymentRepository.findAllByBookingIdIn(anyCollection())).thenReturn(List.of(payments));
+    }
+
+    /**
+     * The pipeline narrows the returned set in place, so every call gets a fresh mutable one
+     */
+    @SuppressWarnings("unchecked")
+    private void givenKeysReservedExcept(Long... heldElsewhere) {
+        Set<Long> held = Set.of(heldElsewhere);
+        when(idempotencyStore.reserveAll(eq(REFUND), anyCollection(), eq(true))).thenAnswer(invocation -> {
+            Set<Long> reserved = new LinkedHashSet<>((Collection<Long>) invocation.getArgument(1));
+            reserved.removeAll(held);
+            return reserved;
+        });
+    }
+
+    private List<Long> sentBookingIds() {
+        verify(messageProducer).sendPaymentCanceled(sent.capture());
+        return sent.getValue().stream().map(PaymentCanceledEvent::bookingId).toList();
+    }
+
+    private static Payment paid(Long bookingId) {
+        return Payment.builder()
+                .id(UUID.randomUUID())
+                .bookingId(bookingId)
+                .status(PAID)
+                .sessionId("cs_" + bookingId)
+                .paymentIntentId("pi_" + bookingId)
+                .build();
+    }
+
+    private static Payment pending(Long bookingId, String sessionId) {
+        return Payment.builder()
+                .id(UUID.randomUUID())
+                .bookingId(bookingId)
+                .status(PENDING)
+                .sessionId(sessionId)
+                .build();
+    }
+
+    private static BookingCancellationRequestedEvent cancellation(Long bookingId, boolean refundNeeded) {
+        return new BookingCancellationRequestedEvent(bookingId, 7L, null, null, "cs_" + bookingId, refundNeeded);
+    }
+}
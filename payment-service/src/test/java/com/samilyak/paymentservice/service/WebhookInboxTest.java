@@ -0,0 +1,236 @@
+package com.samilyak.paymentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samilyak.events.saga.PaymentFailedEvent;
+import com.samilyak.events.saga.PaymentSuccessEvent;
+import com.samilyak.paymentservice.dto.StripeWebhookEvent;
+import com.samilyak.paymentservice.messaging.kafka.PaymentMessageProducer;
+import com.samilyak.paymentservice.model.Payment;
+import com.samilyak.paymentservice.model.WebhookInboxEvent;
+import com.samilyak.paymentservice.repository.WebhookInboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookInboxTest {
+
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(5);
+
+    @Mock
+    private WebhookInboxRepository inboxRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private PaymentMessageProducer messageProducer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<WebhookInboxEvent> inbox = new ArrayList<>();
+
+    private final Payment firstPayment = payment(1L);
+    private final Payment secondPayment = payment(2L);
+
+    private WebhookInbox webhookInbox;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        webhookInbox = new WebhookInbox(inboxRepository, paymentService, messageProducer, objectMapper,
+                transactionTemplate, BATCH_SIZE, MAX_ATTEMPTS, LEASE, RETRY_BACKOFF, Duration.ofDays(7));
+        givenInboxTable();
+    }
+
+    @Test
+    void redeliveredEventIsNotAppendedAgain() {
+        when(inboxRepository.append(eq("evt_1"), anyString(), eq("cs_1"), anyString(), any())).thenReturn(1, 0);
+        StripeWebhookEvent event = event("evt_1", "checkout.session.completed", "cs_1");
+
+        assertThat(webhookInbox.append(event, "{}")).isTrue();
+        assertThat(webhookInbox.append(event, "{}")).isFalse();
+
+        // Дубликат отвечает 200 и не доходит до обработки
+        verifyNoInteractions(paymentService, messageProducer);
+    }
+
+    @Test
+    void processedEventIsNotClaimedAgain() {
+        givenPayments();
+        receive("evt_1", "checkout.session.completed", "cs_1", 0);
+
+        webhookInbox.drain();
+        webhookInbox.drain();
+
+        verify(messageProducer).sendPaymentSuccess(any(PaymentSuccessEvent.class));
+        assertThat(find("evt_1").getProcessedAt()).isNotNull();
+    }
+
+    @Test
+    void eventsAreAppliedInArrivalOrder() {
+        givenPayments();
+        receive("evt_1", "checkout.session.completed", "cs_2", 0);
+        receive("evt_2", "checkout.session.completed", "cs_1", 1);
+        receive("evt_3", "checkout.session.expired", "cs_1", 2);
+
+        webhookInbox.drain();
+        webhookInbox.drain();
+
+        InOrder inOrder = inOrder(paymentService);
+        inOrder.verify(paymentService).updatePaymentWithIntent(secondPayment.getId(), Payment.Status.PAID, "pi_evt_1");
+        inOrder.verify(paymentService).updatePaymentWithIntent(firstPayment.getId(), Payment.Status.PAID, "pi_evt_2");
+        inOrder.verify(paymentService).cancelPayment("1");
+        assertThat(inbox).allSatisfy(event -> assertThat(event.getProcessedAt()).isNotNull());
+    }
+
+    @Test
+    void failedEventStaysAtHeadOfItsSession() {
+        givenPayments();
+        receive("evt_1", "checkout.session.completed", "cs_1", 0);
+        receive("evt_2", "checkout.session.completed", "cs_2", 1);
+        receive("evt_3", "checkout.session.expired", "cs_1", 2);
+        when(paymentService.findBySessionId("cs_1"))
+                .thenThrow(new IllegalStateException("payments db is down"))
+                .thenReturn(firstPayment);
+
+        Instant beforeDrain = Instant.now();
+        webhookInbox.drain();
+
+        WebhookInboxEvent failed = find("evt_1");
+        assertThat(failed.getProcessedAt()).isNull();
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).isEqualTo("payments db is down");
+        assertThat(failed.getNextAttemptAt()).isAfterOrEqualTo(beforeDrain.plus(RETRY_BACKOFF));
+        // Ошибка одной сессии не задерживает другие
+        assertThat(find("evt_2").getProcessedAt()).isNotNull();
+        // Следующее событие той же сессии ждёт, пока не пройдёт первое
+        assertThat(find("evt_3").getProcessedAt()).isNull();
+        assertThat(find("evt_3").getAttempts()).isZero();
+
+        // Бэкофф ещё не истёк — сессия стоит целиком
+        webhookInbox.drain();
+        verify(paymentService, never()).cancelPayment(anyString());
+
+        failed.setNextAttemptAt(Instant.now().minusSeconds(1));
+        webhookInbox.drain();
+        webhookInbox.drain();
+
+        InOrder inOrder = inOrder(paymentService);
+        inOrder.verify(paymentService).updatePaymentWithIntent(firstPayment.getId(), Payment.Status.PAID, "pi_evt_1");
+        inOrder.verify(paymentService).cancelPayment("1");
+        assertThat(inbox).allSatisfy(event -> assertThat(event.getProcessedAt()).isNotNull());
+        verify(messageProducer).sendPaymentFailed(any(PaymentFailedEvent.class));
+    }
+
+    @Test
+    void eventOutOfAttemptsIsParkedWithItsSession() {
+        givenPayments();
+        receive("evt_1", "checkout.session.completed", "cs_1", 0);
+        receive("evt_2", "checkout.session.expired", "cs_1", 1);
+        find("evt_1").setAttempts(MAX_ATTEMPTS - 1);
+        when(paymentService.findBySessionId("cs_1")).thenThrow(new IllegalStateException("payments db is down"));
+
+        webhookInbox.drain();
+        find("evt_1").setNextAttemptAt(Instant.now().minusSeconds(1));
+        webhookInbox.drain();
+
+        assertThat(find("evt_1").getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(find("evt_1").getProcessedAt()).isNull();
+        assertThat(find("evt_2").getProcessedAt()).isNull();
+        verify(paymentService, never()).cancelPayment(anyString());
+    }
+
+    /**
+     * The inbox table as {@code lockNextBatch} sees it: due, unprocessed events with attempts left,
+     * in arrival order, and none behind an unprocessed earlier event of its session.
+     */
+    private void givenInboxTable() {
+        lenient().when(inboxRepository.lockNextBatch(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Instant now = invocation.getArgument(0);
+            int maxAttempts = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            List<WebhookInboxEvent> pending = inbox.stream()
+                    .filter(event -> event.getProcessedAt() == null)
+                    .sorted(Comparator.comparing(WebhookInboxEvent::getReceivedAt)
+                            .thenComparing(WebhookInboxEvent::getEventId))
+                    .toList();
+            return pending.stream()
+                    .filter(event -> !event.getNextAttemptAt().isAfter(now) && event.getAttempts() < maxAttempts)
+                    .filter(event -> pending.stream()
+                            .takeWhile(earlier -> earlier != event)
+                            .noneMatch(earlier -> earlier.getSessionId().equals(event.getSessionId())))
+                    .limit(limit)
+                    .toList();
+        });
+        lenient().when(inboxRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return inbox.stream().filter(event -> ids.contains(event.getEventId())).toList();
+        });
+    }
+
+    private void givenPayments() {
+        lenient().when(paymentService.findBySessionId("cs_1")).thenReturn(firstPayment);
+        lenient().when(paymentService.findBySessionId("cs_2")).thenReturn(secondPayment);
+    }
+
+    private void receive(String eventId, String type, String sessionId, long secondsAfterStart) {
+        Instant receivedAt = Instant.now().minusSeconds(60).plusSeconds(secondsAfterStart);
+        String payload = objectMapper.valueToTree(event(eventId, type, sessionId)).toString();
+        inbox.add(WebhookInboxEvent.builder()
+                .eventId(eventId)
+                .eventType(type)
+                .sessionId(sessionId)
+                .payload(payload)
+                .receivedAt(receivedAt)
+                .nextAttemptAt(receivedAt)
+                .build());
+    }
+
+    private WebhookInboxEvent find(String eventId) {
+        return inbox.stream().filter(event -> event.getEventId().equals(eventId)).findFirst().orElseThrow();
+    }
+
+    private static StripeWebhookEvent event(String eventId, String type, String sessionId) {
+        return new StripeWebhookEvent(eventId, type, new StripeWebhookEvent.Data(
+                new StripeWebhookEvent.SessionObject(sessionId, "pi_" + eventId)));
+    }
+
+    private static Payment payment(Long bookingId) {
+        return Payment.builder()
+                .id(UUID.randomUUID())
+                .bookingId(bookingId)
+                .userId(100L + bookingId)
+                .build();
+    }
+}